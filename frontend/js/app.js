@@ -72,7 +72,7 @@ $(document).ready(function() {
 
                 // Populate the exchange rates table
                 $.each(response, function(index, rate) {
-                    const row = $('<tr></tr>');
+                    const row = $('<tr></tr>').data('changeVersion', rate.changeVersion);
                     const currency = rate.baseCurrency.code + rate.targetCurrency.code;
                     row.append($('<td></td>').text(currency));
                     row.append($('<td></td>').text(rate.rate));
@@ -93,6 +93,27 @@ $(document).ready(function() {
 
     requestExchangeRates();
 
+    // Keep the exchange rates table up to date with changes made elsewhere; the browser reconnects
+    // on its own and resumes from the last event it received
+    const exchangeRatesStream = new EventSource(`${host}/exchangeRates/stream`);
+    exchangeRatesStream.addEventListener("rate", function(event) {
+        const rate = JSON.parse(event.data);
+        const currency = rate.baseCurrency.code + rate.targetCurrency.code;
+        const row = $('.exchange-rates-table tbody tr').filter(function() {
+            return $(this).find('td:first').text() === currency;
+        });
+        if (row.length) {
+            // A reconnect can replay a change the table already shows; never go back to an older rate
+            if (rate.changeVersion > row.data('changeVersion')) {
+                row.data('changeVersion', rate.changeVersion);
+                row.find('td:eq(1)').text(rate.rate);
+            }
+        } else {
+            requestExchangeRates();
+        }
+    });
+    exchangeRatesStream.addEventListener("resync", requestExchangeRates);
+
     // Open the edit modal and populate fields with selected exchange rate data
     $(document).delegate('.exchange-rate-edit', 'click', function() {
         const pair = $(this).closest('tr').find('td:first').text();
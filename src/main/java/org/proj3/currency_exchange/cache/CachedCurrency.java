@@ -0,0 +1,10 @@
+package org.proj3.currency_exchange.cache;
+
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+
+public record CachedCurrency(int id, String code, String fullName, String sign) {
+
+    public static CachedCurrency of(CurrencyEntity entity) {
+        return new CachedCurrency(entity.getId(), entity.getCode(), entity.getFullName(), entity.getSign());
+    }
+}
@@ -0,0 +1,14 @@
+package org.proj3.currency_exchange.cache;
+
+import org.proj3.currency_exchange.util.FixedPointUtil;
+
+import java.math.BigDecimal;
+
+// rateMicros is the rate in millionths, or FixedPointUtil.NOT_REPRESENTABLE when it needs BigDecimal arithmetic
+public record CachedRate(int id, CachedCurrency baseCurrency, CachedCurrency targetCurrency, BigDecimal rate,
+                         long rateMicros) {
+
+    public CachedRate(int id, CachedCurrency baseCurrency, CachedCurrency targetCurrency, BigDecimal rate) {
+        this(id, baseCurrency, targetCurrency, rate, FixedPointUtil.toScaled(rate, FixedPointUtil.MICRO_SCALE));
+    }
+}
@@ -0,0 +1,133 @@
+package org.proj3.currency_exchange.cache;
+
+import org.proj3.currency_exchange.dao.impl.CurrencyDao;
+import org.proj3.currency_exchange.dao.impl.ExchangeRateDao;
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class RateCache {
+    private final CurrencyDao currencyDao;
+    private final ExchangeRateDao exchangeRateDao;
+    private final RateRouter router;
+    private final boolean enabled;
+    private final SingleFlight<RouteKey, RateSnapshot> routeLoads;
+    private final Object lock = new Object();
+
+    private volatile RateSnapshot snapshot;
+
+    private RateCache(CurrencyDao currencyDao, ExchangeRateDao exchangeRateDao, RateRouter router, boolean enabled,
+                      SingleFlight<RouteKey, RateSnapshot> routeLoads) {
+        this.currencyDao = currencyDao;
+        this.exchangeRateDao = exchangeRateDao;
+        this.router = router;
+        this.enabled = enabled;
+        this.routeLoads = routeLoads;
+    }
+
+    public static RateCache createInstance(CurrencyDao currencyDao, ExchangeRateDao exchangeRateDao,
+                                           RateRouter router, boolean enabled,
+                                           SingleFlight<RouteKey, RateSnapshot> routeLoads) {
+        return new RateCache(currencyDao, exchangeRateDao, router, enabled, routeLoads);
+    }
+
+    public RateSnapshot snapshot() {
+        if (!enabled) {
+            return RateSnapshot.detached(exchangeRateDao.findAll());
+        }
+
+        RateSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (lock) {
+            if (snapshot == null) {
+                snapshot = RateSnapshot.of(currencyDao.findAll(), exchangeRateDao.findAll());
+            }
+            return snapshot;
+        }
+    }
+
+    // True when routes are resolved over the snapshot in memory, without reading the database
+    public boolean isLoaded() {
+        return enabled && snapshot != null;
+    }
+
+    public RateSnapshot snapshotFor(int packedBaseCode, int packedTargetCode) {
+        if (enabled) {
+            return snapshot();
+        }
+
+        // Only rates between the two currencies and the hubs can take part in a route, fetched in one query
+        RouteKey key = new RouteKey(PackedCodeUtil.pair(packedBaseCode, packedTargetCode), RouteKey.CURRENT);
+        return routeLoads.load(key, () -> RateSnapshot.detached(
+                exchangeRateDao.findAllBetween(routeCurrencyCodes(packedBaseCode, packedTargetCode))));
+    }
+
+    // Historical rates are never cached: the same subgraph as snapshotFor, with the rates in effect at the instant
+    public RateSnapshot snapshotAsOf(int packedBaseCode, int packedTargetCode, Instant asOf) {
+        long epochMillis = asOf.toEpochMilli();
+        RouteKey key = new RouteKey(PackedCodeUtil.pair(packedBaseCode, packedTargetCode), epochMillis);
+        return routeLoads.load(key, () -> RateSnapshot.detached(exchangeRateDao.findAllBetweenAsOf(
+                routeCurrencyCodes(packedBaseCode, packedTargetCode), epochMillis)));
+    }
+
+    private List<String> routeCurrencyCodes(int packedBaseCode, int packedTargetCode) {
+        List<String> currencyCodes = new ArrayList<>(router.getHubCurrencies());
+        currencyCodes.add(PackedCodeUtil.unpack(packedBaseCode));
+        currencyCodes.add(PackedCodeUtil.unpack(packedTargetCode));
+        return currencyCodes;
+    }
+
+    // Runs a database write together with the updates that follow its commit: the snapshot, candles and feed events.
+    // SQLite commits one write at a time, and a writer holds the lock until its updates are applied, so they are
+    // applied in commit order. The lock is always taken before a write connection, never while holding one.
+    public <T> T inCommitOrder(Supplier<T> write) {
+        synchronized (lock) {
+            return write.get();
+        }
+    }
+
+    public void onCurrencySaved(CurrencyEntity currency) {
+        synchronized (lock) {
+            // Not loaded yet: the first snapshot() call will read the committed row anyway
+            if (snapshot != null) {
+                snapshot = snapshot.withCurrency(currency);
+                router.onCurrencyAdded(snapshot.version());
+            }
+        }
+    }
+
+    // After a bulk import: any number of currencies and rates may have changed
+    public void reload() {
+        synchronized (lock) {
+            if (snapshot != null) {
+                snapshot = snapshot.reloaded(currencyDao.findAll(), exchangeRateDao.findAll());
+                router.onReloaded(snapshot.version());
+            }
+        }
+    }
+
+    public void onRateSaved(ExchangeRateEntity exchangeRate) {
+        synchronized (lock) {
+            if (snapshot != null) {
+                int baseCurrencyCode = PackedCodeUtil.pack(exchangeRate.getBaseCurrency().getCode());
+                int targetCurrencyCode = PackedCodeUtil.pack(exchangeRate.getTargetCurrency().getCode());
+                boolean added = snapshot.rate(baseCurrencyCode, targetCurrencyCode) == null;
+
+                snapshot = snapshot.withRate(exchangeRate);
+                router.onRateChanged(baseCurrencyCode, targetCurrencyCode, added, snapshot.version());
+            }
+        }
+    }
+
+    // The rates a route between two currencies is resolved from, current or as of an instant
+    public record RouteKey(int packedPair, long asOfMillis) {
+        static final long CURRENT = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,262 @@
+package org.proj3.currency_exchange.cache;
+
+import org.proj3.currency_exchange.util.FixedPointUtil;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+public class RateRouter {
+    private static final int DECIMAL_PLACES = FixedPointUtil.MICRO_SCALE;
+
+    private final List<String> hubCurrencies;
+    private final int[] packedHubCodes;
+    private final int maxHops;
+    private final ConcurrentMap<Integer, Route> routes = new ConcurrentHashMap<>();
+
+    private RateRouter(List<String> hubCurrencies, int maxHops) {
+        if (maxHops < 1) {
+            throw new IllegalArgumentException("Maximum number of hops must be positive: " + maxHops);
+        }
+        this.hubCurrencies = List.copyOf(hubCurrencies);
+        this.packedHubCodes = new int[hubCurrencies.size()];
+        for (int i = 0; i < packedHubCodes.length; i++) {
+            packedHubCodes[i] = PackedCodeUtil.pack(hubCurrencies.get(i));
+            if (packedHubCodes[i] == PackedCodeUtil.INVALID_CODE) {
+                throw new IllegalArgumentException("Invalid hub currency code: " + hubCurrencies.get(i));
+            }
+        }
+        this.maxHops = maxHops;
+    }
+
+    public static RateRouter createInstance(List<String> hubCurrencies, int maxHops) {
+        return new RateRouter(hubCurrencies, maxHops);
+    }
+
+    public List<String> getHubCurrencies() {
+        return hubCurrencies;
+    }
+
+    public Optional<CachedRate> route(RateSnapshot snapshot, int from, int to) {
+        if (snapshot.isDetached()) {
+            return Optional.ofNullable(resolve(snapshot, from, to).rate());
+        }
+
+        int key = PackedCodeUtil.pair(from, to);
+
+        Route cached = routes.get(key);
+        if (cached != null && cached.version() == snapshot.version()) {
+            return Optional.ofNullable(cached.rate());
+        }
+
+        Route route = resolve(snapshot, from, to);
+        routes.merge(key, route, (previous, resolved) -> previous.version() > resolved.version() ? previous : resolved);
+        return Optional.ofNullable(route.rate());
+    }
+
+    void onCurrencyAdded(long version) {
+        // A currency without rates cannot be part of any path, so every route stays valid
+        invalidate(version, route -> false);
+    }
+
+    void onRateChanged(int baseCurrencyCode, int targetCurrencyCode, boolean added, long version) {
+        if (added) {
+            invalidate(version, route -> canUseNewRate(route, baseCurrencyCode, targetCurrencyCode));
+        } else {
+            invalidate(version, route -> route.uses(baseCurrencyCode, targetCurrencyCode));
+        }
+    }
+
+    void onReloaded(long version) {
+        invalidate(version, route -> true);
+    }
+
+    private void invalidate(long version, Predicate<Route> affected) {
+        for (Map.Entry<Integer, Route> entry : routes.entrySet()) {
+            Route route = entry.getValue();
+            if (route.version() >= version) {
+                continue;
+            }
+            if (route.version() == version - 1 && !affected.test(route)) {
+                routes.replace(entry.getKey(), route, route.withVersion(version));
+            } else {
+                routes.remove(entry.getKey(), route);
+            }
+        }
+    }
+
+    private boolean canUseNewRate(Route route, int baseCurrencyCode, int targetCurrencyCode) {
+        if (route.isDirect()) {
+            return false;
+        }
+        // Only hubs may be intermediate nodes, so a new rate can only shorten (or reorder)
+        // a path when each of its currencies is either a hub or one of the route endpoints
+        return isReachableFrom(route, baseCurrencyCode) && isReachableFrom(route, targetCurrencyCode);
+    }
+
+    private boolean isReachableFrom(Route route, int currencyCode) {
+        return isHub(currencyCode) || currencyCode == route.from() || currencyCode == route.to();
+    }
+
+    private boolean isHub(int currencyCode) {
+        for (int hub : packedHubCodes) {
+            if (hub == currencyCode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Route resolve(RateSnapshot snapshot, int from, int to) {
+        CachedCurrency fromCurrency = snapshot.currency(from);
+        CachedCurrency toCurrency = snapshot.currency(to);
+
+        if (fromCurrency == null || toCurrency == null) {
+            return Route.notFound(snapshot.version(), from, to);
+        }
+
+        // Breadth-first search where only hub currencies may be intermediate nodes
+        Map<Integer, Leg> reachedBy = new HashMap<>();
+        Set<Integer> visited = new HashSet<>();
+        visited.add(from);
+        List<Integer> frontier = List.of(from);
+
+        for (int hop = 1; hop <= maxHops && !frontier.isEmpty(); hop++) {
+            for (int currencyCode : frontier) {
+                Leg leg = findLeg(snapshot, currencyCode, to);
+                if (leg != null) {
+                    reachedBy.put(to, leg);
+                    List<Leg> legs = collectLegs(reachedBy, from, to);
+                    return new Route(snapshot.version(), from, to, legs,
+                            calculateRate(snapshot, legs, fromCurrency, toCurrency));
+                }
+            }
+
+            List<Integer> nextFrontier = new ArrayList<>();
+            for (int currencyCode : frontier) {
+                for (int hub : packedHubCodes) {
+                    if (visited.contains(hub) || hub == to) {
+                        continue;
+                    }
+                    Leg leg = findLeg(snapshot, currencyCode, hub);
+                    if (leg != null) {
+                        visited.add(hub);
+                        reachedBy.put(hub, leg);
+                        nextFrontier.add(hub);
+                    }
+                }
+            }
+            frontier = nextFrontier;
+        }
+        return Route.notFound(snapshot.version(), from, to);
+    }
+
+    private Leg findLeg(RateSnapshot snapshot, int from, int to) {
+        if (snapshot.rate(from, to) != null) {
+            return new Leg(from, to, false);
+        }
+        if (snapshot.rate(to, from) != null) {
+            return new Leg(to, from, true);
+        }
+        return null;
+    }
+
+    private List<Leg> collectLegs(Map<Integer, Leg> reachedBy, int from, int to) {
+        LinkedList<Leg> legs = new LinkedList<>();
+        int currencyCode = to;
+        while (currencyCode != from) {
+            Leg leg = reachedBy.get(currencyCode);
+            legs.addFirst(leg);
+            currencyCode = leg.inverted() ? leg.targetCurrencyCode() : leg.baseCurrencyCode();
+        }
+        return List.copyOf(legs);
+    }
+
+    private CachedRate calculateRate(RateSnapshot snapshot, List<Leg> legs,
+                                     CachedCurrency fromCurrency, CachedCurrency toCurrency) {
+        Leg firstLeg = legs.get(0);
+        CachedRate firstRate = snapshot.rate(firstLeg.baseCurrencyCode(), firstLeg.targetCurrencyCode());
+        if (legs.size() == 1 && !firstLeg.inverted()) {
+            return firstRate;
+        }
+        // A reverse rate keeps the id of the stored rate it is derived from
+        int id = legs.size() == 1 ? firstRate.id() : 0;
+
+        long rateMicros = calculateRateMicros(snapshot, legs);
+        if (rateMicros != FixedPointUtil.NOT_REPRESENTABLE) {
+            BigDecimal rate = BigDecimal.valueOf(rateMicros, DECIMAL_PLACES);
+            return new CachedRate(id, fromCurrency, toCurrency, rate, rateMicros);
+        }
+
+        // Too large for longs: multiply both sides exactly and divide once, so rounding happens a single time
+        BigDecimal numerator = BigDecimal.ONE;
+        BigDecimal denominator = BigDecimal.ONE;
+        for (Leg leg : legs) {
+            BigDecimal rate = snapshot.rate(leg.baseCurrencyCode(), leg.targetCurrencyCode()).rate();
+            if (leg.inverted()) {
+                denominator = denominator.multiply(rate);
+            } else {
+                numerator = numerator.multiply(rate);
+            }
+        }
+        BigDecimal rate = numerator.divide(denominator, DECIMAL_PLACES, RoundingMode.HALF_EVEN);
+        return new CachedRate(id, fromCurrency, toCurrency, rate);
+    }
+
+    // The BigDecimal computation above on millionths in longs: the product of the forward legs over the
+    // product of the inverted legs, scaled to DECIMAL_PLACES and rounded once with HALF_EVEN
+    private long calculateRateMicros(RateSnapshot snapshot, List<Leg> legs) {
+        long numerator = 1;
+        long denominator = 1;
+        int forwardLegs = 0;
+        for (Leg leg : legs) {
+            long rateMicros = snapshot.rate(leg.baseCurrencyCode(), leg.targetCurrencyCode()).rateMicros();
+            if (leg.inverted()) {
+                denominator = FixedPointUtil.multiply(denominator, rateMicros);
+            } else {
+                numerator = FixedPointUtil.multiply(numerator, rateMicros);
+                forwardLegs++;
+            }
+        }
+
+        // Numerator has 6 * forward decimal places, denominator 6 * inverted, the quotient needs 6
+        int shift = DECIMAL_PLACES * (1 + legs.size() - 2 * forwardLegs);
+        if (shift >= 0) {
+            numerator = FixedPointUtil.multiply(numerator, FixedPointUtil.powerOfTen(shift));
+        } else {
+            denominator = FixedPointUtil.multiply(denominator, FixedPointUtil.powerOfTen(-shift));
+        }
+        return FixedPointUtil.divideHalfEven(numerator, denominator);
+    }
+
+    private record Leg(int baseCurrencyCode, int targetCurrencyCode, boolean inverted) {
+    }
+
+    private record Route(long version, int from, int to, List<Leg> legs, CachedRate rate) {
+
+        static Route notFound(long version, int from, int to) {
+            return new Route(version, from, to, List.of(), null);
+        }
+
+        Route withVersion(long version) {
+            return new Route(version, from, to, legs, rate);
+        }
+
+        boolean isDirect() {
+            return legs.size() == 1 && !legs.get(0).inverted();
+        }
+
+        boolean uses(int baseCurrencyCode, int targetCurrencyCode) {
+            for (Leg leg : legs) {
+                if (leg.baseCurrencyCode() == baseCurrencyCode && leg.targetCurrencyCode() == targetCurrencyCode) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.proj3.currency_exchange.cache;
+
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
+import org.proj3.currency_exchange.util.IntObjectMap;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import java.util.*;
+
+public final class RateSnapshot {
+    private static final long DETACHED_VERSION = -1;
+
+    private final long version;
+    // Packed currency code -> ordinal + 1, 0 means the currency is unknown
+    private final short[] ordinals;
+    private final CachedCurrency[] currencies;
+    private final IntObjectMap<CachedRate> rates;
+
+    private RateSnapshot(long version, short[] ordinals, CachedCurrency[] currencies, IntObjectMap<CachedRate> rates) {
+        this.version = version;
+        this.ordinals = ordinals;
+        this.currencies = currencies;
+        this.rates = rates;
+    }
+
+    public static RateSnapshot of(List<CurrencyEntity> currencyEntities, List<ExchangeRateEntity> rateEntities) {
+        short[] ordinals = new short[PackedCodeUtil.CODE_TABLE_SIZE];
+        List<CachedCurrency> currencies = new ArrayList<>(currencyEntities.size());
+        for (CurrencyEntity entity : currencyEntities) {
+            addCurrency(ordinals, currencies, CachedCurrency.of(entity));
+        }
+
+        IntObjectMap<CachedRate> rates = new IntObjectMap<>(rateEntities.size());
+        for (ExchangeRateEntity entity : rateEntities) {
+            addRate(ordinals, currencies, rates, entity);
+        }
+        return new RateSnapshot(0, ordinals, currencies.toArray(new CachedCurrency[0]), rates);
+    }
+
+    public static RateSnapshot detached(List<ExchangeRateEntity> rateEntities) {
+        RateSnapshot snapshot = of(List.of(), rateEntities);
+        return new RateSnapshot(DETACHED_VERSION, snapshot.ordinals, snapshot.currencies, snapshot.rates);
+    }
+
+    public boolean isDetached() {
+        return version == DETACHED_VERSION;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Optional<CachedCurrency> findCurrency(String code) {
+        return Optional.ofNullable(currency(PackedCodeUtil.pack(code)));
+    }
+
+    public Optional<CachedRate> findRate(String baseCurrencyCode, String targetCurrencyCode) {
+        return Optional.ofNullable(rate(PackedCodeUtil.pack(baseCurrencyCode), PackedCodeUtil.pack(targetCurrencyCode)));
+    }
+
+    public CachedCurrency currency(int packedCode) {
+        if (packedCode == PackedCodeUtil.INVALID_CODE) {
+            return null;
+        }
+        int ordinal = ordinals[packedCode];
+        return ordinal == 0 ? null : currencies[ordinal - 1];
+    }
+
+    public CachedRate rate(int packedBaseCode, int packedTargetCode) {
+        if (packedBaseCode == PackedCodeUtil.INVALID_CODE || packedTargetCode == PackedCodeUtil.INVALID_CODE) {
+            return null;
+        }
+        return rates.get(PackedCodeUtil.pair(packedBaseCode, packedTargetCode));
+    }
+
+    public Collection<CachedRate> rates() {
+        return rates.values();
+    }
+
+    // Rebuilt from a full read after a bulk write, one copy instead of one per row; the version still moves forward
+    public RateSnapshot reloaded(List<CurrencyEntity> currencyEntities, List<ExchangeRateEntity> rateEntities) {
+        RateSnapshot snapshot = of(currencyEntities, rateEntities);
+        return new RateSnapshot(version + 1, snapshot.ordinals, snapshot.currencies, snapshot.rates);
+    }
+
+    public RateSnapshot withCurrency(CurrencyEntity entity) {
+        short[] ordinalCopy = ordinals.clone();
+        List<CachedCurrency> currencyCopy = new ArrayList<>(Arrays.asList(currencies));
+        addCurrency(ordinalCopy, currencyCopy, CachedCurrency.of(entity));
+
+        return new RateSnapshot(version + 1, ordinalCopy, currencyCopy.toArray(new CachedCurrency[0]), rates);
+    }
+
+    public RateSnapshot withRate(ExchangeRateEntity entity) {
+        short[] ordinalCopy = ordinals.clone();
+        List<CachedCurrency> currencyCopy = new ArrayList<>(Arrays.asList(currencies));
+        IntObjectMap<CachedRate> rateCopy = rates.copy();
+        addRate(ordinalCopy, currencyCopy, rateCopy, entity);
+
+        return new RateSnapshot(version + 1, ordinalCopy, currencyCopy.toArray(new CachedCurrency[0]), rateCopy);
+    }
+
+    private static CachedCurrency addCurrency(short[] ordinals, List<CachedCurrency> currencies, CachedCurrency currency) {
+        int packedCode = PackedCodeUtil.pack(currency.code());
+        int ordinal = ordinals[packedCode];
+        if (ordinal != 0) {
+            currencies.set(ordinal - 1, currency);
+        } else {
+            currencies.add(currency);
+            ordinals[packedCode] = (short) currencies.size();
+        }
+        return currency;
+    }
+
+    private static void addRate(short[] ordinals, List<CachedCurrency> currencies,
+                                IntObjectMap<CachedRate> rates, ExchangeRateEntity entity) {
+        CachedCurrency baseCurrency = findOrAddCurrency(ordinals, currencies, entity.getBaseCurrency());
+        CachedCurrency targetCurrency = findOrAddCurrency(ordinals, currencies, entity.getTargetCurrency());
+
+        int pair = PackedCodeUtil.pair(PackedCodeUtil.pack(baseCurrency.code()), PackedCodeUtil.pack(targetCurrency.code()));
+        rates.put(pair, new CachedRate(entity.getId(), baseCurrency, targetCurrency, entity.getRate()));
+    }
+
+    private static CachedCurrency findOrAddCurrency(short[] ordinals, List<CachedCurrency> currencies,
+                                                    CurrencyEntity entity) {
+        int ordinal = ordinals[PackedCodeUtil.pack(entity.getCode())];
+        if (ordinal != 0) {
+            return currencies.get(ordinal - 1);
+        }
+        return addCurrency(ordinals, currencies, CachedCurrency.of(entity));
+    }
+}
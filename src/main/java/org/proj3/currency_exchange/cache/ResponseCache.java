@@ -0,0 +1,59 @@
+package org.proj3.currency_exchange.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ResponseCache {
+    private final boolean enabled;
+    private final AtomicLong version = new AtomicLong();
+    private final ConcurrentMap<String, Body> bodies = new ConcurrentHashMap<>();
+
+    private ResponseCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static ResponseCache createInstance(boolean enabled) {
+        return new ResponseCache(enabled);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    // Called after a write is committed, so a body built from older data can never match the new version
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    public byte[] get(String key, BodyWriter writer) throws IOException {
+        // Read the version before querying: a write racing with the query leaves a body tagged with a stale version
+        long current = version.get();
+        Body body = bodies.get(key);
+        if (body != null && body.version() == current) {
+            return body.bytes();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        byte[] bytes = out.toByteArray();
+
+        bodies.merge(key, new Body(current, bytes), (previous, built) -> previous.version() > built.version() ? previous : built);
+        return bytes;
+    }
+
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private record Body(long version, byte[] bytes) {
+    }
+}
@@ -0,0 +1,89 @@
+package org.proj3.currency_exchange.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Identical loads that overlap share one call: the first caller for a key runs the loader, callers arriving
+// while it runs wait for its result instead of queueing for a connection to run the same query
+public class SingleFlight<K, V> {
+    private final String name;
+    private final boolean enabled;
+    private final LongSupplier dataVersion;
+    private final ConcurrentMap<Flight<K>, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder sharedLoads = new LongAdder();
+
+    private SingleFlight(String name, boolean enabled, LongSupplier dataVersion) {
+        this.name = name;
+        this.enabled = enabled;
+        this.dataVersion = dataVersion;
+    }
+
+    // dataVersion has to change after every committed write: a caller only joins a load that started
+    // at its own version, so it never gets a result read before a write it has already seen
+    public static <K, V> SingleFlight<K, V> createInstance(String name, boolean enabled, LongSupplier dataVersion) {
+        return new SingleFlight<>(name, enabled, dataVersion);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getSharedLoads() {
+        return sharedLoads.sum();
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        if (!enabled) {
+            loads.increment();
+            return loader.get();
+        }
+
+        Flight<K> flight = new Flight<>(key, dataVersion.getAsLong());
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(flight, pending);
+        if (running != null) {
+            sharedLoads.increment();
+            return join(running);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.get();
+            pending.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flight, pending);
+        }
+    }
+
+    // Waiting callers see the loader's own exception, so error handling does not depend on who ran the query
+    private V join(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Flight<K>(K key, long version) {
+    }
+}
@@ -0,0 +1,5 @@
+package org.proj3.currency_exchange.candle;
+
+// Prices are rates in millionths; openTime is the start of the period in epoch milliseconds (UTC)
+public record Candle(long openTime, long openMicros, long highMicros, long lowMicros, long closeMicros, int ticks) {
+}
@@ -0,0 +1,89 @@
+package org.proj3.currency_exchange.candle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The latest candles of one pair at one resolution, oldest first. Arrays grow up to the resolution's capacity
+// and are then reused as a ring, so a tick updates or appends one slot and never rescans earlier ticks.
+// Not thread-safe, the owning pair serializes access.
+final class CandleSeries {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long periodMillis;
+    private final int capacity;
+
+    private long[] openTimes = new long[INITIAL_CAPACITY];
+    private long[] opens = new long[INITIAL_CAPACITY];
+    private long[] highs = new long[INITIAL_CAPACITY];
+    private long[] lows = new long[INITIAL_CAPACITY];
+    private long[] closes = new long[INITIAL_CAPACITY];
+    private int[] tickCounts = new int[INITIAL_CAPACITY];
+
+    private int first;
+    private int size;
+
+    CandleSeries(Resolution resolution) {
+        this.periodMillis = resolution.periodMillis();
+        this.capacity = resolution.capacity();
+    }
+
+    // Ticks arrive in time order, so a tick belongs either to the newest candle or to a new one
+    void add(long epochMillis, long rateMicros) {
+        long openTime = epochMillis - Math.floorMod(epochMillis, periodMillis);
+
+        if (size > 0) {
+            int last = slot(size - 1);
+            if (openTimes[last] == openTime) {
+                highs[last] = Math.max(highs[last], rateMicros);
+                lows[last] = Math.min(lows[last], rateMicros);
+                closes[last] = rateMicros;
+                tickCounts[last]++;
+                return;
+            }
+        }
+
+        int slot;
+        if (size < openTimes.length) {
+            slot = slot(size++);
+        } else if (openTimes.length < capacity) {
+            // Until the first wrap the candles sit at 0..size-1, a plain copy keeps them in order
+            grow(Math.min(openTimes.length * 2, capacity));
+            slot = size++;
+        } else {
+            slot = first;
+            first = (first + 1) % openTimes.length;
+        }
+
+        openTimes[slot] = openTime;
+        opens[slot] = rateMicros;
+        highs[slot] = rateMicros;
+        lows[slot] = rateMicros;
+        closes[slot] = rateMicros;
+        tickCounts[slot] = 1;
+    }
+
+    List<Candle> latest(int limit) {
+        int count = Math.min(limit, size);
+        List<Candle> candles = new ArrayList<>(count);
+        for (int i = size - count; i < size; i++) {
+            int slot = slot(i);
+            candles.add(new Candle(openTimes[slot], opens[slot], highs[slot], lows[slot], closes[slot],
+                    tickCounts[slot]));
+        }
+        return candles;
+    }
+
+    private int slot(int position) {
+        return (first + position) % openTimes.length;
+    }
+
+    private void grow(int newLength) {
+        openTimes = Arrays.copyOf(openTimes, newLength);
+        opens = Arrays.copyOf(opens, newLength);
+        highs = Arrays.copyOf(highs, newLength);
+        lows = Arrays.copyOf(lows, newLength);
+        closes = Arrays.copyOf(closes, newLength);
+        tickCounts = Arrays.copyOf(tickCounts, newLength);
+    }
+}
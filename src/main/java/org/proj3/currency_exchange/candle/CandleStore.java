@@ -0,0 +1,133 @@
+package org.proj3.currency_exchange.candle;
+
+import org.proj3.currency_exchange.util.FixedPointUtil;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Open/high/low/close candles of accepted rate updates. Each tick is appended to the pair's tick file and
+// folded into one candle per resolution; the files are only read back when a pair is first used after a restart
+public class CandleStore {
+    private static final Logger log = LoggerFactory.getLogger(CandleStore.class);
+
+    private static final String TICK_FILE_SUFFIX = ".ticks";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final ConcurrentMap<Integer, PairCandles> pairs = new ConcurrentHashMap<>();
+
+    private CandleStore(boolean enabled, Path directory) {
+        this.enabled = enabled;
+        this.directory = directory;
+    }
+
+    public static CandleStore createInstance(boolean enabled, Path directory) {
+        return new CandleStore(enabled, directory);
+    }
+
+    public void record(int packedBaseCode, int packedTargetCode, BigDecimal rate, long epochMillis) {
+        long rateMicros = FixedPointUtil.toScaled(rate, FixedPointUtil.MICRO_SCALE);
+        if (!enabled || rateMicros == FixedPointUtil.NOT_REPRESENTABLE) {
+            return;
+        }
+        int pair = PackedCodeUtil.pair(packedBaseCode, packedTargetCode);
+        pairs.computeIfAbsent(pair, this::load).record(epochMillis, rateMicros);
+    }
+
+    public List<Candle> candles(int packedBaseCode, int packedTargetCode, Resolution resolution, int limit) {
+        if (!enabled) {
+            return List.of();
+        }
+        int pair = PackedCodeUtil.pair(packedBaseCode, packedTargetCode);
+        PairCandles candles = pairs.get(pair);
+        if (candles == null) {
+            // A read does not create a tick file for a pair that was never updated
+            if (!Files.exists(tickFile(pair))) {
+                return List.of();
+            }
+            candles = pairs.computeIfAbsent(pair, this::load);
+        }
+        return candles.latest(resolution, limit);
+    }
+
+    // Closes the tick files when the application is undeployed; ticks recorded afterwards are kept in memory only
+    public void close() {
+        for (PairCandles candles : pairs.values()) {
+            candles.close();
+        }
+    }
+
+    private PairCandles load(int pair) {
+        PairCandles candles = new PairCandles();
+        Path file = tickFile(pair);
+        try {
+            Files.createDirectories(directory);
+            candles.tickLog = TickLog.open(file, candles::add);
+        } catch (IOException e) {
+            // The rate itself is committed, candles are still kept in memory for this run
+            log.warn("Cannot open tick file {}, candles of this pair will not survive a restart", file, e);
+        }
+        return candles;
+    }
+
+    private Path tickFile(int pair) {
+        return directory.resolve(PackedCodeUtil.unpack(PackedCodeUtil.base(pair))
+                                 + PackedCodeUtil.unpack(PackedCodeUtil.target(pair)) + TICK_FILE_SUFFIX);
+    }
+
+    private static final class PairCandles {
+        private final CandleSeries[] series = new CandleSeries[Resolution.values().length];
+        private TickLog tickLog;
+        private long lastMillis = Long.MIN_VALUE;
+
+        PairCandles() {
+            for (Resolution resolution : Resolution.values()) {
+                series[resolution.ordinal()] = new CandleSeries(resolution);
+            }
+        }
+
+        synchronized void record(long epochMillis, long rateMicros) {
+            // The wall clock may step back; ticks are kept in order so deltas stay small and candles only move forward
+            long tickMillis = Math.max(epochMillis, lastMillis);
+            if (tickLog != null) {
+                try {
+                    tickLog.append(tickMillis, rateMicros);
+                } catch (IOException e) {
+                    log.warn("Cannot append to a tick file, the tick is kept in memory only", e);
+                }
+            }
+            add(tickMillis, rateMicros);
+        }
+
+        synchronized List<Candle> latest(Resolution resolution, int limit) {
+            return series[resolution.ordinal()].latest(limit);
+        }
+
+        synchronized void close() {
+            if (tickLog == null) {
+                return;
+            }
+            try {
+                tickLog.close();
+            } catch (IOException e) {
+                log.warn("Cannot close a tick file", e);
+            }
+            tickLog = null;
+        }
+
+        private void add(long epochMillis, long rateMicros) {
+            lastMillis = epochMillis;
+            for (CandleSeries candleSeries : series) {
+                candleSeries.add(epochMillis, rateMicros);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.proj3.currency_exchange.candle;
+
+import java.util.concurrent.TimeUnit;
+
+public enum Resolution {
+    MINUTE("1m", TimeUnit.MINUTES.toMillis(1), 24 * 60),
+    HOUR("1h", TimeUnit.HOURS.toMillis(1), 30 * 24),
+    DAY("1d", TimeUnit.DAYS.toMillis(1), 2 * 366);
+
+    private static final String UNKNOWN_RESOLUTION = "Unknown candle resolution \"%s\". Use 1m, 1h or 1d.";
+
+    private final String label;
+    private final long periodMillis;
+    // Candles kept in memory per pair, older ones are dropped
+    private final int capacity;
+
+    Resolution(String label, long periodMillis, int capacity) {
+        this.label = label;
+        this.periodMillis = periodMillis;
+        this.capacity = capacity;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public long periodMillis() {
+        return periodMillis;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public static Resolution fromLabel(String label) {
+        for (Resolution resolution : values()) {
+            if (resolution.label.equals(label)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException(UNKNOWN_RESOLUTION.formatted(label));
+    }
+}
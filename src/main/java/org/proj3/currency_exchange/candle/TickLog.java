@@ -0,0 +1,163 @@
+package org.proj3.currency_exchange.candle;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Append-only, memory-mapped file of one pair's accepted rates. After a 16 byte header (magic, format version,
+// end of the written records) each tick is two zigzag varints: milliseconds since the previous tick and the
+// change of the rate in millionths, so a typical update takes 3 to 6 bytes instead of 16.
+// Not thread-safe, the owning pair serializes access.
+final class TickLog {
+    private static final int MAGIC = 0x5449434B;
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int END_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+
+    // Two varints of at most 10 bytes each
+    private static final int MAX_TICK_SIZE = 20;
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    private static final String NOT_A_TICK_FILE = "Not a tick file: %s";
+    private static final String CORRUPT_TICK_FILE = "Tick file is corrupt at offset %d: %s";
+    private static final String TICK_FILE_FULL = "Tick file is full: %s";
+
+    private final Path file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long lastMillis;
+    private long lastRateMicros;
+
+    private TickLog(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    interface TickConsumer {
+        void accept(long epochMillis, long rateMicros);
+    }
+
+    // Replays the ticks already in the file, in order, before returning it open for appends
+    static TickLog open(Path file, TickConsumer consumer) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            TickLog tickLog = new TickLog(file, channel);
+            if (channel.size() == 0) {
+                tickLog.initialize();
+            } else {
+                tickLog.replay(consumer);
+            }
+            return tickLog;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // The record is written before the end offset moves past it, a process that dies in between leaves
+    // the file at the previous tick. Nothing is forced to disk: the page cache outlives the process, and
+    // the database history remains the record of every rate.
+    void append(long epochMillis, long rateMicros) throws IOException {
+        if (end + MAX_TICK_SIZE > buffer.capacity()) {
+            long newSize = (long) buffer.capacity() * 2;
+            if (newSize > Integer.MAX_VALUE) {
+                throw new IOException(TICK_FILE_FULL.formatted(file));
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+        }
+
+        int position = writeVarLong(end, zigZag(epochMillis - lastMillis));
+        position = writeVarLong(position, zigZag(rateMicros - lastRateMicros));
+        buffer.putLong(END_OFFSET, position);
+
+        end = position;
+        lastMillis = epochMillis;
+        lastRateMicros = rateMicros;
+    }
+
+    // Java has no call to unmap a file: dropping the buffer lets the mapping go with the next collection
+    void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+
+    private void initialize() throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SIZE);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, FORMAT_VERSION);
+        buffer.putLong(END_OFFSET, HEADER_SIZE);
+        end = HEADER_SIZE;
+    }
+
+    private void replay(TickConsumer consumer) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+            throw new IOException(NOT_A_TICK_FILE.formatted(file));
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_SIZE));
+        long storedEnd = buffer.getLong(END_OFFSET);
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != FORMAT_VERSION
+            || storedEnd < HEADER_SIZE || storedEnd > size) {
+            throw new IOException(NOT_A_TICK_FILE.formatted(file));
+        }
+
+        int limit = (int) storedEnd;
+        int position = HEADER_SIZE;
+        while (position < limit) {
+            position = readTick(position, limit);
+            consumer.accept(lastMillis, lastRateMicros);
+        }
+        end = limit;
+    }
+
+    private int readTick(int position, int limit) throws IOException {
+        long millisDelta = 0;
+        long rateDelta = 0;
+        for (int field = 0; field < 2; field++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= limit || shift > 63) {
+                    throw new IOException(CORRUPT_TICK_FILE.formatted(position, file));
+                }
+                b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            if (field == 0) {
+                millisDelta = unZigZag(value);
+            } else {
+                rateDelta = unZigZag(value);
+            }
+        }
+        lastMillis += millisDelta;
+        lastRateMicros += rateDelta;
+        return position;
+    }
+
+    private int writeVarLong(int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put(position++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put(position++, (byte) value);
+        return position;
+    }
+
+    // Small changes in either direction become small unsigned numbers
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -1,32 +1,101 @@
 package org.proj3.currency_exchange.config;
 
+import org.proj3.currency_exchange.cache.RateCache;
+import org.proj3.currency_exchange.cache.RateRouter;
+import org.proj3.currency_exchange.cache.RateSnapshot;
+import org.proj3.currency_exchange.cache.ResponseCache;
+import org.proj3.currency_exchange.cache.SingleFlight;
+import org.proj3.currency_exchange.candle.CandleStore;
 import org.proj3.currency_exchange.dao.impl.CurrencyDao;
 import org.proj3.currency_exchange.dao.impl.ExchangeRateDao;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
 import org.proj3.currency_exchange.mapper.CurrencyMapper;
 import org.proj3.currency_exchange.mapper.ExchangeRateMapper;
+import org.proj3.currency_exchange.metrics.DatabaseMetrics;
+import org.proj3.currency_exchange.metrics.MetricsRegistry;
 import org.proj3.currency_exchange.service.CurrencyService;
 import org.proj3.currency_exchange.service.ExchangeRateService;
 import org.proj3.currency_exchange.service.ExchangeService;
+import org.proj3.currency_exchange.stream.RateFeed;
+import org.proj3.currency_exchange.util.PropertiesUtil;
 
 import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 public class AppConfig {
-    private static final DataSource DATA_SOURCE = DatabaseConfig.getDataSource();
+    private static final String HUB_CURRENCIES_KEY = "exchange.hubCurrencies";
+    private static final String MAX_HOPS_KEY = "exchange.maxHops";
+    private static final String SNAPSHOT_ENABLED_KEY = "exchange.snapshot.enabled";
+    private static final String RESPONSE_CACHE_ENABLED_KEY = "response.cache.enabled";
+    private static final String METRICS_ENABLED_KEY = "metrics.enabled";
+    private static final String CANDLES_ENABLED_KEY = "candles.enabled";
+    private static final String CANDLES_DIRECTORY_KEY = "candles.directory";
+    private static final String SINGLE_FLIGHT_ENABLED_KEY = "singleFlight.enabled";
+    private static final String STREAM_HISTORY_SIZE_KEY = "stream.historySize";
+    private static final String STREAM_SUBSCRIBER_BUFFER_SIZE_KEY = "stream.subscriberBufferSize";
+    private static final String STREAM_HEARTBEAT_SECONDS_KEY = "stream.heartbeatSeconds";
 
-    private static final CurrencyDao CURRENCY_DAO = CurrencyDao.createInstance(DATA_SOURCE);
-    private static final ExchangeRateDao EXCHANGE_RATE_DAO = ExchangeRateDao.createInstance(DATA_SOURCE);
+    private static final boolean METRICS_ENABLED = Boolean.parseBoolean(PropertiesUtil.get(METRICS_ENABLED_KEY, "true"));
+
+    private static final DatabaseMetrics DATABASE_METRICS = DatabaseConfig.createDatabaseMetrics(METRICS_ENABLED);
+
+    private static final DataSource WRITE_DATA_SOURCE = DatabaseConfig.getWriteDataSource(DATABASE_METRICS);
+    private static final DataSource READ_DATA_SOURCE = DatabaseConfig.getReadDataSource(DATABASE_METRICS);
+
+    private static final CurrencyDao CURRENCY_DAO =
+            CurrencyDao.createInstance(READ_DATA_SOURCE, WRITE_DATA_SOURCE, DATABASE_METRICS);
+    private static final ExchangeRateDao EXCHANGE_RATE_DAO =
+            ExchangeRateDao.createInstance(READ_DATA_SOURCE, WRITE_DATA_SOURCE, DATABASE_METRICS);
+
+    private static final RateRouter RATE_ROUTER = RateRouter.createInstance(
+            getHubCurrencies(), Integer.parseInt(PropertiesUtil.get(MAX_HOPS_KEY, "3")));
+
+    private static final ResponseCache RESPONSE_CACHE =
+            ResponseCache.createInstance(Boolean.parseBoolean(PropertiesUtil.get(RESPONSE_CACHE_ENABLED_KEY, "true")));
+
+    // Every committed write moves the response cache version, so it also scopes which loads may be shared
+    private static final boolean SINGLE_FLIGHT_ENABLED =
+            Boolean.parseBoolean(PropertiesUtil.get(SINGLE_FLIGHT_ENABLED_KEY, "true"));
+    private static final SingleFlight<Integer, Optional<ExchangeRateEntity>> EXCHANGE_RATE_LOADS =
+            SingleFlight.createInstance("exchangeRate", SINGLE_FLIGHT_ENABLED, RESPONSE_CACHE::version);
+    private static final SingleFlight<RateCache.RouteKey, RateSnapshot> ROUTE_LOADS =
+            SingleFlight.createInstance("routeRates", SINGLE_FLIGHT_ENABLED, RESPONSE_CACHE::version);
+
+    private static final RateCache RATE_CACHE = RateCache.createInstance(CURRENCY_DAO, EXCHANGE_RATE_DAO, RATE_ROUTER,
+            Boolean.parseBoolean(PropertiesUtil.get(SNAPSHOT_ENABLED_KEY, "true")), ROUTE_LOADS);
+
+    private static final CandleStore CANDLE_STORE = CandleStore.createInstance(
+            Boolean.parseBoolean(PropertiesUtil.get(CANDLES_ENABLED_KEY, "true")),
+            Path.of(PropertiesUtil.get(CANDLES_DIRECTORY_KEY,
+                    Path.of(System.getProperty("java.io.tmpdir"), "currency_exchange", "ticks").toString())));
+
+    private static final RateFeed RATE_FEED = RateFeed.createInstance(
+            Integer.parseInt(PropertiesUtil.get(STREAM_HISTORY_SIZE_KEY, "1024")),
+            Integer.parseInt(PropertiesUtil.get(STREAM_SUBSCRIBER_BUFFER_SIZE_KEY, "256")),
+            Long.parseLong(PropertiesUtil.get(STREAM_HEARTBEAT_SECONDS_KEY, "15")));
+
+    private static final MetricsRegistry METRICS_REGISTRY =
+            MetricsRegistry.createInstance(METRICS_ENABLED, DATABASE_METRICS, List.of(EXCHANGE_RATE_LOADS, ROUTE_LOADS),
+                    RATE_FEED);
 
     private static final CurrencyMapper CURRENCY_MAPPER = CurrencyMapper.getInstance();
     private static final ExchangeRateMapper EXCHANGE_RATE_MAPPER = ExchangeRateMapper.getInstance();
 
     private static final CurrencyService CURRENCY_SERVICE =
-            CurrencyService.createInstance(CURRENCY_DAO,CURRENCY_MAPPER);
+            CurrencyService.createInstance(CURRENCY_DAO, RATE_CACHE, RESPONSE_CACHE, CURRENCY_MAPPER);
 
     private static final ExchangeRateService EXCHANGE_RATE_SERVICE =
-            ExchangeRateService.createInstance(EXCHANGE_RATE_DAO, CURRENCY_DAO, EXCHANGE_RATE_MAPPER);
+            ExchangeRateService.createInstance(EXCHANGE_RATE_DAO, CURRENCY_DAO, RATE_CACHE, RESPONSE_CACHE,
+                    CANDLE_STORE, RATE_FEED, EXCHANGE_RATE_MAPPER, EXCHANGE_RATE_LOADS);
+
+    private static final ExecutorService EXCHANGE_EXECUTOR = ExecutorConfig.createExchangeExecutor();
 
     private static final ExchangeService EXCHANGE_SERVICE =
-            ExchangeService.createInstance(EXCHANGE_RATE_DAO, CURRENCY_MAPPER);
+            ExchangeService.createInstance(RATE_CACHE, RATE_ROUTER, CURRENCY_MAPPER, EXCHANGE_EXECUTOR);
 
     public static CurrencyService getCurrencyService() {
         return CURRENCY_SERVICE;
@@ -40,4 +109,33 @@ public class AppConfig {
         return EXCHANGE_SERVICE;
     }
 
+    public static ResponseCache getResponseCache() {
+        return RESPONSE_CACHE;
+    }
+
+    public static RateFeed getRateFeed() {
+        return RATE_FEED;
+    }
+
+    public static MetricsRegistry getMetricsRegistry() {
+        return METRICS_REGISTRY;
+    }
+
+    // Stops the threads started here and closes the tick files and pools; the application is not used afterwards
+    public static void shutdown() {
+        RATE_FEED.close();
+        EXCHANGE_EXECUTOR.shutdownNow();
+        CANDLE_STORE.close();
+        DatabaseConfig.close(READ_DATA_SOURCE);
+        DatabaseConfig.close(WRITE_DATA_SOURCE);
+    }
+
+    private static List<String> getHubCurrencies() {
+        return Arrays.stream(PropertiesUtil.get(HUB_CURRENCIES_KEY, "USD").split(","))
+                .map(String::trim)
+                .filter(code -> !code.isEmpty())
+                .map(String::toUpperCase)
+                .toList();
+    }
+
 }
@@ -0,0 +1,15 @@
+package org.proj3.currency_exchange.config;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+// Without it every redeploy would leave the old pools and feed threads running, holding on to the old classes
+@WebListener
+public class AppContextListener implements ServletContextListener {
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        AppConfig.shutdown();
+    }
+}
@@ -2,27 +2,100 @@ package org.proj3.currency_exchange.config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.proj3.currency_exchange.dao.StatementCachingDataSource;
+import org.proj3.currency_exchange.metrics.DatabaseMetrics;
+import org.proj3.currency_exchange.metrics.SlowQueryLog;
 import org.proj3.currency_exchange.util.PropertiesUtil;
+import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 
 import javax.sql.DataSource;
 
 public class DatabaseConfig {
     private static final String URL_KEY = "db.url";
-    private static final String MAX_POOL_SIZE_KEY = "db.MaximumPoolSize";
+    private static final String READ_MAX_POOL_SIZE_KEY = "db.read.MaximumPoolSize";
+    private static final String WRITE_MAX_POOL_SIZE_KEY = "db.write.MaximumPoolSize";
     private static final String IDLE_TIME_OUT_KEY = "db.IdleTimeout";
     private static final String POOL_NAME_KEY = "db.PoolName";
 
-    public static DataSource getDataSource() {
-        SQLiteDataSource sqliteDataSource = new SQLiteDataSource();
+    private static final String JOURNAL_MODE_KEY = "db.pragma.journal_mode";
+    private static final String SYNCHRONOUS_KEY = "db.pragma.synchronous";
+    private static final String BUSY_TIMEOUT_KEY = "db.pragma.busy_timeout";
+    private static final String CACHE_SIZE_KEY = "db.pragma.cache_size";
+    private static final String MMAP_SIZE_KEY = "db.pragma.mmap_size";
+
+    private static final String SLOW_QUERY_THRESHOLD_KEY = "db.slowQuery.thresholdMillis";
+    private static final String SLOW_QUERY_MAX_ENTRIES_KEY = "db.slowQuery.maxEntriesPerMinute";
+
+    private static final String READ_POOL_SUFFIX = "-read";
+    private static final String WRITE_POOL_SUFFIX = "-write";
+
+    public static DatabaseMetrics createDatabaseMetrics(boolean enabled) {
+        SlowQueryLog slowQueryLog = SlowQueryLog.createInstance(
+                Long.parseLong(PropertiesUtil.get(SLOW_QUERY_THRESHOLD_KEY, "-1")),
+                Integer.parseInt(PropertiesUtil.get(SLOW_QUERY_MAX_ENTRIES_KEY, "10")));
+        return DatabaseMetrics.createInstance(enabled, slowQueryLog);
+    }
+
+    // The writer must be created first: it switches the database file to WAL and migrates the schema
+    // before any reader opens it
+    public static DataSource getWriteDataSource(DatabaseMetrics databaseMetrics) {
+        SQLiteConfig sqliteConfig = createSqliteConfig();
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.JOURNAL_MODE, PropertiesUtil.get(JOURNAL_MODE_KEY, "WAL"));
+
+        // SQLite allows a single writer at a time, more connections would only wait on the database lock
+        int maxPoolSize = Integer.parseInt(PropertiesUtil.get(WRITE_MAX_POOL_SIZE_KEY, "1"));
+        DataSource dataSource = createDataSource(sqliteConfig, maxPoolSize, false, WRITE_POOL_SUFFIX, databaseMetrics);
+        DatabaseMigrations.migrate(dataSource);
+        return dataSource;
+    }
+
+    public static DataSource getReadDataSource(DatabaseMetrics databaseMetrics) {
+        SQLiteConfig sqliteConfig = createSqliteConfig();
+        sqliteConfig.setReadOnly(true);
+
+        String defaultPoolSize = String.valueOf(Runtime.getRuntime().availableProcessors());
+        int maxPoolSize = Integer.parseInt(PropertiesUtil.get(READ_MAX_POOL_SIZE_KEY, defaultPoolSize));
+        return createDataSource(sqliteConfig, maxPoolSize, true, READ_POOL_SUFFIX, databaseMetrics);
+    }
+
+    // Closes the pool and its connections, when the application is undeployed
+    public static void close(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            hikariDataSource.close();
+        }
+    }
+
+    private static SQLiteConfig createSqliteConfig() {
+        SQLiteConfig sqliteConfig = new SQLiteConfig();
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.SYNCHRONOUS, PropertiesUtil.get(SYNCHRONOUS_KEY, "NORMAL"));
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.BUSY_TIMEOUT, PropertiesUtil.get(BUSY_TIMEOUT_KEY, "5000"));
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.CACHE_SIZE, PropertiesUtil.get(CACHE_SIZE_KEY, "-8000"));
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, PropertiesUtil.get(MMAP_SIZE_KEY, "0"));
+        return sqliteConfig;
+    }
+
+    private static DataSource createDataSource(SQLiteConfig sqliteConfig, int maxPoolSize, boolean readOnly,
+                                               String poolNameSuffix, DatabaseMetrics databaseMetrics) {
+        SQLiteDataSource sqliteDataSource = new SQLiteDataSource(sqliteConfig);
         sqliteDataSource.setUrl(PropertiesUtil.get(URL_KEY));
 
+        String poolName = PropertiesUtil.get(POOL_NAME_KEY) + poolNameSuffix;
+        StatementCachingDataSource statementCachingDataSource =
+                StatementCachingDataSource.wrap(sqliteDataSource, databaseMetrics);
+        databaseMetrics.addStatementCache(poolName, statementCachingDataSource);
+
         HikariConfig config = new HikariConfig();
-        config.setDataSource(sqliteDataSource);
+        config.setDataSource(statementCachingDataSource);
 
-        config.setMaximumPoolSize(Integer.parseInt(PropertiesUtil.get(MAX_POOL_SIZE_KEY)));
+        // Hikari resets the read-only flag on every connection, it has to match the one the driver opened with
+        config.setReadOnly(readOnly);
+        config.setMaximumPoolSize(maxPoolSize);
         config.setIdleTimeout(Integer.parseInt(PropertiesUtil.get(IDLE_TIME_OUT_KEY)));
-        config.setPoolName(PropertiesUtil.get(POOL_NAME_KEY));
+        config.setPoolName(poolName);
+        if (databaseMetrics.isEnabled()) {
+            config.setMetricsTrackerFactory(databaseMetrics);
+        }
 
         return new HikariDataSource(config);
     }
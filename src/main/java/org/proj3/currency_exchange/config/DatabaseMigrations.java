@@ -0,0 +1,121 @@
+package org.proj3.currency_exchange.config;
+
+import org.proj3.currency_exchange.exception.DaoException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Schema changes applied on startup, tracked in PRAGMA user_version: migration N runs once, when the version is below N
+public final class DatabaseMigrations {
+    private static final String MIGRATION_ERROR = "Failed to apply database migration %d: %s";
+
+    // Epoch milliseconds with the fractional seconds SQLite keeps for 'now'
+    private static final String NOW_MILLIS = "CAST(unixepoch('subsec') * 1000 AS INTEGER)";
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            // Append-only rate history. Without a rowid the table is its primary key index, so the rate in effect
+            // at an instant is one seek on (pair, effective_from) no matter how many rows a pair has
+            new Migration(1, "exchange rate history", List.of(
+                    """
+                    CREATE TABLE exchangeRateHistory
+                    (
+                        base_currency_id   INTEGER        not null
+                            references currencies (ID)
+                                on delete cascade,
+                        target_currency_id INTEGER        not null
+                            references currencies (ID)
+                                on delete cascade,
+                        effective_from     INTEGER        not null,
+                        rate               DECIMAL(12, 6) not null,
+                        primary key (base_currency_id, target_currency_id, effective_from)
+                    ) WITHOUT ROWID
+                    """,
+                    // Triggers run inside the INSERT or UPDATE statement, so a rate and its history row are
+                    // committed or rolled back together; a second change within the same millisecond replaces the first
+                    """
+                    CREATE TRIGGER exchangeRates_history_insert
+                    AFTER INSERT ON exchangeRates
+                    BEGIN
+                        INSERT OR REPLACE INTO exchangeRateHistory (base_currency_id, target_currency_id, effective_from, rate)
+                        VALUES (NEW.base_currency_id, NEW.target_currency_id, %s, NEW.rate);
+                    END
+                    """.formatted(NOW_MILLIS),
+                    """
+                    CREATE TRIGGER exchangeRates_history_update
+                    AFTER UPDATE OF rate ON exchangeRates
+                    BEGIN
+                        INSERT OR REPLACE INTO exchangeRateHistory (base_currency_id, target_currency_id, effective_from, rate)
+                        VALUES (NEW.base_currency_id, NEW.target_currency_id, %s, NEW.rate);
+                    END
+                    """.formatted(NOW_MILLIS),
+                    // When existing rates were set is unknown, their history starts with the migration
+                    """
+                    INSERT INTO exchangeRateHistory (base_currency_id, target_currency_id, effective_from, rate)
+                    SELECT base_currency_id, target_currency_id, %s, rate
+                    FROM exchangeRates
+                    """.formatted(NOW_MILLIS)
+            )),
+            // Every write stamps the rate with the next version, so a client that knows the version it last saw
+            // can ask for the rows changed since. Existing rows are numbered by id. The unique index serves both
+            // the next version (max) and the range of changed rows
+            new Migration(2, "exchange rate change versions", List.of(
+                    "ALTER TABLE exchangeRates ADD COLUMN change_version INTEGER NOT NULL DEFAULT 0",
+                    "UPDATE exchangeRates SET change_version = id",
+                    "CREATE UNIQUE INDEX exchangeRates_change_version ON exchangeRates (change_version)"
+            )),
+            // Indexes for listing the rates of one currency page by page. SQLite ends every index entry with the
+            // row id, so each is ordered by (currency, id) and serves both the filter and the id cursor
+            new Migration(3, "exchange rate currency indexes", List.of(
+                    "CREATE INDEX exchangeRates_base_currency ON exchangeRates (base_currency_id)",
+                    "CREATE INDEX exchangeRates_target_currency ON exchangeRates (target_currency_id)"
+            ))
+    );
+
+    private DatabaseMigrations() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static void migrate(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            int version = readUserVersion(connection);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() > version) {
+                    apply(connection, migration);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DaoException("Failed to migrate the database", e);
+        }
+    }
+
+    private static int readUserVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    // The schema change and the version bump are one transaction, a failed migration leaves the database untouched
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.statements()) {
+                statement.execute(sql);
+            }
+            statement.execute("PRAGMA user_version = " + migration.version());
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new DaoException(MIGRATION_ERROR.formatted(migration.version(), migration.description()), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private record Migration(int version, String description, List<String> statements) {
+    }
+}
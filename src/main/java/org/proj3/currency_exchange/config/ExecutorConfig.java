@@ -0,0 +1,62 @@
+package org.proj3.currency_exchange.config;
+
+import org.proj3.currency_exchange.util.PropertiesUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExecutorConfig {
+    private static final Logger log = LoggerFactory.getLogger(ExecutorConfig.class);
+
+    private static final String THREADS_KEY = "exchange.async.threads";
+    private static final String QUEUE_CAPACITY_KEY = "exchange.async.queueCapacity";
+    private static final String VIRTUAL_THREADS_KEY = "exchange.async.virtualThreads";
+
+    private static final String THREAD_NAME_PREFIX = "exchange-";
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    // Exchanges that have to read the database run here instead of on container threads. Threads and queue are
+    // both bounded, so when they are full a request is turned away at once instead of queueing without limit
+    // behind a connection pool that is only as large as the number of cores
+    public static ExecutorService createExchangeExecutor() {
+        String defaultThreads = String.valueOf(Runtime.getRuntime().availableProcessors());
+        int threads = Integer.parseInt(PropertiesUtil.get(THREADS_KEY, defaultThreads));
+        int queueCapacity = Integer.parseInt(PropertiesUtil.get(QUEUE_CAPACITY_KEY, "256"));
+        boolean virtualThreads = Boolean.parseBoolean(PropertiesUtil.get(VIRTUAL_THREADS_KEY, "false"));
+
+        ThreadFactory threadFactory = virtualThreads ? virtualThreadFactory() : null;
+        if (threadFactory == null) {
+            threadFactory = platformThreadFactory();
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Virtual threads need Java 21 while the application is built for 17, so they are looked up at runtime
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME_PREFIX, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not available on Java {}, using platform threads",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.proj3.currency_exchange.dao;
+
+public record Query(String id, String sql) {
+}
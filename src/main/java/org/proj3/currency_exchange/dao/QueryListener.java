@@ -0,0 +1,15 @@
+package org.proj3.currency_exchange.dao;
+
+// Called on the thread that runs the query, so implementations must be cheap and thread-safe
+public interface QueryListener {
+    QueryListener NONE = new QueryListener() {
+    };
+
+    // Time spent waiting for a pooled connection before running the query, or the first query of a unit of work
+    default void onConnectionAcquired(Query query, long acquireNanos) {
+    }
+
+    // Bind values are indexed from 0 and only valid during the call
+    default void onExecuted(Query query, Object[] binds, long executionNanos) {
+    }
+}
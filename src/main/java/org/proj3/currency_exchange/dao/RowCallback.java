@@ -0,0 +1,8 @@
+package org.proj3.currency_exchange.dao;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface RowCallback<T> {
+    void accept(T row) throws IOException;
+}
@@ -0,0 +1,62 @@
+package org.proj3.currency_exchange.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StatementCache {
+    private final Connection connection;
+    private final QueryListener queryListener;
+    // Shared by the caches of one data source, so each pool reports its own counts
+    private final LongAdder hits;
+    private final LongAdder misses;
+    // A pooled connection is used by one thread at a time, so no synchronization is needed here
+    private final Map<String, CachedStatement> statements = new HashMap<>();
+
+    StatementCache(Connection connection, QueryListener queryListener, LongAdder hits, LongAdder misses) {
+        this.connection = connection;
+        this.queryListener = queryListener;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    public PreparedStatement prepare(Query query) throws SQLException {
+        CachedStatement statement = statements.get(query.id());
+        if (statement != null && !statement.isClosed()) {
+            hits.increment();
+            statement.clearParameters();
+            return statement;
+        }
+
+        misses.increment();
+        statement = new CachedStatement(this, query, connection.prepareStatement(query.sql()), queryListener);
+        statements.put(query.id(), statement);
+        return statement;
+    }
+
+    // After a failed execution the driver leaves the statement unusable
+    void evict(Query query) {
+        CachedStatement statement = statements.remove(query.id());
+        if (statement != null) {
+            closeQuietly(statement);
+        }
+    }
+
+    void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+    }
+
+    private void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // The statement is discarded either way
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.proj3.currency_exchange.dao;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+public class StatementCachingDataSource implements DataSource {
+    private final DataSource dataSource;
+    private final QueryListener queryListener;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private StatementCachingDataSource(DataSource dataSource, QueryListener queryListener) {
+        this.dataSource = dataSource;
+        this.queryListener = queryListener;
+    }
+
+    public static StatementCachingDataSource wrap(DataSource dataSource, QueryListener queryListener) {
+        return new StatementCachingDataSource(dataSource, queryListener);
+    }
+
+    // Prepared statements reused from a connection's cache
+    public long getHits() {
+        return hits.sum();
+    }
+
+    // Prepared statements compiled because none was cached
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return withStatementCache(dataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return withStatementCache(dataSource.getConnection(username, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return dataSource.isWrapperFor(iface);
+    }
+
+    private Connection withStatementCache(Connection connection) {
+        return new StatementCachingConnection(connection, new StatementCache(connection, queryListener, hits, misses));
+    }
+}
@@ -1,9 +1,14 @@
 package org.proj3.currency_exchange.dao.impl;
 
 import org.proj3.currency_exchange.dao.Dao;
+import org.proj3.currency_exchange.dao.Query;
+import org.proj3.currency_exchange.dao.QueryListener;
+import org.proj3.currency_exchange.dao.RowCallback;
+import org.proj3.currency_exchange.dao.StatementCache;
 import org.proj3.currency_exchange.exception.DaoException;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -13,29 +18,42 @@ import java.util.List;
 import java.util.Optional;
 
 public abstract class AbstractDao <T, P> implements Dao<T, P> {
-    protected final DataSource dataSource;
+    protected static final int STREAM_FETCH_SIZE = 256;
+    private static final int BATCH_SIZE = 1000;
 
-    protected AbstractDao(DataSource dataSource) {
-        this.dataSource = dataSource;
+    // SELECTs go to the read-only pool, INSERTs and UPDATEs to the single-connection writer pool
+    protected final DataSource readDataSource;
+    protected final DataSource writeDataSource;
+    private final QueryListener queryListener;
+
+    protected AbstractDao(DataSource readDataSource, DataSource writeDataSource, QueryListener queryListener) {
+        this.readDataSource = readDataSource;
+        this.writeDataSource = writeDataSource;
+        this.queryListener = queryListener;
     }
 
     public List<T> findAll() {
         return findAll(getFindAllQuery(), getFindAllErrorMessage());
     }
 
+    public void streamAll(RowCallback<T> callback) throws IOException {
+        stream(getFindAllQuery(), getFindAllErrorMessage(), callback);
+    }
+
     public abstract Optional<T> find(P param);
 
     public abstract T save(T entity);
 
-    protected List<T> findAll(String sql, String errorMessage) {
+    protected List<T> findAll(Query query, String errorMessage) {
         List<T> entities = new ArrayList<>();
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection(readDataSource, query)) {
+            PreparedStatement preparedStatement = prepare(connection, query);
 
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                entities.add(mapRowToEntity(resultSet));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    entities.add(mapRowToEntity(resultSet));
+                }
             }
         } catch (SQLException e) {
             throw new DaoException(errorMessage, e);
@@ -43,7 +61,76 @@ public abstract class AbstractDao <T, P> implements Dao<T, P> {
         return entities;
     }
 
+    // Rows are handed to the callback while the cursor is open, nothing is collected in memory
+    protected void stream(Query query, String errorMessage, RowCallback<T> callback) throws IOException {
+        try (Connection connection = getConnection(readDataSource, query)) {
+            PreparedStatement preparedStatement = prepare(connection, query);
+            preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    callback.accept(mapRowToEntity(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DaoException(errorMessage, e);
+        }
+    }
+
+    // All rows are written in one transaction, sent to the driver in chunks so a large import never holds
+    // every bound row at once. Returns the update count of each row in order; on any failure nothing is written
+    protected <E> int[] executeBatch(Connection connection, PreparedStatement preparedStatement, List<E> rows,
+                                     StatementBinder<E> binder) throws SQLException {
+        int[] updateCounts = new int[rows.size()];
+        connection.setAutoCommit(false);
+        try {
+            int written = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                binder.bind(preparedStatement, rows.get(i));
+                preparedStatement.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == rows.size() - 1) {
+                    int[] chunk = preparedStatement.executeBatch();
+                    System.arraycopy(chunk, 0, updateCounts, written, chunk.length);
+                    written += chunk.length;
+                }
+            }
+            connection.commit();
+            return updateCounts;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            // A failed execution already closed the cached statement, otherwise its pending rows must not leak
+            // into the next batch on this connection
+            if (!preparedStatement.isClosed()) {
+                preparedStatement.clearBatch();
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // The wait for a pooled connection is reported under the query the connection was taken for
+    protected Connection getConnection(DataSource dataSource, Query query) throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = dataSource.getConnection();
+        queryListener.onConnectionAcquired(query, System.nanoTime() - start);
+        return connection;
+    }
+
+    // Statements are cached per pooled connection and must not be closed by the caller, only their result sets
+    protected PreparedStatement prepare(Connection connection, Query query) throws SQLException {
+        if (connection.isWrapperFor(StatementCache.class)) {
+            return connection.unwrap(StatementCache.class).prepare(query);
+        }
+        return connection.prepareStatement(query.sql());
+    }
+
+    @FunctionalInterface
+    protected interface StatementBinder<E> {
+        void bind(PreparedStatement preparedStatement, E row) throws SQLException;
+    }
+
     protected abstract T mapRowToEntity(ResultSet resultSet) throws SQLException;
-    protected abstract String getFindAllQuery();
+    protected abstract Query getFindAllQuery();
     protected abstract String getFindAllErrorMessage();
 }
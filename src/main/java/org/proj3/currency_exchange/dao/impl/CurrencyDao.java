@@ -1,5 +1,7 @@
 package org.proj3.currency_exchange.dao.impl;
 
+import org.proj3.currency_exchange.dao.Query;
+import org.proj3.currency_exchange.dao.QueryListener;
 import org.proj3.currency_exchange.entity.CurrencyEntity;
 import org.proj3.currency_exchange.exception.DaoException;
 import org.proj3.currency_exchange.exception.EntityExistsException;
@@ -8,47 +10,81 @@ import org.sqlite.SQLiteException;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class CurrencyDao extends AbstractDao<CurrencyEntity, String> {
     private static final String FINDING_ALL_ERROR = "Error while fetching currencies";
     private static final String FINDING_ERROR = "Error finding currency by code";
+    private static final String FINDING_PAGE_ERROR = "Error while fetching a page of currencies";
     private static final String NO_ROWS_AFFECTED = "Saving currency failed, no rows affected.";
     private static final String RETRIEVING_ID_FAILED = "Failed to retrieve generated ID.";
     private static final String ERROR_SAVING_CURRENCY = "Error saving currency to the database";
+    private static final String ERROR_IMPORTING_CURRENCIES = "Error importing currencies, none were saved";
 
-    private static final String FIND_ALL_SQL = """
+    private static final Query FIND_ALL = new Query("currency.findAll", """
                 SELECT id, code, full_name, sign
                 FROM currencies
-                """;
+                """);
 
-    private static final String SAVE_SQL = """
+    private static final Query FIND_BY_CODE = new Query("currency.findByCode", """
+                SELECT id, code, full_name, sign
+                FROM currencies WHERE code = ?
+                """);
+
+    // Pages are read in code order from the unique index on code. The cursor is the last code of the previous page,
+    // so every page is one seek into the index however deep it is; a prefix only narrows the same range
+    private static final Query FIND_PAGE = new Query("currency.findPage", """
+                SELECT id, code, full_name, sign
+                FROM currencies
+                WHERE code > ?
+                ORDER BY code
+                LIMIT ?
+                """);
+
+    private static final Query FIND_PAGE_BY_PREFIX = new Query("currency.findPageByPrefix", """
+                SELECT id, code, full_name, sign
+                FROM currencies
+                WHERE code > ? AND code >= ? AND code < ?
+                ORDER BY code
+                LIMIT ?
+                """);
+
+    private static final Query SAVE = new Query("currency.save", """
+            INSERT INTO currencies (code, full_name, sign)
+            VALUES (?, ?, ?)
+            """);
+
+    // A code that already exists is left as it is and reports no affected row
+    private static final Query SAVE_IF_ABSENT = new Query("currency.saveIfAbsent", """
             INSERT INTO currencies (code, full_name, sign)
             VALUES (?, ?, ?)
-            """;
+            ON CONFLICT (code) DO NOTHING
+            """);
 
-    private CurrencyDao(DataSource dataSource) {
-        super(dataSource);
+    private static final Query LAST_INSERT_ID = new Query("currency.lastInsertId", "SELECT last_insert_rowid()");
+
+    private CurrencyDao(DataSource readDataSource, DataSource writeDataSource, QueryListener queryListener) {
+        super(readDataSource, writeDataSource, queryListener);
     }
 
-    public static CurrencyDao createInstance(DataSource dataSource) {
-        return new CurrencyDao(dataSource);
+    public static CurrencyDao createInstance(DataSource readDataSource, DataSource writeDataSource,
+                                       QueryListener queryListener) {
+        return new CurrencyDao(readDataSource, writeDataSource, queryListener);
     }
 
     public Optional<CurrencyEntity> find(String code) {
         Optional<CurrencyEntity> currency = Optional.empty();
-        String sql = """
-                SELECT id, code, full_name, sign
-                FROM currencies WHERE code = ?
-                """;
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection(readDataSource, FIND_BY_CODE)) {
+            PreparedStatement preparedStatement = prepare(connection, FIND_BY_CODE);
 
             preparedStatement.setString(1, code);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                currency = Optional.of(mapRowToEntity(resultSet));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    currency = Optional.of(mapRowToEntity(resultSet));
+                }
             }
 
         } catch (SQLException e) {
@@ -57,9 +93,37 @@ public class CurrencyDao extends AbstractDao<CurrencyEntity, String> {
         return currency;
     }
 
+    // Currencies ordered by code after afterCode ("" for the first page); a null prefix means all codes
+    public List<CurrencyEntity> findPage(String codePrefix, String afterCode, int limit) {
+        Query query = codePrefix == null ? FIND_PAGE : FIND_PAGE_BY_PREFIX;
+        List<CurrencyEntity> currencies = new ArrayList<>();
+
+        try (Connection connection = getConnection(readDataSource, query)) {
+            PreparedStatement preparedStatement = prepare(connection, query);
+
+            int index = 1;
+            preparedStatement.setString(index++, afterCode);
+            if (codePrefix != null) {
+                // The codes with a prefix are the range from the prefix up to the prefix with its last letter advanced
+                int last = codePrefix.length() - 1;
+                preparedStatement.setString(index++, codePrefix);
+                preparedStatement.setString(index++, codePrefix.substring(0, last) + (char) (codePrefix.charAt(last) + 1));
+            }
+            preparedStatement.setInt(index, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    currencies.add(mapRowToEntity(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DaoException(FINDING_PAGE_ERROR, e);
+        }
+        return currencies;
+    }
+
     public CurrencyEntity save(CurrencyEntity currency) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(SAVE_SQL)) {
+        try (Connection connection = getConnection(writeDataSource, SAVE)) {
+            PreparedStatement preparedStatement = prepare(connection, SAVE);
 
             preparedStatement.setString(1, currency.getCode());
             preparedStatement.setString(2, currency.getFullName());
@@ -70,10 +134,7 @@ public class CurrencyDao extends AbstractDao<CurrencyEntity, String> {
                 throw new DaoException(NO_ROWS_AFFECTED);
             }
 
-            String lastIdSQL = "SELECT last_insert_rowid()";
-
-            try (Statement statement = connection.createStatement();
-                 ResultSet resultSet = statement.executeQuery(lastIdSQL)) {
+            try (ResultSet resultSet = prepare(connection, LAST_INSERT_ID).executeQuery()) {
                 if (resultSet.next()) {
                     int generatedId = resultSet.getInt(1);
                     currency.setId(generatedId);
@@ -93,6 +154,24 @@ public class CurrencyDao extends AbstractDao<CurrencyEntity, String> {
         }
     }
 
+    // One transaction for all rows; a row counts 0 when its code was already there
+    public int[] saveAll(List<CurrencyEntity> currencies) {
+        if (currencies.isEmpty()) {
+            return new int[0];
+        }
+        try (Connection connection = getConnection(writeDataSource, SAVE_IF_ABSENT)) {
+            PreparedStatement preparedStatement = prepare(connection, SAVE_IF_ABSENT);
+
+            return executeBatch(connection, preparedStatement, currencies, (statement, currency) -> {
+                statement.setString(1, currency.getCode());
+                statement.setString(2, currency.getFullName());
+                statement.setString(3, currency.getSign());
+            });
+        } catch (SQLException e) {
+            throw new DaoException(ERROR_IMPORTING_CURRENCIES, e);
+        }
+    }
+
     protected CurrencyEntity mapRowToEntity(ResultSet resultSet) throws SQLException {
         CurrencyEntity currency = new CurrencyEntity(
                 resultSet.getString("code"),
@@ -102,8 +181,8 @@ public class CurrencyDao extends AbstractDao<CurrencyEntity, String> {
         return currency;
     }
 
-    protected String getFindAllQuery() {
-        return FIND_ALL_SQL;
+    protected Query getFindAllQuery() {
+        return FIND_ALL;
     }
 
     protected String getFindAllErrorMessage() {
@@ -1,17 +1,24 @@
 package org.proj3.currency_exchange.dao.impl;
 
+import org.proj3.currency_exchange.dao.Query;
+import org.proj3.currency_exchange.dao.QueryListener;
+import org.proj3.currency_exchange.dao.RowCallback;
 import org.proj3.currency_exchange.entity.CurrencyEntity;
 import org.proj3.currency_exchange.entity.ExchangeRateEntity;
 import org.proj3.currency_exchange.exception.DaoException;
 import org.proj3.currency_exchange.exception.EntityExistsException;
-import org.proj3.currency_exchange.exception.NotFoundException;
 import org.sqlite.SQLiteErrorCode;
 import org.sqlite.SQLiteException;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class ExchangeRateDao extends AbstractDao<ExchangeRateEntity, String> {
 
@@ -19,6 +26,7 @@ public class ExchangeRateDao extends AbstractDao<ExchangeRateEntity, String> {
             SELECT
                 er.id AS exchange_rate_id,
                 er.rate,
+                er.change_version,
                 bc.id AS base_currency_id,
                 bc.code AS base_currency_code,
                 bc.full_name AS base_currency_name,
@@ -36,53 +44,182 @@ public class ExchangeRateDao extends AbstractDao<ExchangeRateEntity, String> {
             WHERE bc.code = ? AND tc.code = ?
             """;
 
-    private static final String FIND_BY_CURRENCY_ID_WHERE = """
-            WHERE bc.id = ? AND tc.id = ?
+    // Every stored rate whose both currencies are in the JSON array: the subgraph a route can use
+    private static final String FIND_BETWEEN_WHERE = """
+            WHERE bc.code IN (SELECT value FROM json_each(?))
+              AND tc.code IN (SELECT value FROM json_each(?))
             """;
 
-    private static final String SAVE_SQL = """
-            INSERT INTO exchangeRates (base_currency_id, target_currency_id, rate)
-            VALUES (?, ?, ?)
+    // Rows written after a change version, oldest change first. The range is read from the change_version index,
+    // so the cost follows the number of changed rows rather than the number of rates
+    private static final String FIND_CHANGED_SINCE_WHERE = """
+            WHERE er.change_version > ?
+            ORDER BY er.change_version
             """;
 
-    private static final String UPDATE_SQL = """
-            UPDATE exchangeRates
-            SET rate = ?
-            WHERE base_currency_id = ? AND target_currency_id = ?
+    // Pages are read in id order. The cursor is the last id of the previous page, so a page starts with a seek and
+    // costs the same however deep it is. A currency filter reads its own index, whose entries end with the row id
+    // and therefore come in the same order; the currency subqueries are evaluated once per statement
+    private static final String PAGE_AFTER_ID = """
+            er.id > ?
+            ORDER BY er.id
+            LIMIT ?
+            """;
+    private static final String BASE_CURRENCY_IS = "er.base_currency_id = (SELECT id FROM currencies WHERE code = ?)\n";
+    private static final String TARGET_CURRENCY_IS = "er.target_currency_id = (SELECT id FROM currencies WHERE code = ?)\n";
+
+    // Every write takes the next version in the same statement. Writes are serialized by the database, so versions
+    // are committed in increasing order and a reader never sees a version before all lower ones
+    private static final String NEXT_CHANGE_VERSION = "(SELECT coalesce(max(change_version), 0) + 1 FROM exchangeRates)";
+
+    // The same rows as FIND_ALL_BETWEEN with the rate in effect at an instant. Each rate is one seek on the
+    // history primary key (pair, effective_from); pairs that did not exist yet have no rate and are skipped
+    private static final String FIND_BETWEEN_AS_OF = """
+            SELECT *
+            FROM (
+                SELECT
+                    er.id AS exchange_rate_id,
+                    (SELECT h.rate
+                     FROM exchangeRateHistory h
+                     WHERE h.base_currency_id = er.base_currency_id
+                       AND h.target_currency_id = er.target_currency_id
+                       AND h.effective_from <= ?
+                     ORDER BY h.effective_from DESC
+                     LIMIT 1) AS rate,
+                    er.change_version,
+                    bc.id AS base_currency_id,
+                    bc.code AS base_currency_code,
+                    bc.full_name AS base_currency_name,
+                    bc.sign AS base_currency_sign,
+                    tc.id AS target_currency_id,
+                    tc.code AS target_currency_code,
+                    tc.full_name AS target_currency_name,
+                    tc.sign AS target_currency_sign
+                FROM exchangeRates er
+                JOIN currencies bc ON er.base_currency_id = bc.id
+                JOIN currencies tc ON er.target_currency_id = tc.id
+                WHERE bc.code IN (SELECT value FROM json_each(?))
+                  AND tc.code IN (SELECT value FROM json_each(?))
+            )
+            WHERE rate IS NOT NULL
+            """;
+
+    // The written row with the same columns as BASE_QUERY. Currencies are read with primary key subqueries,
+    // RETURNING cannot join
+    private static final String RETURNING_COLUMNS = """
+            RETURNING
+                id AS exchange_rate_id,
+                rate,
+                change_version,
+                base_currency_id,
+                (SELECT code FROM currencies WHERE id = base_currency_id) AS base_currency_code,
+                (SELECT full_name FROM currencies WHERE id = base_currency_id) AS base_currency_name,
+                (SELECT sign FROM currencies WHERE id = base_currency_id) AS base_currency_sign,
+                target_currency_id,
+                (SELECT code FROM currencies WHERE id = target_currency_id) AS target_currency_code,
+                (SELECT full_name FROM currencies WHERE id = target_currency_id) AS target_currency_name,
+                (SELECT sign FROM currencies WHERE id = target_currency_id) AS target_currency_sign
             """;
 
+    private static final Query FIND_ALL = new Query("exchangeRate.findAll", BASE_QUERY);
+
+    private static final Query FIND_BY_CODES = new Query("exchangeRate.findByCodes", BASE_QUERY + FIND_BY_CODE_WHERE);
+
+    private static final Query FIND_ALL_BETWEEN = new Query("exchangeRate.findAllBetween", BASE_QUERY + FIND_BETWEEN_WHERE);
+
+    private static final Query FIND_ALL_BETWEEN_AS_OF = new Query("exchangeRate.findAllBetweenAsOf", FIND_BETWEEN_AS_OF);
+
+    private static final Query FIND_CHANGED_SINCE = new Query("exchangeRate.findChangedSince",
+            BASE_QUERY + FIND_CHANGED_SINCE_WHERE);
+
+    private static final Query FIND_PAGE = new Query("exchangeRate.findPage",
+            BASE_QUERY + "WHERE " + PAGE_AFTER_ID);
+
+    private static final Query FIND_PAGE_BY_BASE = new Query("exchangeRate.findPageByBase",
+            BASE_QUERY + "WHERE " + BASE_CURRENCY_IS + "AND " + PAGE_AFTER_ID);
+
+    private static final Query FIND_PAGE_BY_TARGET = new Query("exchangeRate.findPageByTarget",
+            BASE_QUERY + "WHERE " + TARGET_CURRENCY_IS + "AND " + PAGE_AFTER_ID);
+
+    private static final Query FIND_PAGE_BY_PAIR = new Query("exchangeRate.findPageByPair",
+            BASE_QUERY + "WHERE " + BASE_CURRENCY_IS + "AND " + TARGET_CURRENCY_IS + "AND " + PAGE_AFTER_ID);
+
+    private static final Query LAST_CHANGE_VERSION = new Query("exchangeRate.lastChangeVersion",
+            "SELECT coalesce(max(change_version), 0) FROM exchangeRates");
+
+
+    private static final Query SAVE = new Query("exchangeRate.save", """
+            INSERT INTO exchangeRates (base_currency_id, target_currency_id, rate, change_version)
+            VALUES (?, ?, ?, %s)
+            RETURNING id, change_version
+            """.formatted(NEXT_CHANGE_VERSION));
+
+    // Currency ids are resolved inside the statement, so an update is one round trip. No row comes back when
+    // the pair or one of its currencies does not exist
+    private static final Query UPDATE_BY_CODES = new Query("exchangeRate.updateByCodes", """
+            UPDATE exchangeRates
+            SET rate = ?, change_version = %s
+            WHERE base_currency_id = (SELECT id FROM currencies WHERE code = ?)
+              AND target_currency_id = (SELECT id FROM currencies WHERE code = ?)
+            """.formatted(NEXT_CHANGE_VERSION) + RETURNING_COLUMNS);
+
+    // Inserts the pair or replaces its rate in one statement. No row comes back when a currency does not exist
+    private static final Query SAVE_OR_UPDATE_BY_CODES = new Query("exchangeRate.saveOrUpdateByCodes", """
+            INSERT INTO exchangeRates (base_currency_id, target_currency_id, rate, change_version)
+            SELECT bc.id, tc.id, ?, %s
+            FROM currencies bc, currencies tc
+            WHERE bc.code = ? AND tc.code = ?
+            ON CONFLICT (base_currency_id, target_currency_id) DO UPDATE
+            SET rate = excluded.rate, change_version = excluded.change_version
+            """.formatted(NEXT_CHANGE_VERSION) + RETURNING_COLUMNS);
+
+    // New pairs are inserted, existing ones updated. An unchanged rate is not written, so it adds no history
+    // row and reports no affected row
+    private static final Query SAVE_OR_UPDATE = new Query("exchangeRate.saveOrUpdate", """
+            INSERT INTO exchangeRates (base_currency_id, target_currency_id, rate, change_version)
+            VALUES (?, ?, ?, %s)
+            ON CONFLICT (base_currency_id, target_currency_id) DO UPDATE
+            SET rate = excluded.rate, change_version = excluded.change_version
+            WHERE rate <> excluded.rate
+            """.formatted(NEXT_CHANGE_VERSION));
+
     private static final String FINDING_ALL_ERROR = "Error while finding exchange rates.";
     private static final String FINDING_ERROR = "Error finding exchange rate by code pair.";
+    private static final String FINDING_BETWEEN_ERROR = "Error finding exchange rates between currencies.";
+    private static final String FINDING_AS_OF_ERROR = "Error finding historical exchange rates between currencies.";
+    private static final String FINDING_CHANGED_ERROR = "Error finding changed exchange rates.";
+    private static final String FINDING_PAGE_ERROR = "Error finding a page of exchange rates.";
     private static final String NO_ROWS_AFFECTED_ERROR = "Saving exchange rate failed, no rows affected.";
-    private static final String NO_EXCHANGE_RATE = "There is no exchange rate for the currency pair.";
-    private static final String GENERATED_ID_RETRIEVING_ERROR = "Failed to retrieve generated ID.";
     private static final String SAVING_ERROR = "Error saving exchange rate.";
-    private static final String UPDATE_ERROR_STATEMENT = "Failed to update exchange rate. No rows in the database are affected.";
     private static final String UPDATE_ERROR = "Failed to update exchange rate. Database error";
+    private static final String SAVING_OR_UPDATING_ERROR = "Failed to save or update exchange rate. Database error";
+    private static final String IMPORTING_ERROR = "Error importing exchange rates, none were saved.";
 
-    private ExchangeRateDao(DataSource dataSource) {
-        super(dataSource);
+    private ExchangeRateDao(DataSource readDataSource, DataSource writeDataSource, QueryListener queryListener) {
+        super(readDataSource, writeDataSource, queryListener);
     }
 
-    public static ExchangeRateDao createInstance(DataSource dataSource) {
-        return new ExchangeRateDao(dataSource);
+    public static ExchangeRateDao createInstance(DataSource readDataSource, DataSource writeDataSource,
+                                       QueryListener queryListener) {
+        return new ExchangeRateDao(readDataSource, writeDataSource, queryListener);
     }
 
     public Optional<ExchangeRateEntity> find(String currencyPair) {
-        String baseCurrencyCode = currencyPair.substring(0, 3);
-        String targetCurrencyCode = currencyPair.substring(3);
-        String sql = BASE_QUERY + FIND_BY_CODE_WHERE;
+        return find(currencyPair.substring(0, 3), currencyPair.substring(3));
+    }
 
+    public Optional<ExchangeRateEntity> find(String baseCurrencyCode, String targetCurrencyCode) {
         Optional<ExchangeRateEntity> exchangeRate = Optional.empty();
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection(readDataSource, FIND_BY_CODES)) {
+            PreparedStatement preparedStatement = prepare(connection, FIND_BY_CODES);
 
             preparedStatement.setString(1, baseCurrencyCode);
             preparedStatement.setString(2, targetCurrencyCode);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                exchangeRate = Optional.of(mapRowToEntity(resultSet));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    exchangeRate = Optional.of(mapRowToEntity(resultSet));
+                }
             }
 
         } catch (SQLException e) {
@@ -91,31 +228,128 @@ public class ExchangeRateDao extends AbstractDao<ExchangeRateEntity, String> {
         return exchangeRate;
     }
 
-    public ExchangeRateEntity save(ExchangeRateEntity exchangeRate) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(SAVE_SQL)) {
+    public List<ExchangeRateEntity> findAllBetween(Collection<String> currencyCodes) {
+        String codes = toJsonArray(currencyCodes);
 
-            preparedStatement.setInt(1, exchangeRate.getBaseCurrency().getId());
-            preparedStatement.setInt(2, exchangeRate.getTargetCurrency().getId());
-            preparedStatement.setBigDecimal(3, exchangeRate.getRate());
+        List<ExchangeRateEntity> exchangeRates = new ArrayList<>();
 
-            int affectedRows = preparedStatement.executeUpdate();
+        try (Connection connection = getConnection(readDataSource, FIND_ALL_BETWEEN)) {
+            PreparedStatement preparedStatement = prepare(connection, FIND_ALL_BETWEEN);
 
-            if (affectedRows == 0) {
-                throw new DaoException(NO_ROWS_AFFECTED_ERROR);
+            preparedStatement.setString(1, codes);
+            preparedStatement.setString(2, codes);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    exchangeRates.add(mapRowToEntity(resultSet));
+                }
             }
 
-            String lastIdSQL = "SELECT last_insert_rowid()";
+        } catch (SQLException e) {
+            throw new DaoException(FINDING_BETWEEN_ERROR, e);
+        }
+        return exchangeRates;
+    }
 
-            try (Statement statement = connection.createStatement();
-                 ResultSet resultSet = statement.executeQuery(lastIdSQL)) {
+    public List<ExchangeRateEntity> findAllBetweenAsOf(Collection<String> currencyCodes, long epochMillis) {
+        String codes = toJsonArray(currencyCodes);
 
-                if (resultSet.next()) {
-                    exchangeRate.setId(resultSet.getInt(1));
-                } else {
-                    throw new DaoException(GENERATED_ID_RETRIEVING_ERROR);
+        List<ExchangeRateEntity> exchangeRates = new ArrayList<>();
+
+        try (Connection connection = getConnection(readDataSource, FIND_ALL_BETWEEN_AS_OF)) {
+            PreparedStatement preparedStatement = prepare(connection, FIND_ALL_BETWEEN_AS_OF);
+
+            preparedStatement.setLong(1, epochMillis);
+            preparedStatement.setString(2, codes);
+            preparedStatement.setString(3, codes);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    exchangeRates.add(mapRowToEntity(resultSet));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new DaoException(FINDING_AS_OF_ERROR, e);
+        }
+        return exchangeRates;
+    }
+
+    // Rates ordered by id after afterId (0 for the first page); a null code leaves that side of the pair open
+    public List<ExchangeRateEntity> findPage(String baseCurrencyCode, String targetCurrencyCode, int afterId,
+                                             int limit) {
+        Query query;
+        if (baseCurrencyCode != null) {
+            query = targetCurrencyCode != null ? FIND_PAGE_BY_PAIR : FIND_PAGE_BY_BASE;
+        } else {
+            query = targetCurrencyCode != null ? FIND_PAGE_BY_TARGET : FIND_PAGE;
+        }
+
+        List<ExchangeRateEntity> exchangeRates = new ArrayList<>();
+
+        try (Connection connection = getConnection(readDataSource, query)) {
+            PreparedStatement preparedStatement = prepare(connection, query);
+
+            int index = 1;
+            if (baseCurrencyCode != null) {
+                preparedStatement.setString(index++, baseCurrencyCode);
+            }
+            if (targetCurrencyCode != null) {
+                preparedStatement.setString(index++, targetCurrencyCode);
+            }
+            preparedStatement.setInt(index++, afterId);
+            preparedStatement.setInt(index, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    exchangeRates.add(mapRowToEntity(resultSet));
                 }
             }
+
+        } catch (SQLException e) {
+            throw new DaoException(FINDING_PAGE_ERROR, e);
+        }
+        return exchangeRates;
+    }
+
+    // Streams the rates written after a change version and returns the version the caller is now up to date with.
+    // The latest version is read before the rows: a write landing in between is streamed and reported by its own
+    // version, and without rows the latest version is still reported when the caller's version is ahead of it
+    public long streamChangedSince(long changeVersion, RowCallback<ExchangeRateEntity> callback) throws IOException {
+        try (Connection connection = getConnection(readDataSource, FIND_CHANGED_SINCE)) {
+            long lastChangeVersion;
+            try (ResultSet resultSet = prepare(connection, LAST_CHANGE_VERSION).executeQuery()) {
+                lastChangeVersion = resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+
+            PreparedStatement preparedStatement = prepare(connection, FIND_CHANGED_SINCE);
+            preparedStatement.setLong(1, changeVersion);
+            preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    ExchangeRateEntity exchangeRate = mapRowToEntity(resultSet);
+                    lastChangeVersion = Math.max(lastChangeVersion, exchangeRate.getChangeVersion());
+                    callback.accept(exchangeRate);
+                }
+            }
+            return lastChangeVersion;
+        } catch (SQLException e) {
+            throw new DaoException(FINDING_CHANGED_ERROR, e);
+        }
+    }
+
+    public ExchangeRateEntity save(ExchangeRateEntity exchangeRate) {
+        try (Connection connection = getConnection(writeDataSource, SAVE)) {
+            PreparedStatement preparedStatement = prepare(connection, SAVE);
+
+            preparedStatement.setInt(1, exchangeRate.getBaseCurrency().getId());
+            preparedStatement.setInt(2, exchangeRate.getTargetCurrency().getId());
+            preparedStatement.setBigDecimal(3, exchangeRate.getRate());
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new DaoException(NO_ROWS_AFFECTED_ERROR);
+                }
+                exchangeRate.setId(resultSet.getInt("id"));
+                exchangeRate.setChangeVersion(resultSet.getLong("change_version"));
+            }
             return exchangeRate;
         } catch (SQLException e) {
             if (e instanceof SQLiteException exception) {
@@ -130,36 +364,53 @@ public class ExchangeRateDao extends AbstractDao<ExchangeRateEntity, String> {
         }
     }
 
-    public ExchangeRateEntity update(int baseCurrencyId, int targetCurrencyId, BigDecimal exchangeRate) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_SQL)) {
-
-            preparedStatement.setBigDecimal(1, exchangeRate);
-            preparedStatement.setInt(2, baseCurrencyId);
-            preparedStatement.setInt(3, targetCurrencyId);
-
-            int affectedRows = preparedStatement.executeUpdate();
-            if (affectedRows == 0) {
-                throw new NotFoundException(NO_EXCHANGE_RATE);
-            }
-
-            String selectSql = BASE_QUERY + FIND_BY_CURRENCY_ID_WHERE;
+    public Optional<ExchangeRateEntity> update(String baseCurrencyCode, String targetCurrencyCode,
+                                               BigDecimal exchangeRate) {
+        return writeReturning(UPDATE_BY_CODES, baseCurrencyCode, targetCurrencyCode, exchangeRate, UPDATE_ERROR);
+    }
 
-            try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+    public Optional<ExchangeRateEntity> saveOrUpdate(String baseCurrencyCode, String targetCurrencyCode,
+                                                     BigDecimal exchangeRate) {
+        return writeReturning(SAVE_OR_UPDATE_BY_CODES, baseCurrencyCode, targetCurrencyCode, exchangeRate,
+                SAVING_OR_UPDATING_ERROR);
+    }
 
-                statement.setInt(1, baseCurrencyId);
-                statement.setInt(2, targetCurrencyId);
+    // The statement commits when its result set is closed, after the row has been read
+    private Optional<ExchangeRateEntity> writeReturning(Query query, String baseCurrencyCode, String targetCurrencyCode,
+                                                        BigDecimal exchangeRate, String errorMessage) {
+        try (Connection connection = getConnection(writeDataSource, query)) {
+            PreparedStatement preparedStatement = prepare(connection, query);
 
-                ResultSet resultSet = statement.executeQuery();
+            preparedStatement.setBigDecimal(1, exchangeRate);
+            preparedStatement.setString(2, baseCurrencyCode);
+            preparedStatement.setString(3, targetCurrencyCode);
 
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet.next()) {
-                    return mapRowToEntity(resultSet);
-                } else {
-                    throw new DaoException(UPDATE_ERROR_STATEMENT);
+                    return Optional.of(mapRowToEntity(resultSet));
                 }
+                return Optional.empty();
             }
         } catch (SQLException e) {
-            throw new DaoException(UPDATE_ERROR, e);
+            throw new DaoException(errorMessage, e);
+        }
+    }
+
+    // One transaction for all rows; a row counts 0 when the pair already had that rate
+    public int[] saveOrUpdateAll(List<ExchangeRateEntity> exchangeRates) {
+        if (exchangeRates.isEmpty()) {
+            return new int[0];
+        }
+        try (Connection connection = getConnection(writeDataSource, SAVE_OR_UPDATE)) {
+            PreparedStatement preparedStatement = prepare(connection, SAVE_OR_UPDATE);
+
+            return executeBatch(connection, preparedStatement, exchangeRates, (statement, exchangeRate) -> {
+                statement.setInt(1, exchangeRate.getBaseCurrency().getId());
+                statement.setInt(2, exchangeRate.getTargetCurrency().getId());
+                statement.setBigDecimal(3, exchangeRate.getRate());
+            });
+        } catch (SQLException e) {
+            throw new DaoException(IMPORTING_ERROR, e);
         }
     }
 
@@ -173,10 +424,17 @@ public class ExchangeRateDao extends AbstractDao<ExchangeRateEntity, String> {
 //        System.out.println();
 //    }
 
+    private String toJsonArray(Collection<String> currencyCodes) {
+        return currencyCodes.stream()
+                .map(code -> "\"" + code + "\"")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
     protected ExchangeRateEntity mapRowToEntity(ResultSet resultSet) throws SQLException {
         ExchangeRateEntity rateEntity = new ExchangeRateEntity();
         rateEntity.setId(resultSet.getInt("exchange_rate_id"));
         rateEntity.setRate(resultSet.getBigDecimal("rate"));
+        rateEntity.setChangeVersion(resultSet.getLong("change_version"));
 
         CurrencyEntity baseCurrency = new CurrencyEntity(
                 resultSet.getString("base_currency_code"),
@@ -198,8 +456,8 @@ public class ExchangeRateDao extends AbstractDao<ExchangeRateEntity, String> {
         return rateEntity;
     }
 
-    protected String getFindAllQuery() {
-        return BASE_QUERY;
+    protected Query getFindAllQuery() {
+        return FIND_ALL;
     }
 
     protected String getFindAllErrorMessage() {
@@ -0,0 +1,7 @@
+package org.proj3.currency_exchange.dto;
+
+import java.math.BigDecimal;
+
+public record CandleResponseDto(long openTime, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close,
+                                int ticks) {
+}
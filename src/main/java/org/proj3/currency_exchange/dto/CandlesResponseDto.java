@@ -0,0 +1,7 @@
+package org.proj3.currency_exchange.dto;
+
+import java.util.List;
+
+public record CandlesResponseDto(String baseCurrencyCode, String targetCurrencyCode, String resolution,
+                                 List<CandleResponseDto> candles) {
+}
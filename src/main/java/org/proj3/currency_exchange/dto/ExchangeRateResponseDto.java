@@ -7,6 +7,7 @@ public class ExchangeRateResponseDto {
     private CurrencyResponseDto baseCurrency;
     private CurrencyResponseDto targetCurrency;
     private BigDecimal rate;
+    private long changeVersion;
 
     public int getId() {
         return id;
@@ -39,4 +40,12 @@ public class ExchangeRateResponseDto {
     public void setRate(BigDecimal rate) {
         this.rate = rate;
     }
+
+    public long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
 }
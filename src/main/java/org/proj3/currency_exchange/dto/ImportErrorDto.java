@@ -0,0 +1,4 @@
+package org.proj3.currency_exchange.dto;
+
+public record ImportErrorDto(int row, String message) {
+}
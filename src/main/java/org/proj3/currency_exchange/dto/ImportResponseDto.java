@@ -0,0 +1,7 @@
+package org.proj3.currency_exchange.dto;
+
+import java.util.List;
+
+// imported rows were written, unchanged rows matched what was already stored, failed rows were rejected
+public record ImportResponseDto(int rows, int imported, int unchanged, int failed, List<ImportErrorDto> errors) {
+}
@@ -0,0 +1,7 @@
+package org.proj3.currency_exchange.dto;
+
+import java.util.List;
+
+// One page of a list; nextCursor asks for the following page and is null on the last one
+public record PageDto<T>(List<T> items, String nextCursor) {
+}
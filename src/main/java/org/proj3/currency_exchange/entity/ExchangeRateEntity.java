@@ -7,6 +7,7 @@ public class ExchangeRateEntity {
     private CurrencyEntity baseCurrency;
     private CurrencyEntity targetCurrency;
     private BigDecimal rate;
+    private long changeVersion;
 
     public ExchangeRateEntity() {
 
@@ -50,6 +51,14 @@ public class ExchangeRateEntity {
         this.rate = rate;
     }
 
+    public long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
+
     @Override
     public String toString() {
         return "ExchangeRateEntity{" +
@@ -57,6 +66,7 @@ public class ExchangeRateEntity {
                ", baseCurrency=" + baseCurrency +
                ", targetCurrency=" + targetCurrency +
                ", rate=" + rate +
+               ", changeVersion=" + changeVersion +
                '}';
     }
 }
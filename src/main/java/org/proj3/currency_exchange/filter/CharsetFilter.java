@@ -7,8 +7,9 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 @WebFilter(value = {
-        "/currencies", "/currency/*", "/exchangeRate/*", "/exchangeRates", "/exchange"
-})
+        "/currencies", "/currency/*", "/exchangeRate/*", "/exchangeRates", "/exchange", "/exchange/batch",
+        "/currencies/import", "/exchangeRates/import"
+}, asyncSupported = true)
 public class CharsetFilter implements Filter {
 
     @Override
@@ -0,0 +1,95 @@
+package org.proj3.currency_exchange.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.proj3.currency_exchange.cache.ResponseCache;
+import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.util.PropertiesUtil;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+// Declared in web.xml after CorsFilter: a 304 ends the chain here, so the CORS headers have to be set already
+public class ConditionalGetFilter extends HttpFilter {
+    private static final String CACHE_CONTROL_KEY = "response.cacheControl";
+
+    // Versions restart from zero with the application, so the ETag also names the run it belongs to
+    private static final String BOOT_ID = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final ResponseCache responseCache = AppConfig.getResponseCache();
+    private final String cacheControl = PropertiesUtil.get(CACHE_CONTROL_KEY, "no-cache");
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse res, FilterChain chain) throws IOException, ServletException {
+        if (!"GET".equals(req.getMethod()) && !"HEAD".equals(req.getMethod())) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        // Read before the body is built: a write in between only makes the ETag older than the body, never newer
+        String etag = "\"" + BOOT_ID + "-" + responseCache.version() + "\"";
+
+        if (matches(req.getHeader("If-None-Match"), etag)) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            setCacheHeaders(res, etag);
+            return;
+        }
+
+        chain.doFilter(req, new TaggingResponse(res, etag));
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void setCacheHeaders(HttpServletResponse res, String etag) {
+        res.setHeader("ETag", etag);
+        res.setHeader("Cache-Control", cacheControl);
+        res.setHeader("Vary", "Accept");
+    }
+
+    // Headers are added when the body is first written, so only successful responses carry the ETag
+    private class TaggingResponse extends HttpServletResponseWrapper {
+        private final String etag;
+
+        TaggingResponse(HttpServletResponse response, String etag) {
+            super(response);
+            this.etag = etag;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            tagIfSuccessful();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            tagIfSuccessful();
+            return super.getWriter();
+        }
+
+        private void tagIfSuccessful() {
+            if (getStatus() == HttpServletResponse.SC_OK && !isCommitted()) {
+                setCacheHeaders((HttpServletResponse) getResponse(), etag);
+            }
+        }
+    }
+}
@@ -6,8 +6,9 @@ import jakarta.servlet.annotation.WebFilter;
 import java.io.IOException;
 
 @WebFilter(value = {
-        "/currencies", "/currency/*", "/exchangeRate/*", "/exchangeRates", "/exchange"
-})
+        "/currencies", "/currency/*", "/exchangeRate/*", "/exchangeRates", "/exchange", "/exchange/batch",
+        "/currencies/import", "/exchangeRates/import"
+}, asyncSupported = true)
 public class ContentTypeFilter implements Filter {
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
@@ -6,44 +6,82 @@ import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.proj3.currency_exchange.config.AppConfig;
 import org.proj3.currency_exchange.dto.ErrorResponse;
 import org.proj3.currency_exchange.exception.*;
+import org.proj3.currency_exchange.metrics.MetricsRegistry;
 import org.proj3.currency_exchange.util.JsonUtil;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 
 @WebFilter(value = {
-        "/currency/*", "/exchangeRate/*", "/exchangeRates", "/exchange"
-})
+        "/currencies", "/currency/*", "/exchangeRate/*", "/exchangeRates", "/exchange", "/exchange/batch",
+        "/currencies/import", "/exchangeRates/import"
+}, asyncSupported = true)
 public class ExceptionHandlingFilter extends HttpFilter {
+    public static final int UNHANDLED = -1;
+
+    private final MetricsRegistry metricsRegistry = AppConfig.getMetricsRegistry();
+
     @Override
     protected void doFilter(HttpServletRequest req, HttpServletResponse res, FilterChain chain) throws IOException, ServletException {
         try {
             super.doFilter(req, res, chain);
 
-        } catch (DaoException e) {
-            sendErrorResponse(res, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
-
-        } catch (IllegalCurrencyCodeException | IllegalArgumentException | IllegalPararmeterException e) {
-            sendErrorResponse(res, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
-
-        } catch (NotFoundException e) {
-            sendErrorResponse(res, HttpServletResponse.SC_NOT_FOUND, e.getMessage());
-
-        } catch (EntityExistsException e) {
-            sendErrorResponse(res, HttpServletResponse.SC_CONFLICT, e.getMessage());
-
         } catch (ServletException e) {
             throw new RuntimeException(e);
+
+        } catch (RuntimeException e) {
+            int status = statusOf(e);
+            if (status == UNHANDLED) {
+                throw e;
+            }
+            recordError(req, e);
+            sendErrorResponse(res, status, e.getMessage());
         }
     }
 
+    // Also used by servlets that finish a request on another thread, after this filter has returned
+    public static int statusOf(Throwable error) {
+        if (error instanceof DaoException) {
+            return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+        if (error instanceof IllegalCurrencyCodeException || error instanceof IllegalArgumentException
+            || error instanceof IllegalPararmeterException) {
+            return HttpServletResponse.SC_BAD_REQUEST;
+        }
+        if (error instanceof NotFoundException) {
+            return HttpServletResponse.SC_NOT_FOUND;
+        }
+        if (error instanceof EntityExistsException) {
+            return HttpServletResponse.SC_CONFLICT;
+        }
+        return UNHANDLED;
+    }
+
+    private void recordError(HttpServletRequest req, RuntimeException e) {
+        metricsRegistry.recordError(req.getHttpServletMapping().getPattern(), e);
+    }
+
     private void sendErrorResponse(HttpServletResponse resp, int status, String message) throws IOException {
+        if (resp.isCommitted()) {
+            // Part of a streamed body is already sent, only an aborted connection tells the client it is incomplete
+            throw new IOException(message);
+        }
+
         ErrorResponse errorResponse = new ErrorResponse(message);
         String json = JsonUtil.toJson(errorResponse);
 
+        resp.resetBuffer();
+        resp.setContentType("application/json");
         resp.setStatus(status);
-        resp.getWriter().write(json);
+        try {
+            resp.getWriter().write(json);
+        } catch (IllegalStateException e) {
+            // The servlet already took the output stream for a streamed body
+            resp.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+        }
     }
 }
@@ -0,0 +1,82 @@
+package org.proj3.currency_exchange.filter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.metrics.MetricsRegistry;
+
+import java.io.IOException;
+
+// Declared in web.xml rather than with @WebFilter: annotated filters run in no defined order,
+// and this one has to wrap the others to see the status ExceptionHandlingFilter sets
+public class MetricsFilter extends HttpFilter {
+    private final MetricsRegistry metricsRegistry = AppConfig.getMetricsRegistry();
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse res, FilterChain chain) throws IOException, ServletException {
+        if (!metricsRegistry.isEnabled()) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        // The servlet mapping pattern, not the path, so /exchangeRate/USDEUR and /exchangeRate/EURGBP share a series
+        String route = req.getHttpServletMapping().getPattern();
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            chain.doFilter(req, res);
+        } catch (IOException | ServletException | RuntimeException e) {
+            // Not turned into an error response by ExceptionHandlingFilter, the container answers with a 500
+            failed = true;
+            metricsRegistry.recordError(route, e);
+            throw e;
+        } finally {
+            if (!failed && req.isAsyncStarted()) {
+                // The response is finished on another thread, the request ends when its async context completes
+                req.getAsyncContext().addListener(new AsyncTimer(req.getMethod(), route, res, start));
+            } else {
+                int status = failed && res.getStatus() < HttpServletResponse.SC_BAD_REQUEST
+                        ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                        : res.getStatus();
+                metricsRegistry.recordRequest(req.getMethod(), route, status, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private class AsyncTimer implements AsyncListener {
+        private final String method;
+        private final String route;
+        private final HttpServletResponse response;
+        private final long start;
+
+        AsyncTimer(String method, String route, HttpServletResponse response, long start) {
+            this.method = method;
+            this.route = route;
+            this.response = response;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            metricsRegistry.recordRequest(method, route, response.getStatus(), System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            metricsRegistry.recordError(route, event.getThrowable());
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
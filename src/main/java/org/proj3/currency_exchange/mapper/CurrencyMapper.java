@@ -1,5 +1,6 @@
 package org.proj3.currency_exchange.mapper;
 
+import org.proj3.currency_exchange.cache.CachedCurrency;
 import org.proj3.currency_exchange.dto.CurrencyRequestDto;
 import org.proj3.currency_exchange.dto.CurrencyResponseDto;
 import org.proj3.currency_exchange.entity.CurrencyEntity;
@@ -32,4 +33,15 @@ public class CurrencyMapper {
 
         return dto;
     }
+
+    public CurrencyResponseDto toDto(CachedCurrency currency) {
+        CurrencyResponseDto dto = new CurrencyResponseDto();
+
+        dto.setId(currency.id());
+        dto.setCode(currency.code());
+        dto.setName(currency.fullName());
+        dto.setSign(currency.sign());
+
+        return dto;
+    }
 }
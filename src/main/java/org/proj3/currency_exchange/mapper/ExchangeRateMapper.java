@@ -29,6 +29,7 @@ public class ExchangeRateMapper {
         dto.setBaseCurrency(baseCurrencyResponseDto);
         dto.setTargetCurrency(targetCurrencyResponseDto);
         dto.setRate(exchangeRateEntity.getRate());
+        dto.setChangeVersion(exchangeRateEntity.getChangeVersion());
 
         return dto;
     }
@@ -0,0 +1,180 @@
+package org.proj3.currency_exchange.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.proj3.currency_exchange.dao.Query;
+import org.proj3.currency_exchange.dao.QueryListener;
+import org.proj3.currency_exchange.dao.StatementCachingDataSource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Query timings from the DAOs and statement cache, and pool statistics from Hikari
+public class DatabaseMetrics implements QueryListener, MetricsTrackerFactory {
+    private final boolean enabled;
+    private final SlowQueryLog slowQueryLog;
+
+    private final ConcurrentMap<String, LatencyHistogram> acquireTimes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> executionTimes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PoolTracker> pools = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StatementCachingDataSource> statementCaches = new ConcurrentHashMap<>();
+
+    private DatabaseMetrics(boolean enabled, SlowQueryLog slowQueryLog) {
+        this.enabled = enabled;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    public static DatabaseMetrics createInstance(boolean enabled, SlowQueryLog slowQueryLog) {
+        return new DatabaseMetrics(enabled, slowQueryLog);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void onConnectionAcquired(Query query, long acquireNanos) {
+        if (enabled) {
+            histogram(acquireTimes, query.id()).record(acquireNanos);
+        }
+    }
+
+    @Override
+    public void onExecuted(Query query, Object[] binds, long executionNanos) {
+        if (enabled) {
+            histogram(executionTimes, query.id()).record(executionNanos);
+        }
+        slowQueryLog.onExecuted(query, binds, executionNanos);
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolTracker tracker = new PoolTracker(poolStats);
+        pools.put(poolName, tracker);
+        return tracker;
+    }
+
+    // The statement caches of a pool's connections, reported under the pool's name
+    public void addStatementCache(String poolName, StatementCachingDataSource dataSource) {
+        statementCaches.put(poolName, dataSource);
+    }
+
+    void writePrometheus(Writer writer) throws IOException {
+        writer.write("# HELP db_connection_acquire_seconds Time spent waiting for a pooled connection, by query.\n");
+        writer.write("# TYPE db_connection_acquire_seconds histogram\n");
+        writeHistograms(writer, "db_connection_acquire_seconds", "query", acquireTimes);
+
+        // For SELECTs this covers preparing the first row, reading the rest is left to the caller
+        writer.write("# HELP db_query_execution_seconds Statement execution time, by query.\n");
+        writer.write("# TYPE db_query_execution_seconds histogram\n");
+        writeHistograms(writer, "db_query_execution_seconds", "query", executionTimes);
+
+        writer.write("# HELP db_slow_queries_total Statements slower than the slow query threshold.\n");
+        writer.write("# TYPE db_slow_queries_total counter\n");
+        writer.write("db_slow_queries_total " + slowQueryLog.getSlowQueries() + "\n");
+
+        Map<String, PoolTracker> sortedPools = new TreeMap<>(pools);
+
+        writer.write("# HELP db_pool_connections Connections of a pool by state; pending counts threads waiting for one.\n");
+        writer.write("# TYPE db_pool_connections gauge\n");
+        for (Map.Entry<String, PoolTracker> entry : sortedPools.entrySet()) {
+            String pool = "pool=\"" + MetricsRegistry.escape(entry.getKey()) + "\"";
+            PoolStats stats = entry.getValue().poolStats;
+            writer.write("db_pool_connections{" + pool + ",state=\"active\"} " + stats.getActiveConnections() + "\n");
+            writer.write("db_pool_connections{" + pool + ",state=\"idle\"} " + stats.getIdleConnections() + "\n");
+            writer.write("db_pool_connections{" + pool + ",state=\"pending\"} " + stats.getPendingThreads() + "\n");
+        }
+
+        writer.write("# HELP db_pool_max_connections Maximum size of a pool.\n");
+        writer.write("# TYPE db_pool_max_connections gauge\n");
+        for (Map.Entry<String, PoolTracker> entry : sortedPools.entrySet()) {
+            writer.write("db_pool_max_connections{pool=\"" + MetricsRegistry.escape(entry.getKey()) + "\"} "
+                         + entry.getValue().poolStats.getMaxConnections() + "\n");
+        }
+
+        writer.write("# HELP db_pool_acquire_seconds Time spent waiting for a connection, by pool.\n");
+        writer.write("# TYPE db_pool_acquire_seconds histogram\n");
+        for (Map.Entry<String, PoolTracker> entry : sortedPools.entrySet()) {
+            entry.getValue().acquireTimes.writePrometheus(writer, "db_pool_acquire_seconds",
+                    "pool=\"" + MetricsRegistry.escape(entry.getKey()) + "\"");
+        }
+
+        writer.write("# HELP db_pool_usage_seconds Time a connection was held before it was returned, by pool.\n");
+        writer.write("# TYPE db_pool_usage_seconds histogram\n");
+        for (Map.Entry<String, PoolTracker> entry : sortedPools.entrySet()) {
+            entry.getValue().usageTimes.writePrometheus(writer, "db_pool_usage_seconds",
+                    "pool=\"" + MetricsRegistry.escape(entry.getKey()) + "\"");
+        }
+
+        writer.write("# HELP db_pool_timeouts_total Requests for a connection that timed out, by pool.\n");
+        writer.write("# TYPE db_pool_timeouts_total counter\n");
+        for (Map.Entry<String, PoolTracker> entry : sortedPools.entrySet()) {
+            writer.write("db_pool_timeouts_total{pool=\"" + MetricsRegistry.escape(entry.getKey()) + "\"} "
+                         + entry.getValue().timeouts.sum() + "\n");
+        }
+
+        Map<String, StatementCachingDataSource> sortedStatementCaches = new TreeMap<>(statementCaches);
+
+        writer.write("# HELP statement_cache_hits_total Prepared statements reused from a connection's cache, by pool.\n");
+        writer.write("# TYPE statement_cache_hits_total counter\n");
+        for (Map.Entry<String, StatementCachingDataSource> entry : sortedStatementCaches.entrySet()) {
+            writer.write("statement_cache_hits_total{pool=\"" + MetricsRegistry.escape(entry.getKey()) + "\"} "
+                         + entry.getValue().getHits() + "\n");
+        }
+
+        writer.write("# HELP statement_cache_misses_total Prepared statements compiled because none was cached, by pool.\n");
+        writer.write("# TYPE statement_cache_misses_total counter\n");
+        for (Map.Entry<String, StatementCachingDataSource> entry : sortedStatementCaches.entrySet()) {
+            writer.write("statement_cache_misses_total{pool=\"" + MetricsRegistry.escape(entry.getKey()) + "\"} "
+                         + entry.getValue().getMisses() + "\n");
+        }
+    }
+
+    private void writeHistograms(Writer writer, String name, String label,
+                                 Map<String, LatencyHistogram> histograms) throws IOException {
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            entry.getValue().writePrometheus(writer, name, label + "=\"" + MetricsRegistry.escape(entry.getKey()) + "\"");
+        }
+    }
+
+    private static LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> histograms, String queryId) {
+        LatencyHistogram histogram = histograms.get(queryId);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(queryId, id -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    private static class PoolTracker implements IMetricsTracker {
+        private final PoolStats poolStats;
+        private final LatencyHistogram acquireTimes = new LatencyHistogram();
+        private final LatencyHistogram usageTimes = new LatencyHistogram();
+        private final LongAdder timeouts = new LongAdder();
+
+        private PoolTracker(PoolStats poolStats) {
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireTimes.record(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageTimes.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.proj3.currency_exchange.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    // Upper bounds in seconds, the last bucket takes everything above them (+Inf)
+    private static final double[] BUCKET_BOUNDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final String[] BUCKET_LABELS = Arrays.stream(BUCKET_BOUNDS)
+            .mapToObj(bound -> BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString())
+            .toArray(String[]::new);
+    private static final long[] BUCKET_BOUNDS_NANOS = Arrays.stream(BUCKET_BOUNDS)
+            .mapToLong(bound -> Math.round(bound * TimeUnit.SECONDS.toNanos(1)))
+            .toArray();
+
+    // LongAdder spreads concurrent increments over cells, so recording never blocks or retries on one hot counter
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long latencyNanos) {
+        buckets[bucketIndex(latencyNanos)].increment();
+        sumNanos.add(latencyNanos);
+    }
+
+    // Writes the _bucket, _sum and _count series; labels are already formatted, e.g. route="/exchange"
+    void writePrometheus(Writer writer, String name, String labels) throws IOException {
+        String separator = labels.isEmpty() ? "" : ",";
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            count += buckets[i].sum();
+            String bound = i < BUCKET_LABELS.length ? BUCKET_LABELS[i] : "+Inf";
+            writer.write(name + "_bucket{" + labels + separator + "le=\"" + bound + "\"} " + count + "\n");
+        }
+        String labelSet = labels.isEmpty() ? "" : "{" + labels + "}";
+        double sumSeconds = sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+        writer.write(name + "_sum" + labelSet + " " + sumSeconds + "\n");
+        writer.write(name + "_count" + labelSet + " " + count + "\n");
+    }
+
+    private static int bucketIndex(long latencyNanos) {
+        int index = Arrays.binarySearch(BUCKET_BOUNDS_NANOS, latencyNanos);
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,138 @@
+package org.proj3.currency_exchange.metrics;
+
+import org.proj3.currency_exchange.cache.SingleFlight;
+import org.proj3.currency_exchange.stream.RateFeed;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MetricsRegistry {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Anything else is reported as OTHER, so clients cannot create new series with made-up methods
+    private static final Set<String> KNOWN_METHODS = Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS");
+    private static final String OTHER_METHOD = "OTHER";
+
+    private static final Comparator<RequestKey> REQUEST_ORDER = Comparator.comparing(RequestKey::route)
+            .thenComparing(RequestKey::method)
+            .thenComparingInt(RequestKey::status);
+    private static final Comparator<ErrorKey> ERROR_ORDER = Comparator.comparing(ErrorKey::route)
+            .thenComparing(ErrorKey::exception);
+
+    private final boolean enabled;
+    private final DatabaseMetrics databaseMetrics;
+    private final List<SingleFlight<?, ?>> singleFlights;
+    private final RateFeed rateFeed;
+    private final ConcurrentMap<RequestKey, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ErrorKey, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private MetricsRegistry(boolean enabled, DatabaseMetrics databaseMetrics, List<SingleFlight<?, ?>> singleFlights,
+                            RateFeed rateFeed) {
+        this.enabled = enabled;
+        this.databaseMetrics = databaseMetrics;
+        this.singleFlights = List.copyOf(singleFlights);
+        this.rateFeed = rateFeed;
+    }
+
+    public static MetricsRegistry createInstance(boolean enabled, DatabaseMetrics databaseMetrics,
+                                                 List<SingleFlight<?, ?>> singleFlights, RateFeed rateFeed) {
+        return new MetricsRegistry(enabled, databaseMetrics, singleFlights, rateFeed);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    public void recordRequest(String method, String route, int status, long latencyNanos) {
+        if (!enabled) {
+            return;
+        }
+        RequestKey key = new RequestKey(KNOWN_METHODS.contains(method) ? method : OTHER_METHOD, route, status);
+        LatencyHistogram histogram = latencies.get(key);
+        if (histogram == null) {
+            histogram = latencies.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(latencyNanos);
+    }
+
+    public void recordError(String route, Throwable error) {
+        if (!enabled) {
+            return;
+        }
+        ErrorKey key = new ErrorKey(route, error.getClass().getSimpleName());
+        LongAdder counter = errors.get(key);
+        if (counter == null) {
+            counter = errors.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public void writePrometheus(Writer writer) throws IOException {
+        writer.write("# HELP http_server_requests_seconds Request latency by route, method and status.\n");
+        writer.write("# TYPE http_server_requests_seconds histogram\n");
+        Map<RequestKey, LatencyHistogram> sortedLatencies = new TreeMap<>(REQUEST_ORDER);
+        sortedLatencies.putAll(latencies);
+        for (Map.Entry<RequestKey, LatencyHistogram> entry : sortedLatencies.entrySet()) {
+            writeHistogram(writer, entry.getKey(), entry.getValue());
+        }
+
+        writer.write("# HELP http_server_errors_total Exceptions raised while handling requests, by route and type.\n");
+        writer.write("# TYPE http_server_errors_total counter\n");
+        Map<ErrorKey, LongAdder> sortedErrors = new TreeMap<>(ERROR_ORDER);
+        sortedErrors.putAll(errors);
+        for (Map.Entry<ErrorKey, LongAdder> entry : sortedErrors.entrySet()) {
+            ErrorKey key = entry.getKey();
+            writer.write("http_server_errors_total{route=\"" + escape(key.route())
+                         + "\",exception=\"" + escape(key.exception()) + "\"} " + entry.getValue().sum() + "\n");
+        }
+
+        writer.write("# HELP single_flight_loads_total Lookups that ran their own database query, by lookup.\n");
+        writer.write("# TYPE single_flight_loads_total counter\n");
+        for (SingleFlight<?, ?> singleFlight : singleFlights) {
+            writer.write("single_flight_loads_total{lookup=\"" + escape(singleFlight.getName()) + "\"} "
+                         + singleFlight.getLoads() + "\n");
+        }
+        writer.write("# HELP single_flight_shared_total Lookups that shared the result of an identical query already running, by lookup.\n");
+        writer.write("# TYPE single_flight_shared_total counter\n");
+        for (SingleFlight<?, ?> singleFlight : singleFlights) {
+            writer.write("single_flight_shared_total{lookup=\"" + escape(singleFlight.getName()) + "\"} "
+                         + singleFlight.getSharedLoads() + "\n");
+        }
+
+        writer.write("# HELP rate_feed_subscribers Open rate event streams.\n");
+        writer.write("# TYPE rate_feed_subscribers gauge\n");
+        writer.write("rate_feed_subscribers " + rateFeed.getSubscriberCount() + "\n");
+        writer.write("# HELP rate_feed_overflows_total Event streams that fell too far behind and were told to resync.\n");
+        writer.write("# TYPE rate_feed_overflows_total counter\n");
+        writer.write("rate_feed_overflows_total " + rateFeed.getOverflows() + "\n");
+
+        databaseMetrics.writePrometheus(writer);
+    }
+
+    private void writeHistogram(Writer writer, RequestKey key, LatencyHistogram histogram) throws IOException {
+        String labels = "method=\"" + key.method() + "\",route=\"" + escape(key.route()) + "\",status=\"" + key.status() + "\"";
+        histogram.writePrometheus(writer, "http_server_requests_seconds", labels);
+    }
+
+    static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private record RequestKey(String method, String route, int status) {
+    }
+
+    private record ErrorKey(String route, String exception) {
+    }
+}
@@ -0,0 +1,85 @@
+package org.proj3.currency_exchange.metrics;
+
+import org.proj3.currency_exchange.dao.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SlowQueryLog {
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int MAX_BIND_LENGTH = 100;
+
+    private final long thresholdNanos;
+    private final int maxEntriesPerMinute;
+
+    private final LongAdder slowQueries = new LongAdder();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger entriesInWindow = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    private SlowQueryLog(long thresholdMillis, int maxEntriesPerMinute) {
+        this.thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.maxEntriesPerMinute = maxEntriesPerMinute;
+    }
+
+    // A negative threshold turns the log off
+    public static SlowQueryLog createInstance(long thresholdMillis, int maxEntriesPerMinute) {
+        return new SlowQueryLog(thresholdMillis, maxEntriesPerMinute);
+    }
+
+    long getSlowQueries() {
+        return slowQueries.sum();
+    }
+
+    void onExecuted(Query query, Object[] binds, long executionNanos) {
+        if (thresholdNanos < 0 || executionNanos < thresholdNanos) {
+            return;
+        }
+        slowQueries.increment();
+
+        // A burst of slow queries usually has one cause, a few entries per minute are enough to find it
+        if (!tryAcquireEntry()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        long skipped = suppressed.getAndSet(0);
+        log.warn("Slow query {} took {} ms with binds {}: {}{}",
+                query.id(),
+                TimeUnit.NANOSECONDS.toMillis(executionNanos),
+                formatBinds(binds),
+                query.sql().replaceAll("\\s+", " ").trim(),
+                skipped > 0 ? " (" + skipped + " slow queries not logged since the previous entry)" : "");
+    }
+
+    private boolean tryAcquireEntry() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            entriesInWindow.set(0);
+        }
+        return entriesInWindow.incrementAndGet() <= maxEntriesPerMinute;
+    }
+
+    private String formatBinds(Object[] binds) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (Object bind : binds) {
+            if (bind == null) {
+                joiner.add("null");
+                continue;
+            }
+            String value = bind.toString();
+            if (value.length() > MAX_BIND_LENGTH) {
+                value = value.substring(0, MAX_BIND_LENGTH) + "...";
+            }
+            joiner.add(bind instanceof CharSequence ? "'" + value + "'" : value);
+        }
+        return joiner.toString();
+    }
+}
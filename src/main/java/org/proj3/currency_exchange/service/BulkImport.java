@@ -0,0 +1,73 @@
+package org.proj3.currency_exchange.service;
+
+import org.proj3.currency_exchange.dto.ImportErrorDto;
+import org.proj3.currency_exchange.dto.ImportResponseDto;
+import org.proj3.currency_exchange.exception.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Collects validated rows of one import request and writes them together on commit. Rows that fail validation
+// are reported by row number and do not stop the others
+public abstract class BulkImport<T> {
+    // A file with many bad rows would otherwise produce a report as large as the file
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final List<ImportErrorDto> errors = new ArrayList<>();
+    private final List<Integer> acceptedRows = new ArrayList<>();
+    private int rows;
+    private int failed;
+
+    public void add(int rowNumber, T request) {
+        rows++;
+        try {
+            accept(request);
+            acceptedRows.add(rowNumber);
+        } catch (IllegalCurrencyCodeException | IllegalCurrencyNameException | IllegalCurrencySignException
+                 | IllegalPararmeterException | IllegalArgumentException | NotFoundException e) {
+            addError(rowNumber, e.getMessage());
+        }
+    }
+
+    public void reject(int rowNumber, String message) {
+        rows++;
+        addError(rowNumber, message);
+    }
+
+    public ImportResponseDto commit() {
+        int imported = inCommitOrder(() -> {
+            int[] updateCounts = write();
+
+            int importedRows = 0;
+            for (int updateCount : updateCounts) {
+                if (updateCount > 0) {
+                    importedRows++;
+                }
+            }
+            if (importedRows > 0) {
+                onImported();
+            }
+            return importedRows;
+        });
+        return new ImportResponseDto(rows, imported, acceptedRows.size() - imported, failed, errors);
+    }
+
+    // Validates the request and keeps it for write(); throws the usual validation exceptions otherwise
+    protected abstract void accept(T request);
+
+    // Writes every accepted row in one transaction, returning an update count per row in acceptance order
+    protected abstract int[] write();
+
+    protected abstract void onImported();
+
+    // Runs write() and onImported() as one step, ordered with the other writes that update the same state
+    protected abstract <R> R inCommitOrder(Supplier<R> commit);
+
+    private void addError(int rowNumber, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new ImportErrorDto(rowNumber, message));
+        }
+    }
+}
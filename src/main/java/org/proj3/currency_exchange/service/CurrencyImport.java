@@ -0,0 +1,48 @@
+package org.proj3.currency_exchange.service;
+
+import org.proj3.currency_exchange.cache.RateCache;
+import org.proj3.currency_exchange.cache.ResponseCache;
+import org.proj3.currency_exchange.dao.impl.CurrencyDao;
+import org.proj3.currency_exchange.dto.CurrencyRequestDto;
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class CurrencyImport extends BulkImport<CurrencyRequestDto> {
+    private final CurrencyService currencyService;
+    private final CurrencyDao currencyDao;
+    private final RateCache rateCache;
+    private final ResponseCache responseCache;
+    private final List<CurrencyEntity> currencies = new ArrayList<>();
+
+    CurrencyImport(CurrencyService currencyService, CurrencyDao currencyDao, RateCache rateCache,
+                   ResponseCache responseCache) {
+        this.currencyService = currencyService;
+        this.currencyDao = currencyDao;
+        this.rateCache = rateCache;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    protected void accept(CurrencyRequestDto request) {
+        currencies.add(currencyService.toValidatedEntity(request));
+    }
+
+    @Override
+    protected int[] write() {
+        return currencyDao.saveAll(currencies);
+    }
+
+    @Override
+    protected void onImported() {
+        rateCache.reload();
+        responseCache.invalidate();
+    }
+
+    @Override
+    protected <R> R inCommitOrder(Supplier<R> commit) {
+        return rateCache.inCommitOrder(commit);
+    }
+}
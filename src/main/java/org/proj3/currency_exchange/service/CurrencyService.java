@@ -1,8 +1,11 @@
 package org.proj3.currency_exchange.service;
 
+import org.proj3.currency_exchange.cache.RateCache;
+import org.proj3.currency_exchange.cache.ResponseCache;
 import org.proj3.currency_exchange.dao.impl.CurrencyDao;
 import org.proj3.currency_exchange.dto.CurrencyRequestDto;
 import org.proj3.currency_exchange.dto.CurrencyResponseDto;
+import org.proj3.currency_exchange.dto.PageDto;
 import org.proj3.currency_exchange.entity.CurrencyEntity;
 import org.proj3.currency_exchange.exception.*;
 import org.proj3.currency_exchange.mapper.CurrencyMapper;
@@ -14,17 +17,26 @@ public class CurrencyService {
 
     private static final String VALID_CURRENCY_NAME = "Invalid currency name. The only correct name for this code is: ";
     private static final String VALID_CURRENCY_SIGN = "Invalid currency sign. The only correct sign for this code is: ";
+    private static final String INVALID_CODE_PREFIX = "Invalid code prefix. Use one to three letters.";
+    private static final String INVALID_CURSOR = "Invalid cursor. Use the value of the X-Next-Cursor header.";
+    private static final int CODE_LENGTH = 3;
 
     private final CurrencyDao currencyDao;
+    private final RateCache rateCache;
+    private final ResponseCache responseCache;
     private final CurrencyMapper mapper;
 
-    private CurrencyService(CurrencyDao currencyDao, CurrencyMapper mapper) {
+    private CurrencyService(CurrencyDao currencyDao, RateCache rateCache, ResponseCache responseCache,
+                            CurrencyMapper mapper) {
         this.currencyDao = currencyDao;
+        this.rateCache = rateCache;
+        this.responseCache = responseCache;
         this.mapper = mapper;
     }
 
-    public static CurrencyService createInstance(CurrencyDao currencyDao, CurrencyMapper mapper) {
-        return new CurrencyService(currencyDao, mapper);
+    public static CurrencyService createInstance(CurrencyDao currencyDao, RateCache rateCache,
+                                                 ResponseCache responseCache, CurrencyMapper mapper) {
+        return new CurrencyService(currencyDao, rateCache, responseCache, mapper);
     }
 
     public List<CurrencyResponseDto> findAll() {
@@ -37,6 +49,51 @@ public class CurrencyService {
         return dtos;
     }
 
+    // A null prefix lists every currency, a null cursor starts from the first page
+    public PageDto<CurrencyResponseDto> findPage(String codePrefix, String cursor, int limit) {
+        if (codePrefix != null) {
+            codePrefix = normalizeCodePrefix(codePrefix);
+        }
+        // The cursor is the last code of the previous page, every code sorts after the empty string
+        String afterCode = cursor == null ? "" : normalizeCursor(cursor);
+
+        // One row more than the page tells whether another page follows
+        List<CurrencyEntity> entities = currencyDao.findPage(codePrefix, afterCode, limit + 1);
+        String nextCursor = null;
+        if (entities.size() > limit) {
+            entities = entities.subList(0, limit);
+            nextCursor = entities.get(limit - 1).getCode();
+        }
+
+        List<CurrencyResponseDto> dtos = new ArrayList<>();
+        for (CurrencyEntity entity : entities) {
+            dtos.add(mapper.toDto(entity));
+        }
+        return new PageDto<>(dtos, nextCursor);
+    }
+
+    private String normalizeCodePrefix(String codePrefix) {
+        codePrefix = codePrefix.trim().toUpperCase(Locale.ROOT);
+        if (codePrefix.isEmpty() || codePrefix.length() > CODE_LENGTH) {
+            throw new IllegalPararmeterException(INVALID_CODE_PREFIX);
+        }
+        for (int i = 0; i < codePrefix.length(); i++) {
+            char letter = codePrefix.charAt(i);
+            if (letter < 'A' || letter > 'Z') {
+                throw new IllegalPararmeterException(INVALID_CODE_PREFIX);
+            }
+        }
+        return codePrefix;
+    }
+
+    // Only a currency code can be a cursor: any other key would start the page at a position no page ends on
+    private String normalizeCursor(String cursor) {
+        if (!CurrencyUtil.isIsoCode(CurrencyUtil.packCurrencyCode(cursor, 0, cursor.length()))) {
+            throw new IllegalPararmeterException(INVALID_CURSOR);
+        }
+        return CurrencyUtil.normalizeCurrencyCode(cursor);
+    }
+
     public Optional<CurrencyResponseDto> findByCode(String code) {
         code = CurrencyUtil.normalizeCurrencyCode(code);
         CurrencyUtil.validateCurrencyCode(code);
@@ -53,6 +110,22 @@ public class CurrencyService {
     }
 
     public CurrencyResponseDto save(CurrencyRequestDto currencyRequestDto) {
+        CurrencyEntity entity = toValidatedEntity(currencyRequestDto);
+        CurrencyEntity savedCurrency = rateCache.inCommitOrder(() -> {
+            CurrencyEntity currency = currencyDao.save(entity);
+            rateCache.onCurrencySaved(currency);
+            responseCache.invalidate();
+            return currency;
+        });
+
+        return mapper.toDto(savedCurrency);
+    }
+
+    public CurrencyImport startImport() {
+        return new CurrencyImport(this, currencyDao, rateCache, responseCache);
+    }
+
+    CurrencyEntity toValidatedEntity(CurrencyRequestDto currencyRequestDto) {
         String code = CurrencyUtil.normalizeCurrencyCode(currencyRequestDto.getCode());
         CurrencyUtil.validateCurrencyCode(code);
 
@@ -75,10 +148,7 @@ public class CurrencyService {
         currencyRequestDto.setName(dtoName);
         currencyRequestDto.setSign(dtoSign);
 
-        CurrencyEntity entity = mapper.toEntity(currencyRequestDto);
-        CurrencyEntity savedCurrency = currencyDao.save(entity);
-
-        return mapper.toDto(savedCurrency);
+        return mapper.toEntity(currencyRequestDto);
     }
 
     private String normalizeName(String name) {
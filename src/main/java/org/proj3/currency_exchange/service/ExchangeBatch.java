@@ -0,0 +1,36 @@
+package org.proj3.currency_exchange.service;
+
+import org.proj3.currency_exchange.cache.CachedRate;
+import org.proj3.currency_exchange.cache.RateSnapshot;
+import org.proj3.currency_exchange.dto.ExchangeRequestDto;
+import org.proj3.currency_exchange.dto.ExchangeResponseDto;
+import org.proj3.currency_exchange.util.IntObjectMap;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import java.util.Optional;
+
+public class ExchangeBatch {
+    private final ExchangeService exchangeService;
+    private final RateSnapshot snapshot;
+    private final IntObjectMap<Optional<CachedRate>> resolvedRates = new IntObjectMap<>();
+
+    ExchangeBatch(ExchangeService exchangeService, RateSnapshot snapshot) {
+        this.exchangeService = exchangeService;
+        this.snapshot = snapshot;
+    }
+
+    public ExchangeResponseDto exchange(ExchangeRequestDto request) {
+        // Every distinct pair is resolved once, against the snapshot taken when the batch started
+        return exchangeService.exchange(request, this::resolve);
+    }
+
+    private Optional<CachedRate> resolve(int from, int to) {
+        int pair = PackedCodeUtil.pair(from, to);
+        Optional<CachedRate> rate = resolvedRates.get(pair);
+        if (rate == null) {
+            rate = exchangeService.route(snapshot, from, to);
+            resolvedRates.put(pair, rate);
+        }
+        return rate;
+    }
+}
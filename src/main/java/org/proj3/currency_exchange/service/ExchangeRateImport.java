@@ -0,0 +1,58 @@
+package org.proj3.currency_exchange.service;
+
+import org.proj3.currency_exchange.cache.RateCache;
+import org.proj3.currency_exchange.cache.ResponseCache;
+import org.proj3.currency_exchange.dao.impl.ExchangeRateDao;
+import org.proj3.currency_exchange.dto.ExchangeRateRequestDto;
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
+import org.proj3.currency_exchange.stream.RateFeed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class ExchangeRateImport extends BulkImport<ExchangeRateRequestDto> {
+    private final ExchangeRateService exchangeRateService;
+    private final ExchangeRateDao exchangeRateDao;
+    private final RateCache rateCache;
+    private final ResponseCache responseCache;
+    private final RateFeed rateFeed;
+    // Read once when the import starts instead of two lookups per row
+    private final Map<String, CurrencyEntity> currenciesByCode;
+    private final List<ExchangeRateEntity> exchangeRates = new ArrayList<>();
+
+    ExchangeRateImport(ExchangeRateService exchangeRateService, ExchangeRateDao exchangeRateDao, RateCache rateCache,
+                       ResponseCache responseCache, RateFeed rateFeed, Map<String, CurrencyEntity> currenciesByCode) {
+        this.exchangeRateService = exchangeRateService;
+        this.exchangeRateDao = exchangeRateDao;
+        this.rateCache = rateCache;
+        this.responseCache = responseCache;
+        this.rateFeed = rateFeed;
+        this.currenciesByCode = currenciesByCode;
+    }
+
+    @Override
+    protected void accept(ExchangeRateRequestDto request) {
+        exchangeRates.add(exchangeRateService.toValidatedEntity(request, currenciesByCode));
+    }
+
+    @Override
+    protected int[] write() {
+        return exchangeRateDao.saveOrUpdateAll(exchangeRates);
+    }
+
+    @Override
+    protected void onImported() {
+        rateCache.reload();
+        responseCache.invalidate();
+        // Too many changes to push one by one, subscribers reload all rates once
+        rateFeed.publishResync(RateFeed.RESYNC_IMPORT);
+    }
+
+    @Override
+    protected <R> R inCommitOrder(Supplier<R> commit) {
+        return rateCache.inCommitOrder(commit);
+    }
+}
@@ -1,19 +1,36 @@
 package org.proj3.currency_exchange.service;
 
+import org.proj3.currency_exchange.cache.RateCache;
+import org.proj3.currency_exchange.cache.ResponseCache;
+import org.proj3.currency_exchange.cache.SingleFlight;
+import org.proj3.currency_exchange.candle.Candle;
+import org.proj3.currency_exchange.candle.CandleStore;
+import org.proj3.currency_exchange.candle.Resolution;
+import org.proj3.currency_exchange.dao.RowCallback;
 import org.proj3.currency_exchange.dao.impl.CurrencyDao;
 import org.proj3.currency_exchange.dao.impl.ExchangeRateDao;
+import org.proj3.currency_exchange.dto.CandleResponseDto;
+import org.proj3.currency_exchange.dto.CandlesResponseDto;
 import org.proj3.currency_exchange.dto.ExchangeRateRequestDto;
 import org.proj3.currency_exchange.dto.ExchangeRateResponseDto;
+import org.proj3.currency_exchange.dto.PageDto;
 import org.proj3.currency_exchange.entity.CurrencyEntity;
 import org.proj3.currency_exchange.entity.ExchangeRateEntity;
 import org.proj3.currency_exchange.exception.*;
 import org.proj3.currency_exchange.mapper.ExchangeRateMapper;
+import org.proj3.currency_exchange.stream.RateFeed;
 import org.proj3.currency_exchange.util.CurrencyUtil;
 import org.proj3.currency_exchange.util.ExchangeUtil;
+import org.proj3.currency_exchange.util.FixedPointUtil;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class ExchangeRateService {
@@ -23,28 +40,47 @@ public class ExchangeRateService {
 
     private static final String NO_BASE_CURRENCY = "There is no base currency in the database";
     private static final String NO_TARGET_CURRENCY = "There is no target currency in the database";
+    private static final String NO_EXCHANGE_RATE = "There is no exchange rate for the currency pair.";
 
     private static final String RATE_ERROR_MESSAGE = "Please enter a valid rate: a number greater than 0," +
                                                      " less than a million, no more than 6 decimal places.";
 
     private static final String USE_DIFFERENT_CURRENCIES = "Use different currencies to create a new exchange rate.";
+    private static final String INVALID_CURSOR = "Invalid cursor. Use the value of the X-Next-Cursor header.";
 
     private static final int MAX_RATE_INTEGER_DIGITS = 6;
     private static final int MAX_RATE_FRACTIONAL_DIGITS = 6;
 
     private final ExchangeRateDao exchangeRateDao;
     private final CurrencyDao currencyDao;
+    private final RateCache rateCache;
+    private final ResponseCache responseCache;
+    private final CandleStore candleStore;
+    private final RateFeed rateFeed;
     private final ExchangeRateMapper mapper;
+    private final SingleFlight<Integer, Optional<ExchangeRateEntity>> rateLoads;
 
-    private ExchangeRateService(ExchangeRateDao exchangeRateDao, CurrencyDao currencyDao, ExchangeRateMapper mapper) {
+    private ExchangeRateService(ExchangeRateDao exchangeRateDao, CurrencyDao currencyDao, RateCache rateCache,
+                                ResponseCache responseCache, CandleStore candleStore, RateFeed rateFeed,
+                                ExchangeRateMapper mapper,
+                                SingleFlight<Integer, Optional<ExchangeRateEntity>> rateLoads) {
         this.exchangeRateDao = exchangeRateDao;
         this.currencyDao = currencyDao;
+        this.rateCache = rateCache;
+        this.responseCache = responseCache;
+        this.candleStore = candleStore;
+        this.rateFeed = rateFeed;
         this.mapper = mapper;
-
+        this.rateLoads = rateLoads;
     }
 
-    public static ExchangeRateService createInstance(ExchangeRateDao exchangeRateDao, CurrencyDao currencyDao, ExchangeRateMapper mapper) {
-        return new ExchangeRateService(exchangeRateDao, currencyDao, mapper);
+    public static ExchangeRateService createInstance(ExchangeRateDao exchangeRateDao, CurrencyDao currencyDao,
+                                                     RateCache rateCache, ResponseCache responseCache,
+                                                     CandleStore candleStore, RateFeed rateFeed,
+                                                     ExchangeRateMapper mapper,
+                                                     SingleFlight<Integer, Optional<ExchangeRateEntity>> rateLoads) {
+        return new ExchangeRateService(exchangeRateDao, currencyDao, rateCache, responseCache, candleStore, rateFeed,
+                mapper, rateLoads);
     }
 
     public List<ExchangeRateResponseDto> findAll() {
@@ -55,6 +91,56 @@ public class ExchangeRateService {
                 .collect(Collectors.toList());
     }
 
+    public void streamAll(RowCallback<ExchangeRateResponseDto> callback) throws IOException {
+        exchangeRateDao.streamAll(rateEntity -> callback.accept(mapper.toDto(rateEntity)));
+    }
+
+    // A null currency code leaves that side of the pair open, a null cursor starts from the first page
+    public PageDto<ExchangeRateResponseDto> findPage(String baseCurrencyCode, String targetCurrencyCode,
+                                                     String cursor, int limit) {
+        if (baseCurrencyCode != null) {
+            baseCurrencyCode = CurrencyUtil.normalizeCurrencyCode(baseCurrencyCode);
+            CurrencyUtil.validateCurrencyCode(baseCurrencyCode);
+        }
+        if (targetCurrencyCode != null) {
+            targetCurrencyCode = CurrencyUtil.normalizeCurrencyCode(targetCurrencyCode);
+            CurrencyUtil.validateCurrencyCode(targetCurrencyCode);
+        }
+        int afterId = cursor == null ? 0 : parseCursor(cursor);
+
+        // One row more than the page tells whether another page follows
+        List<ExchangeRateEntity> rateEntities = exchangeRateDao.findPage(baseCurrencyCode, targetCurrencyCode,
+                afterId, limit + 1);
+        String nextCursor = null;
+        if (rateEntities.size() > limit) {
+            rateEntities = rateEntities.subList(0, limit);
+            nextCursor = Integer.toString(rateEntities.get(limit - 1).getId());
+        }
+
+        List<ExchangeRateResponseDto> page = rateEntities.stream()
+                .map(mapper::toDto)
+                .collect(Collectors.toList());
+        return new PageDto<>(page, nextCursor);
+    }
+
+    private int parseCursor(String cursor) {
+        try {
+            int afterId = Integer.parseInt(cursor.trim());
+            if (afterId >= 0) {
+                return afterId;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalPararmeterException(INVALID_CURSOR);
+    }
+
+    // Returns the change version to ask from next time
+    public long streamChangedSince(long changeVersion, RowCallback<ExchangeRateResponseDto> callback) throws IOException {
+        return exchangeRateDao.streamChangedSince(changeVersion,
+                rateEntity -> callback.accept(mapper.toDto(rateEntity)));
+    }
+
     public Optional<ExchangeRateResponseDto> findByCode(String currencyPair) {
         currencyPair = CurrencyUtil.normalizeCurrencyCode(currencyPair);
         validatePairCodeLength(currencyPair);
@@ -65,11 +151,40 @@ public class ExchangeRateService {
         CurrencyUtil.validateCurrencyCode(baseCurrencyCode);
         CurrencyUtil.validateCurrencyCode(targetCurrencyCode);
 
-        Optional<ExchangeRateEntity> exchangeRate = exchangeRateDao.find(currencyPair);
+        // A burst of reads for one pair runs a single query, the entity is only read by the mapper
+        int pair = PackedCodeUtil.pair(PackedCodeUtil.pack(baseCurrencyCode), PackedCodeUtil.pack(targetCurrencyCode));
+        Optional<ExchangeRateEntity> exchangeRate =
+                rateLoads.load(pair, () -> exchangeRateDao.find(baseCurrencyCode, targetCurrencyCode));
         return exchangeRate.map(mapper::toDto);
     }
 
     public ExchangeRateResponseDto save(ExchangeRateRequestDto requestDto) {
+        ExchangeRateEntity rate = toValidatedEntity(requestDto, currencyDao::find);
+        return rateCache.inCommitOrder(() -> {
+            ExchangeRateEntity savedRate = exchangeRateDao.save(rate);
+            rateCache.onRateSaved(savedRate);
+            responseCache.invalidate();
+
+            ExchangeRateResponseDto responseDto = mapper.toDto(savedRate);
+            rateFeed.publish(responseDto);
+            return responseDto;
+        });
+    }
+
+    public ExchangeRateImport startImport() {
+        Map<String, CurrencyEntity> currenciesByCode = new HashMap<>();
+        for (CurrencyEntity currency : currencyDao.findAll()) {
+            currenciesByCode.put(currency.getCode(), currency);
+        }
+        return new ExchangeRateImport(this, exchangeRateDao, rateCache, responseCache, rateFeed, currenciesByCode);
+    }
+
+    ExchangeRateEntity toValidatedEntity(ExchangeRateRequestDto requestDto, Map<String, CurrencyEntity> currenciesByCode) {
+        return toValidatedEntity(requestDto, code -> Optional.ofNullable(currenciesByCode.get(code)));
+    }
+
+    private ExchangeRateEntity toValidatedEntity(ExchangeRateRequestDto requestDto,
+                                                 Function<String, Optional<CurrencyEntity>> currencyFinder) {
         String baseCurrencyCode = CurrencyUtil.normalizeCurrencyCode(requestDto.getBaseCurrencyCode());
         CurrencyUtil.validateCurrencyCode(baseCurrencyCode);
 
@@ -83,16 +198,13 @@ public class ExchangeRateService {
         BigDecimal exchangeRate = requestDto.getRate();
         validateExchangeRate(exchangeRate);
 
-        CurrencyEntity baseCurrency = currencyDao.find(baseCurrencyCode)
+        CurrencyEntity baseCurrency = currencyFinder.apply(baseCurrencyCode)
                 .orElseThrow(() -> new NotFoundException(NO_BASE_CURRENCY + ": " + baseCurrencyCode));
 
-        CurrencyEntity targetCurrency = currencyDao.find(targetCurrencyCode)
+        CurrencyEntity targetCurrency = currencyFinder.apply(targetCurrencyCode)
                 .orElseThrow(() -> new NotFoundException(NO_TARGET_CURRENCY + ": " + targetCurrencyCode));
 
-        ExchangeRateEntity rate = new ExchangeRateEntity(baseCurrency, targetCurrency, exchangeRate);
-        ExchangeRateEntity savedRate = exchangeRateDao.save(rate);
-
-        return mapper.toDto(savedRate);
+        return new ExchangeRateEntity(baseCurrency, targetCurrency, exchangeRate);
     }
 
     public ExchangeRateResponseDto update(String currencyPair, BigDecimal exchangeRate) {
@@ -107,17 +219,95 @@ public class ExchangeRateService {
         CurrencyUtil.validateCurrencyCode(baseCurrencyCode);
         CurrencyUtil.validateCurrencyCode(targetCurrencyCode);
 
-        CurrencyEntity baseCurrency = currencyDao.find(baseCurrencyCode)
-                .orElseThrow(() -> new NotFoundException(NO_BASE_CURRENCY));
+        // One statement; only when it finds nothing do the currencies have to be looked up to say what is missing
+        Optional<ExchangeRateResponseDto> updatedRate = rateCache.inCommitOrder(() -> exchangeRateDao
+                .update(baseCurrencyCode, targetCurrencyCode, exchangeRate)
+                .map(this::onRateWritten));
+        return updatedRate.orElseThrow(() -> notFound(baseCurrencyCode, targetCurrencyCode));
+    }
 
-        CurrencyEntity targetCurrency = currencyDao.find(targetCurrencyCode)
-                .orElseThrow(() -> new NotFoundException(NO_TARGET_CURRENCY));
+    // PUT semantics: the pair is created when it does not exist yet, otherwise its rate is replaced
+    public ExchangeRateResponseDto saveOrUpdate(String currencyPair, BigDecimal exchangeRate) {
+        currencyPair = CurrencyUtil.normalizeCurrencyCode(currencyPair);
 
-        int baseCurrencyId = baseCurrency.getId();
-        int targetCurrencyId = targetCurrency.getId();
+        validatePairCodeLength(currencyPair);
+        validateExchangeRate(exchangeRate);
+
+        String baseCurrencyCode = currencyPair.substring(0, 3);
+        String targetCurrencyCode = currencyPair.substring(3);
+
+        CurrencyUtil.validateCurrencyCode(baseCurrencyCode);
+        CurrencyUtil.validateCurrencyCode(targetCurrencyCode);
+
+        if (baseCurrencyCode.equals(targetCurrencyCode)) {
+            throw new IllegalPararmeterException(USE_DIFFERENT_CURRENCIES);
+        }
+
+        Optional<ExchangeRateResponseDto> savedRate = rateCache.inCommitOrder(() -> exchangeRateDao
+                .saveOrUpdate(baseCurrencyCode, targetCurrencyCode, exchangeRate)
+                .map(this::onRateWritten));
+        return savedRate.orElseThrow(() -> notFound(baseCurrencyCode, targetCurrencyCode));
+    }
+
+    // Runs inside rateCache.inCommitOrder, right after the write
+    private ExchangeRateResponseDto onRateWritten(ExchangeRateEntity exchangeRate) {
+        rateCache.onRateSaved(exchangeRate);
+        candleStore.record(PackedCodeUtil.pack(exchangeRate.getBaseCurrency().getCode()),
+                PackedCodeUtil.pack(exchangeRate.getTargetCurrency().getCode()),
+                exchangeRate.getRate(), System.currentTimeMillis());
+        responseCache.invalidate();
+
+        ExchangeRateResponseDto responseDto = mapper.toDto(exchangeRate);
+        rateFeed.publish(responseDto);
+        return responseDto;
+    }
+
+    private NotFoundException notFound(String baseCurrencyCode, String targetCurrencyCode) {
+        if (currencyDao.find(baseCurrencyCode).isEmpty()) {
+            return new NotFoundException(NO_BASE_CURRENCY + ": " + baseCurrencyCode);
+        }
+        if (currencyDao.find(targetCurrencyCode).isEmpty()) {
+            return new NotFoundException(NO_TARGET_CURRENCY + ": " + targetCurrencyCode);
+        }
+        return new NotFoundException(NO_EXCHANGE_RATE);
+    }
+
+    // Empty when the pair has no exchange rate; a rate that was never updated has no candles yet
+    public Optional<CandlesResponseDto> findCandles(String currencyPair, Resolution resolution, int limit) {
+        currencyPair = CurrencyUtil.normalizeCurrencyCode(currencyPair);
+        validatePairCodeLength(currencyPair);
+
+        String baseCurrencyCode = currencyPair.substring(0, 3);
+        String targetCurrencyCode = currencyPair.substring(3);
+
+        CurrencyUtil.validateCurrencyCode(baseCurrencyCode);
+        CurrencyUtil.validateCurrencyCode(targetCurrencyCode);
+
+        int packedBaseCode = PackedCodeUtil.pack(baseCurrencyCode);
+        int packedTargetCode = PackedCodeUtil.pack(targetCurrencyCode);
+        // Without the snapshot in memory only the one pair is looked up, snapshot() would read every rate
+        boolean rateExists = rateCache.isLoaded()
+                ? rateCache.snapshot().rate(packedBaseCode, packedTargetCode) != null
+                : rateLoads.load(PackedCodeUtil.pair(packedBaseCode, packedTargetCode),
+                        () -> exchangeRateDao.find(baseCurrencyCode, targetCurrencyCode)).isPresent();
+        if (!rateExists) {
+            return Optional.empty();
+        }
+
+        List<CandleResponseDto> candles = candleStore.candles(packedBaseCode, packedTargetCode, resolution, limit)
+                .stream()
+                .map(this::toDto)
+                .toList();
+        return Optional.of(new CandlesResponseDto(baseCurrencyCode, targetCurrencyCode, resolution.label(), candles));
+    }
 
-        ExchangeRateEntity updatedRate = exchangeRateDao.update(baseCurrencyId, targetCurrencyId, exchangeRate);
-        return mapper.toDto(updatedRate);
+    private CandleResponseDto toDto(Candle candle) {
+        return new CandleResponseDto(candle.openTime(),
+                FixedPointUtil.toPlainBigDecimal(candle.openMicros(), FixedPointUtil.MICRO_SCALE),
+                FixedPointUtil.toPlainBigDecimal(candle.highMicros(), FixedPointUtil.MICRO_SCALE),
+                FixedPointUtil.toPlainBigDecimal(candle.lowMicros(), FixedPointUtil.MICRO_SCALE),
+                FixedPointUtil.toPlainBigDecimal(candle.closeMicros(), FixedPointUtil.MICRO_SCALE),
+                candle.ticks());
     }
 
     private void validateExchangeRate(BigDecimal rate) {
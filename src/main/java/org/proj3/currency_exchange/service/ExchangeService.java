@@ -1,18 +1,26 @@
 package org.proj3.currency_exchange.service;
 
-import org.proj3.currency_exchange.dao.impl.ExchangeRateDao;
+import org.proj3.currency_exchange.cache.CachedRate;
+import org.proj3.currency_exchange.cache.RateCache;
+import org.proj3.currency_exchange.cache.RateRouter;
+import org.proj3.currency_exchange.cache.RateSnapshot;
 import org.proj3.currency_exchange.dto.CurrencyResponseDto;
 import org.proj3.currency_exchange.dto.ExchangeRequestDto;
 import org.proj3.currency_exchange.dto.ExchangeResponseDto;
-import org.proj3.currency_exchange.entity.ExchangeRateEntity;
 import org.proj3.currency_exchange.exception.IllegalPararmeterException;
 import org.proj3.currency_exchange.mapper.CurrencyMapper;
 import org.proj3.currency_exchange.util.CurrencyUtil;
 import org.proj3.currency_exchange.util.ExchangeUtil;
+import org.proj3.currency_exchange.util.FixedPointUtil;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 public class ExchangeService {
 
@@ -20,60 +28,145 @@ public class ExchangeService {
                                                        " less than a billion, no more than 6 decimal places (will be rounded to 2 digits).";
     private static final String USE_DIFFERENT_CURRENCIES = "Use different currencies for conversion.";
     private static final String NO_EXCHANGE_RATES_IN_DATABASE = "Currency exchange is not available. " +
-                                                                "There is no direct, reverse or cross exchange rate (via USD) in the database.";
-    private static final String USD = "USD";
+                                                                "There is no direct, reverse or cross exchange rate (via %s) in the database.";
 
     private static final int MAX_AMOUNT_INTEGER_DIGITS = 9;
     private static final int MAX_AMOUNT_FRACTIONAL_DIGITS = 6;
 
     private static final int CONVERTED_AMOUNT_SCALE = 2;
-    private static final int DECIMAL_PLACES = 6;
+    private static final long MICROS_PER_CENT = FixedPointUtil.powerOfTen(FixedPointUtil.MICRO_SCALE);
 
-    private final ExchangeRateDao rateDao;
+    private final RateCache rateCache;
+    private final RateRouter router;
     private final CurrencyMapper mapper;
+    private final String noExchangeRatesMessage;
+    private final RateLookup currentRates;
+    private final Executor executor;
 
-    private ExchangeService(ExchangeRateDao rateDao, CurrencyMapper mapper) {
-        this.rateDao = rateDao;
+    private ExchangeService(RateCache rateCache, RateRouter router, CurrencyMapper mapper, Executor executor) {
+        this.rateCache = rateCache;
+        this.router = router;
         this.mapper = mapper;
+        this.executor = executor;
+        this.noExchangeRatesMessage = NO_EXCHANGE_RATES_IN_DATABASE
+                .formatted(String.join(", ", router.getHubCurrencies()));
+        this.currentRates = (from, to) -> router.route(rateCache.snapshotFor(from, to), from, to);
     }
 
-    public static ExchangeService createInstance(ExchangeRateDao rateDao, CurrencyMapper mapper) {
-        return new ExchangeService(rateDao, mapper);
+    public static ExchangeService createInstance(RateCache rateCache, RateRouter router, CurrencyMapper mapper,
+                                                 Executor executor) {
+        return new ExchangeService(rateCache, router, mapper, executor);
     }
 
     public ExchangeResponseDto exchange(ExchangeRequestDto request) {
-        String baseCurrencyCode = CurrencyUtil.normalizeCurrencyCode(request.getBaseCurrencyCode());
-        CurrencyUtil.validateCurrencyCode(baseCurrencyCode);
+        return exchange(request, currentRates);
+    }
+
+    public ExchangeResponseDto exchange(ExchangeRequestDto request, Instant asOf) {
+        return exchange(request, asOfRates(asOf));
+    }
+
+    // For callers that already hold validated packed codes, e.g. parsed straight from a query string
+    public ExchangeResponseDto exchange(int packedBaseCode, int packedTargetCode, BigDecimal amount) {
+        return exchange(packedBaseCode, packedTargetCode, amount, currentRates);
+    }
+
+    public ExchangeResponseDto exchange(int packedBaseCode, int packedTargetCode, BigDecimal amount, Instant asOf) {
+        return exchange(packedBaseCode, packedTargetCode, amount, asOfRates(asOf));
+    }
+
+    // A route over the snapshot in memory needs no I/O and completes on the calling thread. Only an exchange that
+    // reads the database, because the snapshot is disabled or not loaded yet, goes to the executor
+    public CompletableFuture<ExchangeResponseDto> exchangeAsync(int packedBaseCode, int packedTargetCode,
+                                                                BigDecimal amount) {
+        if (rateCache.isLoaded()) {
+            return completeNow(() -> exchange(packedBaseCode, packedTargetCode, amount));
+        }
+        return supplyAsync(() -> exchange(packedBaseCode, packedTargetCode, amount));
+    }
 
-        String targetCurrencyCode = CurrencyUtil.normalizeCurrencyCode(request.getTargetCurrencyCode());
-        CurrencyUtil.validateCurrencyCode(targetCurrencyCode);
+    // Historical rates are always read from the database
+    public CompletableFuture<ExchangeResponseDto> exchangeAsync(int packedBaseCode, int packedTargetCode,
+                                                                BigDecimal amount, Instant asOf) {
+        return supplyAsync(() -> exchange(packedBaseCode, packedTargetCode, amount, asOf));
+    }
+
+    public ExchangeBatch startBatch() {
+        return new ExchangeBatch(this, rateCache.snapshot());
+    }
+
+    Optional<CachedRate> route(RateSnapshot snapshot, int from, int to) {
+        return router.route(snapshot, from, to);
+    }
 
-        BigDecimal amount = request.getAmount()
+    ExchangeResponseDto exchange(ExchangeRequestDto request, RateLookup rates) {
+        int packedBaseCode = CurrencyUtil.toPackedCode(request.getBaseCurrencyCode());
+        int packedTargetCode = CurrencyUtil.toPackedCode(request.getTargetCurrencyCode());
+        return exchange(packedBaseCode, packedTargetCode, request.getAmount(), rates);
+    }
+
+    private ExchangeResponseDto exchange(int packedBaseCode, int packedTargetCode, BigDecimal requestedAmount,
+                                         RateLookup rates) {
+        CurrencyUtil.validatePackedCode(packedBaseCode);
+        CurrencyUtil.validatePackedCode(packedTargetCode);
+
+        BigDecimal amount = requestedAmount
                 .setScale(2, RoundingMode.HALF_EVEN);
 
         validateAmount(amount);
 
-        if (baseCurrencyCode.equals(targetCurrencyCode)) {
+        if (packedBaseCode == packedTargetCode) {
             throw new IllegalPararmeterException(USE_DIFFERENT_CURRENCIES);
         }
 
-        Optional<ExchangeRateEntity> rateOptional = getDirectRate(baseCurrencyCode, targetCurrencyCode)
-                         .or(() -> getReverseRate(baseCurrencyCode, targetCurrencyCode)
-                         .or(() -> getCrossRate(baseCurrencyCode, targetCurrencyCode)));
+        // Direct and reverse rates are one-hop routes, cross rates go through the configured hub currencies
+        Optional<CachedRate> rateOptional = rates.find(packedBaseCode, packedTargetCode);
 
         if (rateOptional.isEmpty()) {
-            throw new IllegalPararmeterException(NO_EXCHANGE_RATES_IN_DATABASE);
+            throw new IllegalPararmeterException(noExchangeRatesMessage);
         }
 
-        ExchangeRateEntity rateEntity = rateOptional.get();
+        CachedRate rate = rateOptional.get();
 
-        BigDecimal convertedAmount = calculateConvertedAmount(rateEntity.getRate(), amount);
+        BigDecimal convertedAmount = calculateConvertedAmount(rate, amount);
 
-        CurrencyResponseDto baseCurrencyResponseDto = mapper.toDto(rateEntity.getBaseCurrency());
-        CurrencyResponseDto targetCurrencyResponseDto = mapper.toDto(rateEntity.getTargetCurrency());
+        CurrencyResponseDto baseCurrencyResponseDto = mapper.toDto(rate.baseCurrency());
+        CurrencyResponseDto targetCurrencyResponseDto = mapper.toDto(rate.targetCurrency());
 
         return new ExchangeResponseDto(
-                baseCurrencyResponseDto, targetCurrencyResponseDto, rateEntity.getRate(), amount, convertedAmount);
+                baseCurrencyResponseDto, targetCurrencyResponseDto, rate.rate(), amount, convertedAmount);
+    }
+
+    private CompletableFuture<ExchangeResponseDto> completeNow(Supplier<ExchangeResponseDto> exchange) {
+        try {
+            return CompletableFuture.completedFuture(exchange.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<ExchangeResponseDto> supplyAsync(Supplier<ExchangeResponseDto> exchange) {
+        CompletableFuture<ExchangeResponseDto> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // Cancelled while queued, e.g. the request timed out: nobody is waiting for the answer any more
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(exchange.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private RateLookup asOfRates(Instant asOf) {
+        return (from, to) -> router.route(rateCache.snapshotAsOf(from, to, asOf), from, to);
     }
 
     public void validateAmount(BigDecimal amount) {
@@ -83,6 +176,18 @@ public class ExchangeService {
                 AMOUNT_ERROR_MESSAGE);
     }
 
+    private BigDecimal calculateConvertedAmount(CachedRate rate, BigDecimal validatedAmount) {
+        // rate in millionths times amount in cents gives units of 10^-8, rounded once to cents like the BigDecimal path
+        long amountCents = FixedPointUtil.toScaled(validatedAmount, CONVERTED_AMOUNT_SCALE);
+        long product = FixedPointUtil.multiply(rate.rateMicros(), amountCents);
+        long convertedCents = FixedPointUtil.divideHalfEven(product, MICROS_PER_CENT);
+
+        if (convertedCents == FixedPointUtil.NOT_REPRESENTABLE) {
+            return calculateConvertedAmount(rate.rate(), validatedAmount);
+        }
+        return FixedPointUtil.toPlainBigDecimal(convertedCents, CONVERTED_AMOUNT_SCALE);
+    }
+
     public BigDecimal calculateConvertedAmount(BigDecimal rate, BigDecimal validatedAmount) {
         return new BigDecimal(
                 rate.multiply(validatedAmount)
@@ -92,47 +197,7 @@ public class ExchangeService {
         );
     }
 
-    public Optional<ExchangeRateEntity> getDirectRate(String from, String to) {
-        // A--->B
-        // In the ExchangeRates table there is a currency pair AB - we take its rate
-        return rateDao.find(from + to);
-    }
-
-    public Optional<ExchangeRateEntity> getReverseRate(String from, String to) {
-        // A--->B
-        // In the ExchangeRates table there is a currency pair BA - we take its rate and calculate the reverse to get AB
-        Optional<ExchangeRateEntity> toFrom = rateDao.find(to + from);
-        if (toFrom.isPresent()) {
-            ExchangeRateEntity rateEntity = toFrom.get();
-            BigDecimal rate = BigDecimal.ONE.divide(rateEntity.getRate(), DECIMAL_PLACES, RoundingMode.HALF_EVEN);
-            rateEntity.setRate(rate);
-            return Optional.of(rateEntity);
-        } else {
-            return Optional.empty();
-        }
-    }
-
-    public Optional<ExchangeRateEntity> getCrossRate(String from, String to) {
-        // A--->B
-        // In the ExchangeRates table there are currency pairs USD-A and USD-B - we calculate the AB rate from these rates
-        Optional<ExchangeRateEntity> usdFrom = rateDao.find(USD + from);
-        Optional<ExchangeRateEntity> usdTo = rateDao.find(USD + to);
-
-        if (usdFrom.isPresent() && usdTo.isPresent()) {
-            ExchangeRateEntity usdFromEntity = usdFrom.get();
-            BigDecimal usdFromValue = usdFromEntity.getRate();
-
-            ExchangeRateEntity usdToEntity = usdTo.get();
-            BigDecimal usdToValue = usdToEntity.getRate();
-
-            BigDecimal rate = usdToValue.divide(usdFromValue, 6, RoundingMode.HALF_EVEN);
-            return Optional.of(
-                    new ExchangeRateEntity(
-                            usdFromEntity.getTargetCurrency(),
-                            usdToEntity.getTargetCurrency(),
-                            rate));
-        } else {
-            return Optional.empty();
-        }
+    interface RateLookup {
+        Optional<CachedRate> find(int packedBaseCode, int packedTargetCode);
     }
 }
@@ -1,13 +1,27 @@
 package org.proj3.currency_exchange.servlet;
 
 import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.proj3.currency_exchange.cache.ResponseCache;
+import org.proj3.currency_exchange.config.AppConfig;
 import org.proj3.currency_exchange.dto.ErrorResponse;
+import org.proj3.currency_exchange.dto.PageDto;
+import org.proj3.currency_exchange.exception.IllegalPararmeterException;
 import org.proj3.currency_exchange.util.JsonUtil;
 
 import java.io.IOException;
 
 public class BaseServlet extends HttpServlet {
+    protected static final String CURSOR_PARAMETER = "cursor";
+    private static final String LIMIT_PARAMETER = "limit";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String INVALID_PAGE_SIZE = "The page size must be a whole number from 1 to %d."
+            .formatted(MAX_PAGE_SIZE);
+
+    private final ResponseCache responseCache = AppConfig.getResponseCache();
 
     protected void sendErrorResponse(HttpServletResponse resp, int status, String message) throws IOException {
         ErrorResponse errorResponse = new ErrorResponse(message);
@@ -17,4 +31,54 @@ public class BaseServlet extends HttpServlet {
         resp.getWriter().write(json);
     }
 
+    // A list is sent page by page once the request names a page size, a cursor or one of the list's filters
+    protected boolean isPageRequest(HttpServletRequest req, String... filterParameters) {
+        if (req.getParameter(LIMIT_PARAMETER) != null || req.getParameter(CURSOR_PARAMETER) != null) {
+            return true;
+        }
+        for (String filterParameter : filterParameters) {
+            if (req.getParameter(filterParameter) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected int getPageSize(HttpServletRequest req) {
+        String limit = req.getParameter(LIMIT_PARAMETER);
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            int pageSize = Integer.parseInt(limit.trim());
+            if (pageSize >= 1 && pageSize <= MAX_PAGE_SIZE) {
+                return pageSize;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalPararmeterException(INVALID_PAGE_SIZE);
+    }
+
+    // The body stays the plain array of the unpaged list, the cursor of the next page goes in a header
+    protected void sendPage(HttpServletResponse resp, PageDto<?> page) throws IOException {
+        if (page.nextCursor() != null) {
+            resp.setHeader(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        resp.setStatus(HttpServletResponse.SC_OK);
+        JsonUtil.writeJson(resp.getOutputStream(), page.items());
+    }
+
+    // Between writes the same bytes are served again with a single write, without querying or serializing
+    protected void sendCachedBody(HttpServletResponse resp, String key, ResponseCache.BodyWriter writer) throws IOException {
+        if (!responseCache.isEnabled()) {
+            writer.writeTo(resp.getOutputStream());
+            return;
+        }
+
+        byte[] body = responseCache.get(key, writer);
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+
 }
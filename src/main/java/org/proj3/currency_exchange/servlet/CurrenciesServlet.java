@@ -11,7 +11,6 @@ import org.proj3.currency_exchange.service.CurrencyService;
 import org.proj3.currency_exchange.util.JsonUtil;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 
 @WebServlet("/currencies")
@@ -29,16 +28,23 @@ public class CurrenciesServlet extends BaseServlet {
 
     private static final String CURRENCY_CANNOT_BE_ADDED = "Currency cannot be added. ";
 
+    private static final String CODE_PREFIX_PARAMETER = "codePrefix";
+
+    private static final String CURRENCIES_BODY = "currencies";
+
     private final CurrencyService currencyService = AppConfig.getCurrencyService();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-                try {
-            List<CurrencyResponseDto> currencies = currencyService.findAll();
-            String json = JsonUtil.toJson(currencies);
+        if (isPageRequest(req, CODE_PREFIX_PARAMETER)) {
+            sendPage(resp, currencyService.findPage(req.getParameter(CODE_PREFIX_PARAMETER),
+                    req.getParameter(CURSOR_PARAMETER), getPageSize(req)));
+            return;
+        }
 
+                try {
             resp.setStatus(HttpServletResponse.SC_OK);
-            resp.getWriter().write(json);
+            sendCachedBody(resp, CURRENCIES_BODY, out -> JsonUtil.writeJson(out, currencyService.findAll()));
         } catch (DaoException e) {
             sendErrorResponse(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
         }
@@ -0,0 +1,31 @@
+package org.proj3.currency_exchange.servlet;
+
+import jakarta.servlet.annotation.WebServlet;
+import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.dto.CurrencyRequestDto;
+import org.proj3.currency_exchange.service.BulkImport;
+import org.proj3.currency_exchange.service.CurrencyService;
+
+import java.util.List;
+
+@WebServlet("/currencies/import")
+public class CurrencyImportServlet extends ImportServlet<CurrencyRequestDto> {
+    private static final List<String> FIELDS = List.of("code", "name", "sign");
+
+    private final CurrencyService currencyService = AppConfig.getCurrencyService();
+
+    @Override
+    protected List<String> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    protected BulkImport<CurrencyRequestDto> startImport() {
+        return currencyService.startImport();
+    }
+
+    @Override
+    protected CurrencyRequestDto toRequest(String[] values) {
+        return new CurrencyRequestDto(values[0], values[1], values[2]);
+    }
+}
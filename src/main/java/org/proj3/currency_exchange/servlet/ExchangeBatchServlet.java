@@ -0,0 +1,116 @@
+package org.proj3.currency_exchange.servlet;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.dto.ErrorResponse;
+import org.proj3.currency_exchange.dto.ExchangeRequestDto;
+import org.proj3.currency_exchange.exception.IllegalCurrencyCodeException;
+import org.proj3.currency_exchange.exception.IllegalPararmeterException;
+import org.proj3.currency_exchange.service.ExchangeBatch;
+import org.proj3.currency_exchange.service.ExchangeService;
+import org.proj3.currency_exchange.util.ExchangeUtil;
+import org.proj3.currency_exchange.util.JsonUtil;
+
+import java.io.IOException;
+
+@WebServlet("/exchange/batch")
+public class ExchangeBatchServlet extends BaseServlet {
+    private static final String PARAMETER_FROM = "from";
+    private static final String PARAMETER_TO = "to";
+    private static final String PARAMETER_AMOUNT = "amount";
+
+    private static final String INVALID_CONTENT_TYPE = "Invalid Content-Type. Expected \"application/json\".";
+    private static final String ARRAY_EXPECTED = "The request body must be a JSON array of {\"%s\", \"%s\", \"%s\"} objects."
+            .formatted(PARAMETER_FROM, PARAMETER_TO, PARAMETER_AMOUNT);
+    private static final String INVALID_ITEM = "Each item must be an object with non-empty \"%s\", \"%s\" and \"%s\" fields."
+            .formatted(PARAMETER_FROM, PARAMETER_TO, PARAMETER_AMOUNT);
+    private static final String MALFORMED_JSON = "Malformed JSON in the request body. Remaining items were skipped.";
+
+    private final ExchangeService exchangeService = AppConfig.getExchangeService();
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String contentType = req.getContentType();
+        if (contentType == null || !contentType.toLowerCase().startsWith("application/json")) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, INVALID_CONTENT_TYPE);
+            return;
+        }
+
+        try (JsonParser parser = JsonUtil.createParser(req.getInputStream())) {
+            if (readFirstToken(parser) != JsonToken.START_ARRAY) {
+                sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, ARRAY_EXPECTED);
+                return;
+            }
+
+            ExchangeBatch batch = exchangeService.startBatch();
+
+            resp.setStatus(HttpServletResponse.SC_OK);
+            try (JsonGenerator generator = JsonUtil.createGenerator(resp.getOutputStream())) {
+                generator.writeStartArray();
+                writeResults(parser, generator, batch);
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    private JsonToken readFirstToken(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private void writeResults(JsonParser parser, JsonGenerator generator, ExchangeBatch batch) throws IOException {
+        while (true) {
+            JsonNode item;
+            try {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    if (parser.currentToken() != JsonToken.END_ARRAY) {
+                        generator.writeObject(new ErrorResponse(INVALID_ITEM));
+                        parser.skipChildren();
+                        continue;
+                    }
+                    return;
+                }
+                item = parser.readValueAsTree();
+            } catch (JsonProcessingException e) {
+                generator.writeObject(new ErrorResponse(MALFORMED_JSON));
+                return;
+            }
+            generator.writeObject(exchange(item, batch));
+        }
+    }
+
+    private Object exchange(JsonNode item, ExchangeBatch batch) {
+        String from = textOf(item, PARAMETER_FROM);
+        String to = textOf(item, PARAMETER_TO);
+        String amount = textOf(item, PARAMETER_AMOUNT);
+
+        if (from == null || to == null || amount == null) {
+            return new ErrorResponse(INVALID_ITEM);
+        }
+
+        try {
+            ExchangeRequestDto requestDto = new ExchangeRequestDto(from, to, ExchangeUtil.convertToNumber(amount));
+            return batch.exchange(requestDto);
+        } catch (IllegalCurrencyCodeException | IllegalArgumentException | IllegalPararmeterException e) {
+            return new ErrorResponse(e.getMessage());
+        }
+    }
+
+    private String textOf(JsonNode item, String field) {
+        JsonNode value = item.get(field);
+        if (value == null || !value.isValueNode() || value.isNull() || value.asText().isEmpty()) {
+            return null;
+        }
+        return value.asText();
+    }
+}
@@ -0,0 +1,169 @@
+package org.proj3.currency_exchange.servlet;
+
+import org.proj3.currency_exchange.util.CurrencyUtil;
+import org.proj3.currency_exchange.util.ExchangeUtil;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+// The /exchange parameters read straight from the raw query string instead of the container's parameter map.
+// Values are kept as offsets into the query, so currency codes and plain amounts are parsed in place;
+// only a percent-encoded value is decoded into a new String
+public final class ExchangeQuery {
+    public static final String PARAMETER_FROM = "from";
+    public static final String PARAMETER_TO = "to";
+    public static final String PARAMETER_AMOUNT = "amount";
+    public static final String PARAMETER_AS_OF = "asOf";
+
+    private static final int ABSENT = -1;
+    // More digits than a long holds are left to BigDecimal's own parser
+    private static final int MAX_PLAIN_DIGITS = 18;
+
+    private final String query;
+
+    // The first occurrence of a parameter wins, as with getParameter
+    private int fromStart = ABSENT;
+    private int fromEnd;
+    private int toStart = ABSENT;
+    private int toEnd;
+    private int amountStart = ABSENT;
+    private int amountEnd;
+    private int asOfStart = ABSENT;
+    private int asOfEnd;
+
+    private ExchangeQuery(String query) {
+        this.query = query;
+    }
+
+    public static ExchangeQuery parse(String queryString) {
+        ExchangeQuery exchangeQuery = new ExchangeQuery(queryString == null ? "" : queryString);
+        exchangeQuery.scan();
+        return exchangeQuery;
+    }
+
+    public boolean hasRequiredParameters() {
+        return fromStart != ABSENT && toStart != ABSENT && amountStart != ABSENT;
+    }
+
+    public boolean isFromEmpty() {
+        return fromStart == fromEnd;
+    }
+
+    public boolean isToEmpty() {
+        return toStart == toEnd;
+    }
+
+    public boolean isAmountEmpty() {
+        return amountStart == amountEnd;
+    }
+
+    public boolean hasAsOf() {
+        return asOfStart != ABSENT;
+    }
+
+    public int packedFromCode() {
+        return packedCode(fromStart, fromEnd);
+    }
+
+    public int packedToCode() {
+        return packedCode(toStart, toEnd);
+    }
+
+    public BigDecimal amount() {
+        BigDecimal amount = parsePlainDecimal(amountStart, amountEnd);
+        return amount != null ? amount : ExchangeUtil.convertToNumber(value(amountStart, amountEnd));
+    }
+
+    public String asOf() {
+        return hasAsOf() ? value(asOfStart, asOfEnd) : null;
+    }
+
+    private void scan() {
+        int length = query.length();
+        int start = 0;
+        while (start < length) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            int nameEnd = start;
+            while (nameEnd < end && query.charAt(nameEnd) != '=') {
+                nameEnd++;
+            }
+            int valueStart = nameEnd == end ? end : nameEnd + 1;
+            assign(start, nameEnd, valueStart, end);
+            start = end + 1;
+        }
+    }
+
+    private void assign(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (fromStart == ABSENT && isName(PARAMETER_FROM, nameStart, nameEnd)) {
+            fromStart = valueStart;
+            fromEnd = valueEnd;
+        } else if (toStart == ABSENT && isName(PARAMETER_TO, nameStart, nameEnd)) {
+            toStart = valueStart;
+            toEnd = valueEnd;
+        } else if (amountStart == ABSENT && isName(PARAMETER_AMOUNT, nameStart, nameEnd)) {
+            amountStart = valueStart;
+            amountEnd = valueEnd;
+        } else if (asOfStart == ABSENT && isName(PARAMETER_AS_OF, nameStart, nameEnd)) {
+            asOfStart = valueStart;
+            asOfEnd = valueEnd;
+        }
+    }
+
+    private boolean isName(String name, int start, int end) {
+        if (isEncoded(start, end)) {
+            return name.equals(value(start, end));
+        }
+        return end - start == name.length() && query.regionMatches(start, name, 0, name.length());
+    }
+
+    private int packedCode(int start, int end) {
+        if (isEncoded(start, end)) {
+            return CurrencyUtil.toPackedCode(value(start, end));
+        }
+        return CurrencyUtil.toPackedCode(query, start, end);
+    }
+
+    // Digits with at most one '.' or ',' separator, the common spelling of an amount; null for anything else
+    private BigDecimal parsePlainDecimal(int start, int end) {
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_PLAIN_DIGITS) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (fraction) {
+                    scale++;
+                }
+            } else if ((c == '.' || c == ',') && !fraction) {
+                fraction = true;
+            } else {
+                return null;
+            }
+        }
+        return digits == 0 ? null : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private boolean isEncoded(int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String value(int start, int end) {
+        String value = query.substring(start, end);
+        return isEncoded(start, end) ? URLDecoder.decode(value, StandardCharsets.UTF_8) : value;
+    }
+}
@@ -0,0 +1,32 @@
+package org.proj3.currency_exchange.servlet;
+
+import jakarta.servlet.annotation.WebServlet;
+import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.dto.ExchangeRateRequestDto;
+import org.proj3.currency_exchange.service.BulkImport;
+import org.proj3.currency_exchange.service.ExchangeRateService;
+import org.proj3.currency_exchange.util.ExchangeUtil;
+
+import java.util.List;
+
+@WebServlet("/exchangeRates/import")
+public class ExchangeRateImportServlet extends ImportServlet<ExchangeRateRequestDto> {
+    private static final List<String> FIELDS = List.of("baseCurrencyCode", "targetCurrencyCode", "rate");
+
+    private final ExchangeRateService exchangeRateService = AppConfig.getExchangeRateService();
+
+    @Override
+    protected List<String> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    protected BulkImport<ExchangeRateRequestDto> startImport() {
+        return exchangeRateService.startImport();
+    }
+
+    @Override
+    protected ExchangeRateRequestDto toRequest(String[] values) {
+        return new ExchangeRateRequestDto(values[0], values[1], ExchangeUtil.convertToNumber(values[2]));
+    }
+}
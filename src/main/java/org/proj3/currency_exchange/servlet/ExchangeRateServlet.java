@@ -4,7 +4,9 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.proj3.currency_exchange.candle.Resolution;
 import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.dto.CandlesResponseDto;
 import org.proj3.currency_exchange.dto.ExchangeRateResponseDto;
 import org.proj3.currency_exchange.service.ExchangeRateService;
 import org.proj3.currency_exchange.util.JsonUtil;
@@ -30,6 +32,14 @@ public class ExchangeRateServlet extends BaseServlet {
     private static final String ERROR_READING_REQUEST_BODY = "Error reading request body";
     private static final String RATE = "rate";
 
+    private static final String CANDLES_PATH = "/candles";
+    private static final String PARAMETER_RESOLUTION = "resolution";
+    private static final String PARAMETER_LIMIT = "limit";
+    private static final String DEFAULT_RESOLUTION = "1m";
+    private static final int DEFAULT_LIMIT = 60;
+    private static final String INVALID_LIMIT = "Invalid \"%s\". Please enter a positive whole number of candles."
+            .formatted(PARAMETER_LIMIT);
+
     private final ExchangeRateService exchangeRateService = AppConfig.getExchangeRateService();
 
     @Override
@@ -40,6 +50,11 @@ public class ExchangeRateServlet extends BaseServlet {
             return;
         }
 
+        if (currencyPair.endsWith(CANDLES_PATH)) {
+            sendCandles(req, resp, currencyPair.substring(0, currencyPair.length() - CANDLES_PATH.length()));
+            return;
+        }
+
         Optional<ExchangeRateResponseDto> response = exchangeRateService.findByCode(currencyPair);
         if (response.isPresent()) {
             ExchangeRateResponseDto responseDto = response.get();
@@ -53,6 +68,38 @@ public class ExchangeRateServlet extends BaseServlet {
         }
     }
 
+    // GET /exchangeRate/{pair}/candles?resolution=1m|1h|1d&limit=N, the latest N candles oldest first
+    private void sendCandles(HttpServletRequest req, HttpServletResponse resp, String currencyPair) throws IOException {
+        if (validateAndSendErrorForEmptyCurrencyPair(resp, currencyPair)) {
+            return;
+        }
+
+        String resolutionParameter = req.getParameter(PARAMETER_RESOLUTION);
+        Resolution resolution = Resolution.fromLabel(resolutionParameter == null ? DEFAULT_RESOLUTION : resolutionParameter.trim());
+
+        int limit = DEFAULT_LIMIT;
+        String limitParameter = req.getParameter(PARAMETER_LIMIT);
+        if (limitParameter != null) {
+            try {
+                limit = Integer.parseInt(limitParameter.trim());
+            } catch (NumberFormatException e) {
+                limit = 0;
+            }
+            if (limit <= 0) {
+                sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, INVALID_LIMIT);
+                return;
+            }
+        }
+
+        Optional<CandlesResponseDto> response = exchangeRateService.findCandles(currencyPair, resolution, limit);
+        if (response.isPresent()) {
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.getWriter().write(JsonUtil.toJson(response.get()));
+        } else {
+            sendErrorResponse(resp, HttpServletResponse.SC_NOT_FOUND, EXCHANGE_RATE_NOT_FOUND);
+        }
+    }
+
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String method = req.getMethod();
@@ -66,10 +113,39 @@ public class ExchangeRateServlet extends BaseServlet {
 
     @Override
     protected void doPatch(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        if (validateAndSendErrorForInvalidContentType(req, resp)){
+        BigDecimal exchangeRate = readRate(req, resp);
+        if (exchangeRate == null) {
             return;
         }
 
+        ExchangeRateResponseDto response = exchangeRateService.update(req.getPathInfo(), exchangeRate);
+
+        String json = JsonUtil.toJson(response);
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.getWriter().write(json);
+    }
+
+    // Creates the pair or replaces its rate, with the same form body as PATCH
+    @Override
+    protected void doPut(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        BigDecimal exchangeRate = readRate(req, resp);
+        if (exchangeRate == null) {
+            return;
+        }
+
+        ExchangeRateResponseDto response = exchangeRateService.saveOrUpdate(req.getPathInfo(), exchangeRate);
+
+        String json = JsonUtil.toJson(response);
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.getWriter().write(json);
+    }
+
+    // The rate from a form-encoded body, or null after an error response has been sent
+    private BigDecimal readRate(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (validateAndSendErrorForInvalidContentType(req, resp)){
+            return null;
+        }
+
         StringBuilder requestBody = new StringBuilder();
         try (BufferedReader reader = req.getReader()) {
             String line;
@@ -78,7 +154,7 @@ public class ExchangeRateServlet extends BaseServlet {
             }
         } catch (IOException e) {
             sendErrorResponse(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ERROR_READING_REQUEST_BODY);
-            return;
+            return null;
         }
 
         String body = requestBody.toString();
@@ -87,16 +163,16 @@ public class ExchangeRateServlet extends BaseServlet {
 
         String currencyPair = req.getPathInfo();
         if (validateAndSendErrorForEmptyCurrencyPair(resp, currencyPair)) {
-            return;
+            return null;
         }
 
         if (!parameters.containsKey(RATE)) {
             sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, PARAMETER_IS_MISSING);
-            return;
+            return null;
         }
 
         if (validateAndSendErrorForEmptyRequestParameters(parameters, resp)) {
-            return;
+            return null;
         }
 
         String rateFromParameter = parameters.get(RATE)
@@ -104,15 +180,10 @@ public class ExchangeRateServlet extends BaseServlet {
                 .replaceAll(",", ".");
 
         try {
-            BigDecimal exchangeRate = new BigDecimal(rateFromParameter);
-            ExchangeRateResponseDto response = exchangeRateService.update(currencyPair, exchangeRate);
-
-            String json = JsonUtil.toJson(response);
-            resp.setStatus(HttpServletResponse.SC_OK);
-            resp.getWriter().write(json);
-
+            return new BigDecimal(rateFromParameter);
         } catch (NumberFormatException e) {
             sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, INVALID_EXCHANGE_RATE);
+            return null;
         }
     }
 
@@ -1,5 +1,6 @@
 package org.proj3.currency_exchange.servlet;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -10,8 +11,8 @@ import org.proj3.currency_exchange.service.ExchangeRateService;
 import org.proj3.currency_exchange.util.JsonUtil;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.util.List;
 import java.util.Map;
 
 @WebServlet("/exchangeRates")
@@ -21,19 +22,84 @@ public class ExchangeRatesServlet extends BaseServlet {
     private static final String EMPTY_TARGET_CURRENCY_CODE = "Target currency code cannot be empty.";
     private static final String EMPTY_RATE = "Rate cannot be empty.";
     private static final String INVALID_EXCHANGE_RATE = "The exchange rate is not a number. Enter a positive number.";
+    private static final String INVALID_SINCE = "The change version must be a non-negative whole number.";
     private static final String BASE_CURRENCY_PARAMETER = "baseCurrencyCode";
     private static final String TARGET_CURRENCY_PARAMETER = "targetCurrencyCode";
     private static final String RATE_PARAMETER = "rate";
+    private static final String SINCE_PARAMETER = "since";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    private static final String EXCHANGE_RATES_BODY = "exchangeRates";
+    private static final String EXCHANGE_RATES_NDJSON_BODY = "exchangeRates.ndjson";
+    private static final String EXCHANGE_RATES_FIELD = "exchangeRates";
+    private static final String VERSION_FIELD = "version";
 
     private final ExchangeRateService exchangeRateService = AppConfig.getExchangeRateService();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        List<ExchangeRateResponseDto> exchangeRates = exchangeRateService.findAll();
-        String json = JsonUtil.toJson(exchangeRates);
+        String since = req.getParameter(SINCE_PARAMETER);
+        if (since != null) {
+            sendChangedExchangeRates(since, resp);
+            return;
+        }
+        if (isPageRequest(req, BASE_CURRENCY_PARAMETER, TARGET_CURRENCY_PARAMETER)) {
+            sendPage(resp, exchangeRateService.findPage(req.getParameter(BASE_CURRENCY_PARAMETER),
+                    req.getParameter(TARGET_CURRENCY_PARAMETER), req.getParameter(CURSOR_PARAMETER),
+                    getPageSize(req)));
+            return;
+        }
 
+        boolean ndjson = acceptsNdjson(req);
+        if (ndjson) {
+            resp.setContentType(NDJSON_CONTENT_TYPE);
+        }
         resp.setStatus(HttpServletResponse.SC_OK);
-        resp.getWriter().write(json);
+
+        String key = ndjson ? EXCHANGE_RATES_NDJSON_BODY : EXCHANGE_RATES_BODY;
+        sendCachedBody(resp, key, out -> writeExchangeRates(out, ndjson));
+    }
+
+    private void writeExchangeRates(OutputStream out, boolean ndjson) throws IOException {
+        // Not closed on failure: closing would commit the partial body before the error can be reported
+        JsonGenerator generator = JsonUtil.createGenerator(out);
+        if (ndjson) {
+            generator.setRootValueSeparator(null);
+            exchangeRateService.streamAll(exchangeRate -> {
+                generator.writeObject(exchangeRate);
+                generator.writeRaw('\n');
+            });
+        } else {
+            generator.writeStartArray();
+            exchangeRateService.streamAll(generator::writeObject);
+            generator.writeEndArray();
+        }
+        generator.close();
+    }
+
+    // Only the rates written after the given version, with the version to send next time. The body depends on the
+    // caller's version, so it is built for each request instead of going through the response cache
+    private void sendChangedExchangeRates(String since, HttpServletResponse resp) throws IOException {
+        long changeVersion;
+        try {
+            changeVersion = Long.parseLong(since.trim());
+        } catch (NumberFormatException e) {
+            changeVersion = -1;
+        }
+        if (changeVersion < 0) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, INVALID_SINCE);
+            return;
+        }
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        JsonGenerator generator = JsonUtil.createGenerator(resp.getOutputStream());
+        generator.writeStartObject();
+        generator.writeArrayFieldStart(EXCHANGE_RATES_FIELD);
+        long lastChangeVersion = exchangeRateService.streamChangedSince(changeVersion, generator::writeObject);
+        generator.writeEndArray();
+        generator.writeNumberField(VERSION_FIELD, lastChangeVersion);
+        generator.writeEndObject();
+        generator.close();
     }
 
     @Override
@@ -60,6 +126,11 @@ public class ExchangeRatesServlet extends BaseServlet {
         resp.getWriter().write(json);
     }
 
+    private boolean acceptsNdjson(HttpServletRequest req) {
+        String accept = req.getHeader("Accept");
+        return accept != null && accept.contains(NDJSON_CONTENT_TYPE);
+    }
+
     private boolean validateAndSendErrorWhenParameterNamesInvalid(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         Map<String, String[]> parameterMap = req.getParameterMap();
 
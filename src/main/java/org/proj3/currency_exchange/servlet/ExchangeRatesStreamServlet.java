@@ -0,0 +1,48 @@
+package org.proj3.currency_exchange.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.stream.RateFeed;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// GET /exchangeRates/stream: rate changes as Server-Sent Events, instead of polling GET /exchangeRates
+@WebServlet(value = "/exchangeRates/stream", asyncSupported = true)
+public class ExchangeRatesStreamServlet extends BaseServlet {
+    private static final String EVENT_STREAM_CONTENT_TYPE = "text/event-stream";
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    // EventSource only sends the header when it reconnects, a page that reopens a stream passes the id here
+    private static final String LAST_EVENT_ID_PARAMETER = "lastEventId";
+
+    private final RateFeed rateFeed = AppConfig.getRateFeed();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(EVENT_STREAM_CONTENT_TYPE);
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resp.setHeader("Cache-Control", "no-cache");
+        // Proxies such as nginx would otherwise hold events back until their buffer fills
+        resp.setHeader("X-Accel-Buffering", "no");
+
+        String lastEventId = req.getHeader(LAST_EVENT_ID_HEADER);
+        if (lastEventId == null) {
+            lastEventId = req.getParameter(LAST_EVENT_ID_PARAMETER);
+        }
+
+        // The stream stays open until the client disconnects; heartbeats find connections that died silently
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(0);
+
+        ServletOutputStream out = resp.getOutputStream();
+        SseConnection connection = new SseConnection(rateFeed, asyncContext, out);
+        asyncContext.addListener(connection);
+        out.setWriteListener(connection);
+        rateFeed.subscribe(connection, lastEventId);
+    }
+}
@@ -1,23 +1,33 @@
 package org.proj3.currency_exchange.servlet;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.proj3.currency_exchange.config.AppConfig;
-import org.proj3.currency_exchange.dto.ExchangeRequestDto;
 import org.proj3.currency_exchange.dto.ExchangeResponseDto;
+import org.proj3.currency_exchange.filter.ExceptionHandlingFilter;
+import org.proj3.currency_exchange.metrics.MetricsRegistry;
 import org.proj3.currency_exchange.service.ExchangeService;
 import org.proj3.currency_exchange.util.ExchangeUtil;
 import org.proj3.currency_exchange.util.JsonUtil;
+import org.proj3.currency_exchange.util.PropertiesUtil;
 
 import java.io.IOException;
-import java.util.*;
+import java.math.BigDecimal;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
-@WebServlet("/exchange")
+@WebServlet(value = "/exchange", asyncSupported = true)
 public class ExchangeServlet extends BaseServlet {
-    private static final String PARAMETER_FROM = "from";
-    private static final String PARAMETER_TO = "to";
-    private static final String PARAMETER_AMOUNT = "amount";
+    private static final String PARAMETER_FROM = ExchangeQuery.PARAMETER_FROM;
+    private static final String PARAMETER_TO = ExchangeQuery.PARAMETER_TO;
+    private static final String PARAMETER_AMOUNT = ExchangeQuery.PARAMETER_AMOUNT;
+    private static final String PARAMETER_AS_OF = ExchangeQuery.PARAMETER_AS_OF;
     private static final String REQUIRED_PARAMETERS_MISSING = "One or more parameters have invalid names or are missing. " +
                                                               "Required parameters: \"%s\", \"%s\", \"%s\""
                                                                       .formatted(PARAMETER_FROM, PARAMETER_TO, PARAMETER_AMOUNT);
@@ -25,73 +35,154 @@ public class ExchangeServlet extends BaseServlet {
     private static final String FROM_FIELD_EMPTY = "The \"%s\" field is empty. Please provide the base currency code.".formatted(PARAMETER_FROM);
     private static final String TO_FIELD_EMPTY = "The \"%s\" field is empty. Please provide the target currency code.".formatted(PARAMETER_TO);
     private static final String AMOUNT_FIELD_EMPTY = "The \"%s\" field is empty. Please specify the amount.".formatted(PARAMETER_AMOUNT);
+    private static final String AS_OF_FIELD_EMPTY = "The \"%s\" field is empty. Please provide a timestamp or leave it out.".formatted(PARAMETER_AS_OF);
+
+    private static final String SERVER_BUSY = "Too many exchange requests are waiting for the database. Please try again later.";
+    private static final String TIMED_OUT = "The exchange took too long to complete. Please try again later.";
+    private static final String INTERNAL_ERROR = "The exchange could not be completed.";
+
+    private static final String ASYNC_TIMEOUT_KEY = "exchange.async.timeoutMillis";
 
     private final ExchangeService exchangeService = AppConfig.getExchangeService();
+    private final MetricsRegistry metricsRegistry = AppConfig.getMetricsRegistry();
+    private final long asyncTimeoutMillis = Long.parseLong(PropertiesUtil.get(ASYNC_TIMEOUT_KEY, "10000"));
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        Map<String, String[]> parameterMap = req.getParameterMap();
+        // Parsing the raw query string leaves the container's parameter map unbuilt
+        ExchangeQuery query = ExchangeQuery.parse(req.getQueryString());
 
-        if (sendErrorIfParameterNameInvalid(parameterMap, resp)) {
+        if (!query.hasRequiredParameters()) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, REQUIRED_PARAMETERS_MISSING);
             return;
         }
 
-        List<ParameterCheck> paramsToCheck = getParametersToCheck(parameterMap);
-        if (sendErrorIfParameterEmpty(paramsToCheck, resp)) {
+        String emptyFieldMessage = findEmptyField(query);
+        if (emptyFieldMessage != null) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, emptyFieldMessage);
             return;
         }
 
-        String from = paramsToCheck.get(0).value();
-        String to = paramsToCheck.get(1).value();
-        String amount = paramsToCheck.get(2).value();
+        BigDecimal amount = query.amount();
+
+        // Without asOf the current rates are used, with it the rates that were in effect at that instant
+        CompletableFuture<ExchangeResponseDto> exchange;
+        if (!query.hasAsOf()) {
+            exchange = exchangeService.exchangeAsync(query.packedFromCode(), query.packedToCode(), amount);
+        } else {
+            String asOf = query.asOf();
+            if (asOf.isBlank()) {
+                sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, AS_OF_FIELD_EMPTY);
+                return;
+            }
+            exchange = exchangeService.exchangeAsync(query.packedFromCode(), query.packedToCode(), amount,
+                    ExchangeUtil.convertToInstant(asOf));
+        }
 
-        ExchangeRequestDto requestDto = new ExchangeRequestDto(from, to, ExchangeUtil.convertToNumber(amount));
+        // Answered from memory, or turned away because the executor is full: no reason to leave the container thread
+        if (exchange.isDone()) {
+            ExchangeResponseDto responseDto;
+            try {
+                responseDto = exchange.join();
+            } catch (CompletionException e) {
+                sendError(req, resp, unwrap(e));
+                return;
+            }
+            sendExchange(resp, responseDto);
+            return;
+        }
 
-        ExchangeResponseDto responseDto = exchangeService.exchange(requestDto);
+        // Otherwise the container thread is released while the lookup waits for a connection and runs its query
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(asyncTimeoutMillis);
+        asyncContext.addListener(new TimeoutListener(exchange));
+        exchange.whenComplete((responseDto, error) -> {
+            // Cancelled by a timeout, which has already answered
+            if (error instanceof CancellationException) {
+                return;
+            }
+            try {
+                if (error == null) {
+                    sendExchange(resp, responseDto);
+                } else {
+                    sendError(req, resp, unwrap(error));
+                }
+            } catch (IOException e) {
+                metricsRegistry.recordError(req.getHttpServletMapping().getPattern(), e);
+            } finally {
+                asyncContext.complete();
+            }
+        });
+    }
 
+    private void sendExchange(HttpServletResponse resp, ExchangeResponseDto responseDto) throws IOException {
         String json = JsonUtil.toJson(responseDto);
 
         resp.setStatus(HttpServletResponse.SC_OK);
         resp.getWriter().write(json);
     }
 
-    private boolean sendErrorIfParameterNameInvalid(Map<String, String[]> parameterMap, HttpServletResponse resp) throws IOException {
-        Set<String> validParameterNames = Set.of(PARAMETER_FROM, PARAMETER_TO, PARAMETER_AMOUNT);
-
-        if (isParameterNamesInvalid(parameterMap, validParameterNames)) {
-            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, REQUIRED_PARAMETERS_MISSING);
-            return true;
+    // The mapping of ExceptionHandlingFilter, which has already returned when an async exchange fails
+    private void sendError(HttpServletRequest req, HttpServletResponse resp, Throwable error) throws IOException {
+        metricsRegistry.recordError(req.getHttpServletMapping().getPattern(), error);
+        if (error instanceof RejectedExecutionException) {
+            sendErrorResponse(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, SERVER_BUSY);
+            return;
+        }
+        int status = ExceptionHandlingFilter.statusOf(error);
+        if (status == ExceptionHandlingFilter.UNHANDLED) {
+            sendErrorResponse(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, INTERNAL_ERROR);
+        } else {
+            sendErrorResponse(resp, status, error.getMessage());
         }
-        return false;
     }
 
-    private boolean isParameterNamesInvalid(Map<String, String[]> parameterMap, Set<String> validNames) {
-        Set<String> parameterNames = parameterMap.keySet();
-        return !parameterNames.containsAll(validNames);
+    private static RuntimeException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(cause);
     }
 
-    private boolean sendErrorIfParameterEmpty(List<ParameterCheck> parametersToCheck, HttpServletResponse resp) throws IOException {
-        for (ParameterCheck parameter : parametersToCheck) {
-            if (parameter.isEmpty()) {
-                sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, parameter.errorMessage());
-                return true;
-            }
+    private String findEmptyField(ExchangeQuery query) {
+        if (query.isFromEmpty()) {
+            return FROM_FIELD_EMPTY;
+        }
+        if (query.isToEmpty()) {
+            return TO_FIELD_EMPTY;
         }
-        return false;
+        if (query.isAmountEmpty()) {
+            return AMOUNT_FIELD_EMPTY;
+        }
+        return null;
     }
 
-    private List<ParameterCheck> getParametersToCheck(Map<String, String[]> parameterMap) {
-        return List.of(
-                new ParameterCheck(PARAMETER_FROM, parameterMap.get(PARAMETER_FROM)[0], FROM_FIELD_EMPTY),
-                new ParameterCheck(PARAMETER_TO, parameterMap.get(PARAMETER_TO)[0], TO_FIELD_EMPTY),
-                new ParameterCheck(PARAMETER_AMOUNT, parameterMap.get(PARAMETER_AMOUNT)[0], AMOUNT_FIELD_EMPTY)
-        );
-    }
+    private class TimeoutListener implements AsyncListener {
+        private final CompletableFuture<ExchangeResponseDto> exchange;
 
-    private record ParameterCheck(String name, String value, String errorMessage) {
-        private boolean isEmpty() {
-            return value == null || value.isEmpty();
+        TimeoutListener(CompletableFuture<ExchangeResponseDto> exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            // Losing the race means the exchange finished first and is completing the response itself
+            if (exchange.cancel(false)) {
+                HttpServletResponse resp = (HttpServletResponse) event.getAsyncContext().getResponse();
+                sendErrorResponse(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, TIMED_OUT);
+                event.getAsyncContext().complete();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
         }
-    }
 
+        @Override
+        public void onError(AsyncEvent event) {
+            exchange.cancel(false);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
 }
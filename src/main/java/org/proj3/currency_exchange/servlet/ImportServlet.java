@@ -0,0 +1,187 @@
+package org.proj3.currency_exchange.servlet;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.proj3.currency_exchange.dto.ImportResponseDto;
+import org.proj3.currency_exchange.service.BulkImport;
+import org.proj3.currency_exchange.util.CsvUtil;
+import org.proj3.currency_exchange.util.JsonUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Bulk import from a CSV body with a header row, or from a JSON array of objects. Rows are read one at a time,
+// rows that fail validation are reported by number (the line for CSV, the position in the array for JSON) and
+// all other rows are written in one transaction. A body that cannot be read as a whole is rejected with nothing written
+public abstract class ImportServlet<T> extends BaseServlet {
+    private static final String CSV_CONTENT_TYPE = "text/csv";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private static final String INVALID_CONTENT_TYPE = "Invalid Content-Type. Expected \"text/csv\" or \"application/json\".";
+    private static final String INVALID_HEADER = "The first CSV line must name the columns: %s.";
+    private static final String ARRAY_EXPECTED = "The request body must be a JSON array of objects with the fields: %s.";
+    private static final String INVALID_ROW = "Each row must have non-empty values for: %s.";
+    private static final String MALFORMED_JSON = "Malformed JSON in the request body. Nothing was imported.";
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String contentType = req.getContentType() == null ? "" : req.getContentType().toLowerCase();
+
+        BulkImport<T> bulkImport;
+        if (contentType.startsWith(CSV_CONTENT_TYPE)) {
+            bulkImport = startImport();
+            if (!readCsv(req, bulkImport)) {
+                sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, INVALID_HEADER.formatted(fieldList()));
+                return;
+            }
+        } else if (contentType.startsWith(JSON_CONTENT_TYPE)) {
+            bulkImport = startImport();
+            try {
+                if (!readJson(req, bulkImport)) {
+                    sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, ARRAY_EXPECTED.formatted(fieldList()));
+                    return;
+                }
+            } catch (JsonProcessingException e) {
+                sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, MALFORMED_JSON);
+                return;
+            }
+        } else {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, INVALID_CONTENT_TYPE);
+            return;
+        }
+
+        ImportResponseDto response = bulkImport.commit();
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.getWriter().write(JsonUtil.toJson(response));
+    }
+
+    // Column and field names, in the order toRequest receives the values
+    protected abstract List<String> fields();
+
+    protected abstract BulkImport<T> startImport();
+
+    // Values are trimmed and never empty; throws IllegalArgumentException for a value of the wrong kind
+    protected abstract T toRequest(String[] values);
+
+    private boolean readCsv(HttpServletRequest req, BulkImport<T> bulkImport) throws IOException {
+        List<String> fields = fields();
+        // Currency signs are not ASCII, and the servlet default for a request without a charset is ISO-8859-1
+        if (req.getCharacterEncoding() == null) {
+            req.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        BufferedReader reader = req.getReader();
+
+        String header = reader.readLine();
+        if (header == null) {
+            return false;
+        }
+        int[] columns;
+        try {
+            columns = columnIndexes(CsvUtil.parseLine(stripByteOrderMark(header)), fields);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (columns == null) {
+            return false;
+        }
+
+        int lineNumber = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                List<String> values = CsvUtil.parseLine(line);
+                String[] ordered = new String[fields.size()];
+                for (int i = 0; i < columns.length; i++) {
+                    ordered[i] = columns[i] < values.size() ? values.get(columns[i]) : null;
+                }
+                addRow(bulkImport, lineNumber, ordered);
+            } catch (IllegalArgumentException e) {
+                bulkImport.reject(lineNumber, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private boolean readJson(HttpServletRequest req, BulkImport<T> bulkImport) throws IOException {
+        List<String> fields = fields();
+        try (JsonParser parser = JsonUtil.createParser(req.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return false;
+            }
+
+            int rowNumber = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                rowNumber++;
+                if (parser.currentToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    bulkImport.reject(rowNumber, INVALID_ROW.formatted(fieldList()));
+                    continue;
+                }
+
+                JsonNode item = parser.readValueAsTree();
+                String[] values = new String[fields.size()];
+                for (int i = 0; i < values.length; i++) {
+                    JsonNode value = item.get(fields.get(i));
+                    values[i] = value == null || !value.isValueNode() || value.isNull() ? null : value.asText();
+                }
+                addRow(bulkImport, rowNumber, values);
+            }
+            return true;
+        }
+    }
+
+    private void addRow(BulkImport<T> bulkImport, int rowNumber, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values[i] == null ? null : values[i].trim();
+            if (values[i] == null || values[i].isEmpty()) {
+                bulkImport.reject(rowNumber, INVALID_ROW.formatted(fieldList()));
+                return;
+            }
+        }
+
+        T request;
+        try {
+            request = toRequest(values);
+        } catch (IllegalArgumentException e) {
+            bulkImport.reject(rowNumber, e.getMessage());
+            return;
+        }
+        bulkImport.add(rowNumber, request);
+    }
+
+    // Position of each field in the CSV header, null when one is missing
+    private int[] columnIndexes(List<String> header, List<String> fields) {
+        int[] columns = new int[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            columns[i] = -1;
+            for (int j = 0; j < header.size(); j++) {
+                if (header.get(j).trim().equalsIgnoreCase(fields.get(i))) {
+                    columns[i] = j;
+                    break;
+                }
+            }
+            if (columns[i] < 0) {
+                return null;
+            }
+        }
+        return columns;
+    }
+
+    private String stripByteOrderMark(String line) {
+        return !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    private String fieldList() {
+        return String.join(", ", fields());
+    }
+}
@@ -0,0 +1,27 @@
+package org.proj3.currency_exchange.servlet;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.metrics.MetricsRegistry;
+
+import java.io.IOException;
+
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+    private final MetricsRegistry metricsRegistry = AppConfig.getMetricsRegistry();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!metricsRegistry.isEnabled()) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(metricsRegistry.getContentType());
+        metricsRegistry.writePrometheus(resp.getWriter());
+    }
+}
@@ -0,0 +1,96 @@
+package org.proj3.currency_exchange.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.proj3.currency_exchange.stream.FeedSubscriber;
+import org.proj3.currency_exchange.stream.RateFeed;
+
+import java.io.IOException;
+
+// One event stream response in non-blocking mode: frames are written while the connection accepts them
+// without blocking, the container calls onWritePossible when a full socket buffer has drained
+class SseConnection extends FeedSubscriber implements WriteListener, AsyncListener {
+    private final RateFeed rateFeed;
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+
+    private boolean flushPending;
+    private boolean closed;
+
+    SseConnection(RateFeed rateFeed, AsyncContext asyncContext, ServletOutputStream out) {
+        super(rateFeed.getSubscriberBufferSize());
+        this.rateFeed = rateFeed;
+        this.asyncContext = asyncContext;
+        this.out = out;
+    }
+
+    @Override
+    protected void onAvailable() {
+        drain();
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        rateFeed.unsubscribe(this);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    // Publishers and the container both call in here, the lock keeps their writes from interleaving
+    private synchronized void drain() {
+        if (closed) {
+            return;
+        }
+        try {
+            while (out.isReady()) {
+                byte[] frame = poll();
+                if (frame != null) {
+                    out.write(frame);
+                    flushPending = true;
+                } else if (flushPending) {
+                    flushPending = false;
+                    out.flush();
+                } else {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The client went away
+            close();
+        }
+    }
+
+    private synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        rateFeed.unsubscribe(this);
+        asyncContext.complete();
+    }
+}
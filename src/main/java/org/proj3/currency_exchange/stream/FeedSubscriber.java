@@ -0,0 +1,39 @@
+package org.proj3.currency_exchange.stream;
+
+import java.util.ArrayDeque;
+
+// The frames a subscriber has not written yet. The buffer is bounded: a subscriber that falls behind loses its
+// backlog and gets a single resync event instead, so a slow client never holds memory or the publisher back
+public abstract class FeedSubscriber {
+    private final int capacity;
+    private final ArrayDeque<byte[]> pending;
+
+    protected FeedSubscriber(int capacity) {
+        this.capacity = capacity;
+        this.pending = new ArrayDeque<>(capacity);
+    }
+
+    // Called on the feed's thread after frames were added, and once on the subscribing thread; must not block
+    protected abstract void onAvailable();
+
+    protected synchronized byte[] poll() {
+        return pending.poll();
+    }
+
+    synchronized boolean offer(byte[] frame) {
+        if (pending.size() >= capacity) {
+            return false;
+        }
+        pending.add(frame);
+        return true;
+    }
+
+    synchronized void replaceAll(byte[] frame) {
+        pending.clear();
+        pending.add(frame);
+    }
+
+    synchronized boolean isIdle() {
+        return pending.isEmpty();
+    }
+}
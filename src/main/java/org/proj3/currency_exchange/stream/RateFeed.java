@@ -0,0 +1,198 @@
+package org.proj3.currency_exchange.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.proj3.currency_exchange.dto.ExchangeRateResponseDto;
+import org.proj3.currency_exchange.util.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Committed rate changes as Server-Sent Events. Each event is encoded once into a complete frame and handed to every
+// subscriber's buffer, the writer never waits for a connection. The latest events are kept so a client that
+// reconnects with its Last-Event-ID gets what it missed, or a resync event when that is no longer known
+public class RateFeed implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RateFeed.class);
+
+    public static final String RESYNC_IMPORT = "import";
+    private static final String RESYNC_OVERFLOW = "overflow";
+    private static final String RESYNC_UNKNOWN_ID = "unknownEventId";
+    private static final String RESYNC_ENCODING_FAILED = "encodingFailed";
+
+    private static final String RATE_EVENT = "rate";
+    private static final String RESYNC_EVENT = "resync";
+    private static final long RETRY_MILLIS = 3000;
+    private static final long NO_SEQUENCE = -1;
+
+    // Sequences restart with the application, so an event id also names the run it belongs to
+    private static final String BOOT_ID = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private static final String ID_PREFIX = BOOT_ID + "-";
+
+    private static final byte[] RETRY_FRAME = ("retry: " + RETRY_MILLIS + "\n\n").getBytes(StandardCharsets.UTF_8);
+    // A comment line: ignored by clients, but it keeps proxies from closing an idle stream and finds dead connections
+    private static final byte[] HEARTBEAT_FRAME = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final int subscriberBufferSize;
+    private final byte[][] history;
+    private final Set<FeedSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Object lock = new Object();
+    private final LongAdder overflows = new LongAdder();
+    // Subscribers are told about new frames on the feed's own thread, so the committing request only enqueues
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean notifyScheduled = new AtomicBoolean();
+
+    private long lastSequence;
+
+    private RateFeed(int historySize, int subscriberBufferSize, long heartbeatSeconds) {
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.history = new byte[historySize][];
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    public static RateFeed createInstance(int historySize, int subscriberBufferSize, long heartbeatSeconds) {
+        return new RateFeed(historySize, subscriberBufferSize, heartbeatSeconds);
+    }
+
+    public int getSubscriberBufferSize() {
+        return subscriberBufferSize;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    // Called after the change is committed, inside RateCache.inCommitOrder: sequence numbers follow the commit order
+    public void publish(ExchangeRateResponseDto exchangeRate) {
+        String data;
+        try {
+            data = JsonUtil.toJson(exchangeRate);
+        } catch (JsonProcessingException e) {
+            // The change is committed either way: subscribers that cannot be told what changed reload everything
+            log.warn("Cannot encode a rate change event, subscribers are asked to resync", e);
+            publishResync(RESYNC_ENCODING_FAILED);
+            return;
+        }
+        publish(RATE_EVENT, data);
+    }
+
+    // For changes too large to send one by one: subscribers reload all rates instead
+    public void publishResync(String reason) {
+        publish(RESYNC_EVENT, resyncData(reason));
+    }
+
+    public void subscribe(FeedSubscriber subscriber, String lastEventId) {
+        synchronized (lock) {
+            subscriber.offer(RETRY_FRAME);
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.onAvailable();
+    }
+
+    public void unsubscribe(FeedSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    // Stops the feed thread when the application is undeployed; open streams are closed by the container
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        subscribers.clear();
+    }
+
+    private void publish(String event, String data) {
+        synchronized (lock) {
+            long sequence = ++lastSequence;
+            byte[] frame = frame(sequence, event, data);
+            history[(int) (sequence % history.length)] = frame;
+            for (FeedSubscriber subscriber : subscribers) {
+                if (!subscriber.offer(frame)) {
+                    overflows.increment();
+                    subscriber.replaceAll(frame(sequence, RESYNC_EVENT, resyncData(RESYNC_OVERFLOW)));
+                }
+            }
+        }
+        // Events published while a notification is still pending are written by that one
+        if (notifyScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::notifySubscribers);
+            } catch (RejectedExecutionException e) {
+                // Closed: the application is going away together with its streams
+                notifyScheduled.set(false);
+            }
+        }
+    }
+
+    private void notifySubscribers() {
+        // Cleared first, so an event enqueued while subscribers are being written schedules another round
+        notifyScheduled.set(false);
+        for (FeedSubscriber subscriber : subscribers) {
+            subscriber.onAvailable();
+        }
+    }
+
+    private void replay(FeedSubscriber subscriber, String lastEventId) {
+        long seen = parseSequence(lastEventId);
+        // The history holds the events after lastSequence - history.length
+        if (seen == NO_SEQUENCE || seen > lastSequence || seen < lastSequence - history.length) {
+            subscriber.offer(frame(lastSequence, RESYNC_EVENT, resyncData(RESYNC_UNKNOWN_ID)));
+            return;
+        }
+        for (long sequence = seen + 1; sequence <= lastSequence; sequence++) {
+            if (!subscriber.offer(history[(int) (sequence % history.length)])) {
+                overflows.increment();
+                subscriber.replaceAll(frame(lastSequence, RESYNC_EVENT, resyncData(RESYNC_OVERFLOW)));
+                return;
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (FeedSubscriber subscriber : subscribers) {
+            if (subscriber.isIdle() && subscriber.offer(HEARTBEAT_FRAME)) {
+                subscriber.onAvailable();
+            }
+        }
+    }
+
+    private static long parseSequence(String eventId) {
+        if (!eventId.startsWith(ID_PREFIX)) {
+            return NO_SEQUENCE;
+        }
+        try {
+            return Long.parseLong(eventId.substring(ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return NO_SEQUENCE;
+        }
+    }
+
+    private static String resyncData(String reason) {
+        return "{\"reason\":\"" + reason + "\"}";
+    }
+
+    // The data is compact JSON without line breaks, so it always fits on one data line
+    private static byte[] frame(long sequence, String event, String data) {
+        return ("id: " + ID_PREFIX + sequence + "\nevent: " + event + "\ndata: " + data + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+package org.proj3.currency_exchange.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class CsvUtil {
+    private static final String UNTERMINATED_QUOTE = "Unterminated quoted value.";
+    private static final String TEXT_AFTER_QUOTE = "Unexpected text after a quoted value.";
+
+    private CsvUtil() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    // One RFC 4180 record on a single line: values are separated by commas, a value with commas or quotes
+    // is enclosed in double quotes and "" stands for a quote inside it
+    public static List<String> parseLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        int i = 0;
+        while (true) {
+            value.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException(UNTERMINATED_QUOTE);
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        value.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException(TEXT_AFTER_QUOTE);
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) {
+                    end = line.length();
+                }
+                value.append(line, i, end);
+                i = end;
+            }
+            values.add(value.toString());
+
+            if (i >= line.length()) {
+                return values;
+            }
+            // Skip the comma
+            i++;
+        }
+    }
+}
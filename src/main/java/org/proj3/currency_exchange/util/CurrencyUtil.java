@@ -8,26 +8,102 @@ public final class CurrencyUtil {
     private static final String INVALID_CURRENCY_CODE = "Invalid currency code. Only real currency codes can be used.";
     private static final String EMPTY_CURRENCY_CODE = "Currency code cannot be null or empty";
 
+    // Every ISO 4217 code the JDK knows, indexed by packed code. Built once, so checking a code is an array read
+    // instead of Currency.getInstance, and a valid code never needs a new String: the table holds its canonical one
+    private static final String[] ISO_CODES = new String[PackedCodeUtil.CODE_TABLE_SIZE];
+
+    static {
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            String code = currency.getCurrencyCode();
+            int packedCode = PackedCodeUtil.pack(code);
+            if (packedCode != PackedCodeUtil.INVALID_CODE) {
+                ISO_CODES[packedCode] = code;
+            }
+        }
+    }
+
     private CurrencyUtil() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
 
     public static void validateCurrencyCode(String currencyCode) {
-        try {
-            Currency.getInstance(currencyCode);
-        } catch (IllegalArgumentException e) {
-            throw new IllegalCurrencyCodeException(INVALID_CURRENCY_CODE, e);
+        validatePackedCode(PackedCodeUtil.pack(currencyCode));
+    }
+
+    public static void validatePackedCode(int packedCode) {
+        if (!isIsoCode(packedCode)) {
+            throw new IllegalCurrencyCodeException(INVALID_CURRENCY_CODE);
         }
     }
 
+    public static boolean isIsoCode(int packedCode) {
+        return packedCode != PackedCodeUtil.INVALID_CODE && ISO_CODES[packedCode] != null;
+    }
+
     public static String normalizeCurrencyCode(String currencyCode) {
         if (currencyCode == null || currencyCode.isBlank()) {
             throw new IllegalCurrencyCodeException(EMPTY_CURRENCY_CODE);
         }
+        int packedCode = packCurrencyCode(currencyCode, 0, currencyCode.length());
+        if (isIsoCode(packedCode)) {
+            return ISO_CODES[packedCode];
+        }
         currencyCode = currencyCode.trim();
         if (currencyCode.startsWith("/")) {
             currencyCode = currencyCode.substring(1);
         }
         return currencyCode.toUpperCase();
     }
+
+    // Normalizes and validates in one step, for callers that only need the packed code
+    public static int toPackedCode(CharSequence text, int start, int end) {
+        int packedCode = packCurrencyCode(text, start, end);
+        if (!isIsoCode(packedCode)) {
+            if (isBlank(text, start, end)) {
+                throw new IllegalCurrencyCodeException(EMPTY_CURRENCY_CODE);
+            }
+            throw new IllegalCurrencyCodeException(INVALID_CURRENCY_CODE);
+        }
+        return packedCode;
+    }
+
+    public static int toPackedCode(String currencyCode) {
+        if (currencyCode == null) {
+            throw new IllegalCurrencyCodeException(EMPTY_CURRENCY_CODE);
+        }
+        return toPackedCode(currencyCode, 0, currencyCode.length());
+    }
+
+    // Reads a code the way normalizeCurrencyCode accepts it: surrounding whitespace, a leading '/' and lower case
+    // letters are fine. Returns INVALID_CODE when the rest is not three letters
+    public static int packCurrencyCode(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start < end && text.charAt(start) == '/') {
+            start++;
+        }
+        if (end - start != 3) {
+            return PackedCodeUtil.INVALID_CODE;
+        }
+        return PackedCodeUtil.pack(toUpperCase(text.charAt(start)),
+                toUpperCase(text.charAt(start + 1)),
+                toUpperCase(text.charAt(start + 2)));
+    }
+
+    private static char toUpperCase(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 'a' + 'A') : c;
+    }
+
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -1,9 +1,13 @@
 package org.proj3.currency_exchange.util;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 
 public final class ExchangeUtil {
     private static final String INVALID_NUMBER_FORMAT = "Invalid number format.";
+    private static final String INVALID_INSTANT_FORMAT = "Invalid timestamp. Use an ISO-8601 instant, " +
+                                                         "e.g. 2024-05-01T12:00:00Z, or milliseconds since the epoch.";
 
     private ExchangeUtil() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
@@ -21,6 +25,18 @@ public final class ExchangeUtil {
         return value;
     }
 
+    public static Instant convertToInstant(String timestamp) {
+        String value = timestamp.trim();
+        try {
+            if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+                return Instant.ofEpochMilli(Long.parseLong(value));
+            }
+            return Instant.parse(value);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_INSTANT_FORMAT);
+        }
+    }
+
     public static void validatePositiveNumber(BigDecimal number, int maxInteger, int maxFractional, String errorMessage) {
 
         if (number.compareTo(BigDecimal.ZERO) <= 0
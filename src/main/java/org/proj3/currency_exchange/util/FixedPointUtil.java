@@ -0,0 +1,73 @@
+package org.proj3.currency_exchange.util;
+
+import java.math.BigDecimal;
+
+public final class FixedPointUtil {
+    public static final int MICRO_SCALE = 6;
+    // Marks a value that does not fit the long representation, callers fall back to BigDecimal
+    public static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPointUtil() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static long powerOfTen(int exponent) {
+        if (exponent < 0 || exponent > MAX_LONG_DIGITS) {
+            return NOT_REPRESENTABLE;
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    // Exact conversion of a non-negative value to a long counting units of 10^-scale
+    public static long toScaled(BigDecimal value, int scale) {
+        if (value.signum() < 0 || value.scale() > scale
+            || value.precision() - value.scale() + scale > MAX_LONG_DIGITS) {
+            return NOT_REPRESENTABLE;
+        }
+        return value.unscaledValue().longValue() * POWERS_OF_TEN[scale - value.scale()];
+    }
+
+    public static long multiply(long left, long right) {
+        if (left == NOT_REPRESENTABLE || right == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        long product = left * right;
+        if (Math.multiplyHigh(left, right) != 0 || product < 0) {
+            return NOT_REPRESENTABLE;
+        }
+        return product;
+    }
+
+    // Same result as BigDecimal division with RoundingMode.HALF_EVEN, for a non-negative dividend and positive divisor
+    public static long divideHalfEven(long dividend, long divisor) {
+        if (dividend == NOT_REPRESENTABLE || divisor == NOT_REPRESENTABLE || divisor == 0) {
+            return NOT_REPRESENTABLE;
+        }
+        long quotient = dividend / divisor;
+        long twiceRemainder = (dividend % divisor) * 2;
+        if (twiceRemainder > divisor || twiceRemainder < 0
+            || (twiceRemainder == divisor && (quotient & 1) == 1)) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    // Equivalent to new BigDecimal(BigDecimal.valueOf(unscaled, scale).stripTrailingZeros().toPlainString())
+    public static BigDecimal toPlainBigDecimal(long unscaled, int scale) {
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+}
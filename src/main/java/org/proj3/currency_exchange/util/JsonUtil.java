@@ -1,10 +1,19 @@
 package org.proj3.currency_exchange.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public final class JsonUtil {
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // Generators are flushed by their owners, not after every value written to them
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 
     private JsonUtil() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
@@ -13,4 +22,16 @@ public final class JsonUtil {
     public static String toJson(Object obj) throws JsonProcessingException {
         return objectMapper.writeValueAsString(obj);
     }
+
+    public static void writeJson(OutputStream outputStream, Object obj) throws IOException {
+        objectMapper.writeValue(outputStream, obj);
+    }
+
+    public static JsonParser createParser(InputStream inputStream) throws IOException {
+        return objectMapper.createParser(inputStream);
+    }
+
+    public static JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+        return objectMapper.createGenerator(outputStream);
+    }
 }
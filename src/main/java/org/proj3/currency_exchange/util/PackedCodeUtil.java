@@ -0,0 +1,60 @@
+package org.proj3.currency_exchange.util;
+
+public final class PackedCodeUtil {
+    public static final int INVALID_CODE = -1;
+    public static final int CODE_BITS = 15;
+    public static final int CODE_TABLE_SIZE = 1 << CODE_BITS;
+
+    private static final int LETTER_BITS = 5;
+    private static final int LETTER_MASK = (1 << LETTER_BITS) - 1;
+    private static final int CODE_MASK = CODE_TABLE_SIZE - 1;
+
+    private PackedCodeUtil() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static int pack(String currencyCode) {
+        if (currencyCode == null || currencyCode.length() != 3) {
+            return INVALID_CODE;
+        }
+        return pack(currencyCode.charAt(0), currencyCode.charAt(1), currencyCode.charAt(2));
+    }
+
+    public static int pack(char first, char second, char third) {
+        if (isNotLetter(first) || isNotLetter(second) || isNotLetter(third)) {
+            return INVALID_CODE;
+        }
+        // 'A'..'Z' are stored as 1..26, so a valid packed code is never 0
+        return (first - 'A' + 1) << (2 * LETTER_BITS)
+               | (second - 'A' + 1) << LETTER_BITS
+               | (third - 'A' + 1);
+    }
+
+    public static String unpack(int packedCode) {
+        return new String(new char[]{
+                letter(packedCode >>> (2 * LETTER_BITS)),
+                letter(packedCode >>> LETTER_BITS),
+                letter(packedCode)
+        });
+    }
+
+    public static int pair(int packedBaseCode, int packedTargetCode) {
+        return packedBaseCode << CODE_BITS | packedTargetCode;
+    }
+
+    public static int base(int packedPair) {
+        return packedPair >>> CODE_BITS;
+    }
+
+    public static int target(int packedPair) {
+        return packedPair & CODE_MASK;
+    }
+
+    private static boolean isNotLetter(char c) {
+        return c < 'A' || c > 'Z';
+    }
+
+    private static char letter(int bits) {
+        return (char) ('A' + (bits & LETTER_MASK) - 1);
+    }
+}
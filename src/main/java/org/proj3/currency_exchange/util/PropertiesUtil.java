@@ -6,6 +6,7 @@ import java.util.Properties;
 
 public final class PropertiesUtil {
     private static final Properties PROPERTIES = new Properties();
+    private static final String[] PROPERTY_FILES = {"hikari.properties", "application.properties"};
 
     static {
         loadProperties();
@@ -15,15 +16,22 @@ public final class PropertiesUtil {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
 
+    // A system property with the same key wins, e.g. -Ddb.url=... to run against a scratch copy of the database
     public static String get(String key) {
-        return PROPERTIES.getProperty(key);
+        return System.getProperty(key, PROPERTIES.getProperty(key));
+    }
+
+    public static String get(String key, String defaultValue) {
+        return System.getProperty(key, PROPERTIES.getProperty(key, defaultValue));
     }
 
     private static void loadProperties() {
-        try (InputStream inputStream = PropertiesUtil.class.getClassLoader().getResourceAsStream("hikari.properties")) {
-            PROPERTIES.load(inputStream);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        for (String propertyFile : PROPERTY_FILES) {
+            try (InputStream inputStream = PropertiesUtil.class.getClassLoader().getResourceAsStream(propertyFile)) {
+                PROPERTIES.load(inputStream);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 }
@@ -0,0 +1,78 @@
+package org.proj3.currency_exchange.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Currency;
+
+public final class BenchmarkDatabase {
+    private static final String URL_KEY = "db.url";
+    private static final String DATABASE_RESOURCE = "currency.db";
+
+    private static final String SEED_CURRENCY_SQL = """
+            INSERT OR IGNORE INTO currencies (code, full_name, sign)
+            VALUES (?, ?, ?)
+            """;
+
+    private static final String SEED_RATE_SQL = """
+            INSERT OR IGNORE INTO exchangeRates (base_currency_id, target_currency_id, rate)
+            SELECT usd.id, c.id, ?
+            FROM currencies usd, currencies c
+            WHERE usd.code = 'USD' AND c.code = ?
+            """;
+
+    private BenchmarkDatabase() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    // Must run before AppConfig is first used: the application reads db.url once, when its pools are created
+    public static synchronized void install() throws IOException, SQLException {
+        if (System.getProperty(URL_KEY) != null) {
+            return;
+        }
+
+        Path copy = Files.createTempFile("currency-benchmark", ".db");
+        try (InputStream inputStream = BenchmarkDatabase.class.getClassLoader().getResourceAsStream(DATABASE_RESOURCE)) {
+            Files.copy(inputStream, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            Path.of(copy + suffix).toFile().deleteOnExit();
+        }
+
+        String url = "jdbc:sqlite:" + copy;
+        seed(url);
+        System.setProperty(URL_KEY, url);
+    }
+
+    // Every ISO currency quoted against USD, so list endpoints serialize a rate book of realistic size
+    private static void seed(String url) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             PreparedStatement currencyStatement = connection.prepareStatement(SEED_CURRENCY_SQL);
+             PreparedStatement rateStatement = connection.prepareStatement(SEED_RATE_SQL)) {
+
+            connection.setAutoCommit(false);
+            for (Currency currency : Currency.getAvailableCurrencies()) {
+                String code = currency.getCurrencyCode();
+
+                currencyStatement.setString(1, code);
+                currencyStatement.setString(2, currency.getDisplayName());
+                currencyStatement.setString(3, currency.getSymbol());
+                currencyStatement.addBatch();
+
+                rateStatement.setBigDecimal(1, BigDecimal.valueOf(1 + Math.floorMod(code.hashCode(), 100_000_000), 6));
+                rateStatement.setString(2, code);
+                rateStatement.addBatch();
+            }
+            currencyStatement.executeBatch();
+            rateStatement.executeBatch();
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.proj3.currency_exchange.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.proj3.currency_exchange.config.AppConfig;
+import org.proj3.currency_exchange.dto.ExchangeRequestDto;
+import org.proj3.currency_exchange.dto.ExchangeResponseDto;
+import org.proj3.currency_exchange.service.ExchangeService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangeServiceBenchmark {
+
+    // Direct, reverse and cross (via USD) conversions
+    @Param({"USD:INR", "INR:USD", "SAR:UAH"})
+    private String pair;
+
+    // false answers every conversion from the database instead of the in-memory snapshot
+    @Param({"true", "false"})
+    private String snapshotEnabled;
+
+    private ExchangeService exchangeService;
+    private ExchangeRequestDto request;
+
+    @Setup
+    public void setUp() throws Exception {
+        System.setProperty("exchange.snapshot.enabled", snapshotEnabled);
+        BenchmarkDatabase.install();
+
+        exchangeService = AppConfig.getExchangeService();
+        String[] codes = pair.split(":");
+        request = new ExchangeRequestDto(codes[0], codes[1], new BigDecimal("1250.75"));
+    }
+
+    @Benchmark
+    public ExchangeResponseDto exchange() {
+        return exchangeService.exchange(request);
+    }
+}
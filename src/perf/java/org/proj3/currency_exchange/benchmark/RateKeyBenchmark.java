@@ -0,0 +1,73 @@
+package org.proj3.currency_exchange.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.proj3.currency_exchange.cache.CachedRate;
+import org.proj3.currency_exchange.cache.RateSnapshot;
+import org.proj3.currency_exchange.config.DatabaseConfig;
+import org.proj3.currency_exchange.dao.impl.CurrencyDao;
+import org.proj3.currency_exchange.dao.impl.ExchangeRateDao;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
+import org.proj3.currency_exchange.metrics.DatabaseMetrics;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Rate lookup keyed by packed currency codes against the String-keyed map it replaced
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateKeyBenchmark {
+    private static final DatabaseMetrics DATABASE_METRICS = DatabaseConfig.createDatabaseMetrics(false);
+
+    private RateSnapshot snapshot;
+    private Map<String, CachedRate> ratesByCodes;
+    private String[] baseCodes;
+    private String[] targetCodes;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.install();
+
+        DataSource writeDataSource = DatabaseConfig.getWriteDataSource(DATABASE_METRICS);
+        DataSource readDataSource = DatabaseConfig.getReadDataSource(DATABASE_METRICS);
+        List<ExchangeRateEntity> rateEntities =
+                ExchangeRateDao.createInstance(readDataSource, writeDataSource, DATABASE_METRICS).findAll();
+        snapshot = RateSnapshot.of(
+                CurrencyDao.createInstance(readDataSource, writeDataSource, DATABASE_METRICS).findAll(), rateEntities);
+
+        ratesByCodes = new HashMap<>();
+        baseCodes = new String[rateEntities.size()];
+        targetCodes = new String[rateEntities.size()];
+        for (int i = 0; i < rateEntities.size(); i++) {
+            baseCodes[i] = rateEntities.get(i).getBaseCurrency().getCode();
+            targetCodes[i] = rateEntities.get(i).getTargetCurrency().getCode();
+            ratesByCodes.put(baseCodes[i] + targetCodes[i], snapshot.findRate(baseCodes[i], targetCodes[i]).orElseThrow());
+        }
+    }
+
+    @Benchmark
+    public CachedRate packedPairKey() {
+        int i = nextIndex();
+        return snapshot.rate(PackedCodeUtil.pack(baseCodes[i]), PackedCodeUtil.pack(targetCodes[i]));
+    }
+
+    @Benchmark
+    public CachedRate stringKey() {
+        int i = nextIndex();
+        return ratesByCodes.get(baseCodes[i] + targetCodes[i]);
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = i + 1 == baseCodes.length ? 0 : i + 1;
+        return i;
+    }
+}
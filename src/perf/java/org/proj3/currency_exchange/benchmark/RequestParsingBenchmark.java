@@ -0,0 +1,87 @@
+package org.proj3.currency_exchange.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.proj3.currency_exchange.servlet.ExchangeQuery;
+import org.proj3.currency_exchange.util.ExchangeUtil;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// /exchange parameters parsed in place from the query string against the parameter-map path it replaced:
+// decoding every parameter into a map, then Set.of, ParameterCheck records, normalizing and Currency.getInstance
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+    private static final String FROM = "from";
+    private static final String TO = "to";
+    private static final String AMOUNT = "amount";
+
+    @Param({"from=USD&to=EUR&amount=1250.75", "from=usd&to=%20eur&amount=1250%2C75"})
+    private String queryString;
+
+    @Benchmark
+    public BigDecimal exchangeQuery() {
+        ExchangeQuery query = ExchangeQuery.parse(queryString);
+        if (!query.hasRequiredParameters() || query.isFromEmpty() || query.isToEmpty() || query.isAmountEmpty()) {
+            return null;
+        }
+        BigDecimal amount = query.amount();
+        return query.packedFromCode() == query.packedToCode() ? null : amount;
+    }
+
+    @Benchmark
+    public BigDecimal parameterMap() {
+        Map<String, String[]> parameterMap = decodeParameters(queryString);
+        if (!parameterMap.keySet().containsAll(Set.of(FROM, TO, AMOUNT))) {
+            return null;
+        }
+        List<ParameterCheck> checks = List.of(
+                new ParameterCheck(parameterMap.get(FROM)[0]),
+                new ParameterCheck(parameterMap.get(TO)[0]),
+                new ParameterCheck(parameterMap.get(AMOUNT)[0]));
+        for (ParameterCheck check : checks) {
+            if (check.value().isEmpty()) {
+                return null;
+            }
+        }
+        BigDecimal amount = ExchangeUtil.convertToNumber(checks.get(2).value());
+        String from = normalize(checks.get(0).value());
+        Currency.getInstance(from);
+        String to = normalize(checks.get(1).value());
+        Currency.getInstance(to);
+        return PackedCodeUtil.pack(from) == PackedCodeUtil.pack(to) ? null : amount;
+    }
+
+    // What the container does on the first getParameterMap call
+    private static Map<String, String[]> decodeParameters(String queryString) {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        for (String parameter : queryString.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = URLDecoder.decode(separator < 0 ? parameter : parameter.substring(0, separator),
+                    StandardCharsets.UTF_8);
+            String value = separator < 0 ? "" : URLDecoder.decode(parameter.substring(separator + 1),
+                    StandardCharsets.UTF_8);
+            parameters.putIfAbsent(name, new String[]{value});
+        }
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    private static String normalize(String currencyCode) {
+        currencyCode = currencyCode.trim();
+        if (currencyCode.startsWith("/")) {
+            currencyCode = currencyCode.substring(1);
+        }
+        return currencyCode.toUpperCase();
+    }
+
+    private record ParameterCheck(String value) {
+    }
+}
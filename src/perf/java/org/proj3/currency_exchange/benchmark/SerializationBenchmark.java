@@ -0,0 +1,60 @@
+package org.proj3.currency_exchange.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.proj3.currency_exchange.config.DatabaseConfig;
+import org.proj3.currency_exchange.dao.impl.ExchangeRateDao;
+import org.proj3.currency_exchange.dto.ExchangeRateResponseDto;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
+import org.proj3.currency_exchange.mapper.ExchangeRateMapper;
+import org.proj3.currency_exchange.metrics.DatabaseMetrics;
+import org.proj3.currency_exchange.util.JsonUtil;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final DatabaseMetrics DATABASE_METRICS = DatabaseConfig.createDatabaseMetrics(false);
+
+    private final ExchangeRateMapper mapper = ExchangeRateMapper.getInstance();
+
+    private ExchangeRateEntity rateEntity;
+    private ExchangeRateResponseDto rateDto;
+    private List<ExchangeRateResponseDto> rateDtos;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.install();
+
+        DataSource writeDataSource = DatabaseConfig.getWriteDataSource(DATABASE_METRICS);
+        DataSource readDataSource = DatabaseConfig.getReadDataSource(DATABASE_METRICS);
+        List<ExchangeRateEntity> rateEntities =
+                ExchangeRateDao.createInstance(readDataSource, writeDataSource, DATABASE_METRICS).findAll();
+
+        rateEntity = rateEntities.get(0);
+        rateDto = mapper.toDto(rateEntity);
+        rateDtos = rateEntities.stream().map(mapper::toDto).toList();
+    }
+
+    @Benchmark
+    public ExchangeRateResponseDto mapRate() {
+        return mapper.toDto(rateEntity);
+    }
+
+    @Benchmark
+    public String serializeRate() throws Exception {
+        return JsonUtil.toJson(rateDto);
+    }
+
+    // The whole seeded rate book, as GET /exchangeRates serializes it on a cache miss
+    @Benchmark
+    public String serializeRateBook() throws Exception {
+        return JsonUtil.toJson(rateDtos);
+    }
+}
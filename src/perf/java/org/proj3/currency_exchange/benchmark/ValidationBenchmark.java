@@ -0,0 +1,49 @@
+package org.proj3.currency_exchange.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.proj3.currency_exchange.util.CurrencyUtil;
+import org.proj3.currency_exchange.util.ExchangeUtil;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    private static final String ERROR_MESSAGE = "Invalid amount";
+
+    private String currencyCode = "EUR";
+    private String requestedCurrencyCode = " eur";
+    private BigDecimal amount = new BigDecimal("1250.75");
+
+    @Benchmark
+    public void validateCurrencyCode() {
+        CurrencyUtil.validateCurrencyCode(currencyCode);
+    }
+
+    // The Currency.getInstance lookup the precomputed ISO table replaced
+    @Benchmark
+    public Currency currencyInstance() {
+        return Currency.getInstance(currencyCode);
+    }
+
+    @Benchmark
+    public String normalizeCurrencyCode() {
+        return CurrencyUtil.normalizeCurrencyCode(requestedCurrencyCode);
+    }
+
+    @Benchmark
+    public int toPackedCode() {
+        return CurrencyUtil.toPackedCode(requestedCurrencyCode);
+    }
+
+    @Benchmark
+    public void validatePositiveNumber() {
+        ExchangeUtil.validatePositiveNumber(amount, 9, 6, ERROR_MESSAGE);
+    }
+}
@@ -0,0 +1,12 @@
+package org.proj3.currency_exchange.loadtest;
+
+import java.util.List;
+import java.util.Map;
+
+record LoadReport(int clients, long warmupSeconds, long durationSeconds, Map<String, Integer> mix,
+                  List<EndpointReport> endpoints, EndpointReport total) {
+
+    record EndpointReport(String endpoint, long requests, long errors, double throughputPerSecond,
+                          double p50Millis, double p99Millis, double p999Millis, double maxMillis) {
+    }
+}
@@ -0,0 +1,239 @@
+package org.proj3.currency_exchange.loadtest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+import org.proj3.currency_exchange.benchmark.BenchmarkDatabase;
+import org.proj3.currency_exchange.util.JsonUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Boots the WAR's servlets and filters in an embedded Tomcat against a temporary database
+// and drives it from closed-loop clients: each client sends its next request only after
+// the previous response has been read completely
+public final class LoadTest {
+    private static final String WEBAPP_DIR_KEY = "load.webappDir";
+    private static final String CLASSES_DIR_KEY = "load.classesDir";
+    private static final String BASE_DIR_KEY = "load.baseDir";
+    private static final String CLIENTS_KEY = "load.clients";
+    private static final String WARMUP_KEY = "load.warmup";
+    private static final String DURATION_KEY = "load.duration";
+    private static final String MIX_KEY = "load.mix";
+    private static final String OUTPUT_KEY = "load.output";
+
+    private static final String DEFAULT_MIX = "exchange=80,exchangeRates=5,updateRate=15";
+
+    private LoadTest() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger(CLIENTS_KEY, 8);
+        long warmupSeconds = Long.getLong(WARMUP_KEY, 5);
+        long durationSeconds = Long.getLong(DURATION_KEY, 30);
+        Map<Operation, Integer> mix = parseMix(System.getProperty(MIX_KEY, DEFAULT_MIX));
+        Path output = Path.of(System.getProperty(OUTPUT_KEY, "target/perf/load-test.json"));
+
+        BenchmarkDatabase.install();
+        Tomcat tomcat = startTomcat();
+
+        URI baseUri = URI.create("http://localhost:" + tomcat.getConnector().getLocalPort());
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newCachedThreadPool())
+                .build();
+        List<String> currencyCodes = fetchCurrencyCodes(httpClient, baseUri);
+
+        LoadReport report = run(httpClient, baseUri, currencyCodes, clients, warmupSeconds, durationSeconds, mix);
+        print(report);
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream outputStream = Files.newOutputStream(output)) {
+            JsonUtil.writeJson(outputStream, report);
+        }
+        System.out.println("Report written to " + output.toAbsolutePath());
+
+        // Exiting tears the container down with the JVM, nothing needs to outlive the report
+        System.exit(0);
+    }
+
+    private static Tomcat startTomcat() throws LifecycleException {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(System.getProperty(BASE_DIR_KEY, "target/perf/load-tomcat"));
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        // No JSP support on the classpath, and the application does not need the default servlets
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+
+        String webappDir = Path.of(System.getProperty(WEBAPP_DIR_KEY, "src/main/webapp")).toAbsolutePath().toString();
+        String classesDir = Path.of(System.getProperty(CLASSES_DIR_KEY, "target/perf/classes")).toAbsolutePath().toString();
+
+        // Deploying compiled classes as WEB-INF/classes lets Tomcat pick up the @WebServlet and @WebFilter
+        // annotations exactly as it does for the WAR
+        Context context = tomcat.addWebapp("", webappDir);
+        WebResourceRoot resources = new StandardRoot(context);
+        resources.addPreResources(new DirResourceSet(resources, "/WEB-INF/classes", classesDir, "/"));
+        context.setResources(resources);
+
+        tomcat.start();
+        return tomcat;
+    }
+
+    private static List<String> fetchCurrencyCodes(HttpClient httpClient, URI baseUri)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/currencies")).GET().build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET /currencies returned " + response.statusCode());
+        }
+
+        List<String> currencyCodes = new ArrayList<>();
+        try (InputStream body = response.body(); JsonParser parser = JsonUtil.createParser(body)) {
+            JsonNode currencies = parser.readValueAsTree();
+            for (JsonNode currency : currencies) {
+                currencyCodes.add(currency.get("code").asText());
+            }
+        }
+        if (currencyCodes.size() < 2) {
+            throw new IllegalStateException("At least two currencies are needed for the load test");
+        }
+        return currencyCodes;
+    }
+
+    private static LoadReport run(HttpClient httpClient, URI baseUri, List<String> currencyCodes, int clients,
+                                  long warmupSeconds, long durationSeconds, Map<Operation, Integer> mix)
+            throws InterruptedException, ExecutionException {
+        Operation[] operations = mix.keySet().toArray(new Operation[0]);
+        int[] cumulativeWeights = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += mix.get(operations[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        long start = System.nanoTime();
+        long measurementStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measurementEnd = measurementStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        System.out.printf("Running %d clients: %ds warmup, %ds measurement, mix %s%n",
+                clients, warmupSeconds, durationSeconds, System.getProperty(MIX_KEY, DEFAULT_MIX));
+
+        int weightSum = totalWeight;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<Map<Operation, LatencyRecorder>>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(executor.submit(() -> runClient(httpClient, baseUri, currencyCodes, operations,
+                    cumulativeWeights, weightSum, measurementStart, measurementEnd)));
+        }
+
+        Map<Operation, LatencyRecorder> merged = new EnumMap<>(Operation.class);
+        LatencyRecorder total = new LatencyRecorder();
+        for (Future<Map<Operation, LatencyRecorder>> result : results) {
+            for (Map.Entry<Operation, LatencyRecorder> entry : result.get().entrySet()) {
+                merged.computeIfAbsent(entry.getKey(), operation -> new LatencyRecorder()).addAll(entry.getValue());
+                total.addAll(entry.getValue());
+            }
+        }
+        executor.shutdown();
+
+        List<LoadReport.EndpointReport> endpoints = new ArrayList<>();
+        for (Map.Entry<Operation, LatencyRecorder> entry : merged.entrySet()) {
+            endpoints.add(entry.getValue().report(entry.getKey().endpointName(), durationSeconds));
+        }
+
+        Map<String, Integer> mixByName = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> mixByName.put(operation.endpointName(), weight));
+        return new LoadReport(clients, warmupSeconds, durationSeconds, mixByName, endpoints,
+                total.report("total", durationSeconds));
+    }
+
+    private static Map<Operation, LatencyRecorder> runClient(HttpClient httpClient, URI baseUri,
+                                                             List<String> currencyCodes, Operation[] operations,
+                                                             int[] cumulativeWeights, int totalWeight,
+                                                             long measurementStart, long measurementEnd)
+            throws InterruptedException {
+        Random random = ThreadLocalRandom.current();
+        Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+
+        while (true) {
+            Operation operation = operations[pickIndex(cumulativeWeights, random.nextInt(totalWeight))];
+            HttpRequest request = operation.createRequest(baseUri, currencyCodes, random);
+
+            long requestStart = System.nanoTime();
+            if (requestStart >= measurementEnd) {
+                return recorders;
+            }
+
+            boolean error;
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                error = response.statusCode() >= 400;
+            } catch (IOException e) {
+                error = true;
+            }
+            long latency = System.nanoTime() - requestStart;
+
+            // Requests started during the warmup only heat up the server
+            if (requestStart >= measurementStart) {
+                recorders.computeIfAbsent(operation, key -> new LatencyRecorder()).record(latency, error);
+            }
+        }
+    }
+
+    private static int pickIndex(int[] cumulativeWeights, int value) {
+        int index = 0;
+        while (value >= cumulativeWeights[index]) {
+            index++;
+        }
+        return index;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] nameAndWeight = entry.trim().split("=");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Invalid load mix entry, expected endpoint=weight: " + entry);
+            }
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Load mix weights cannot be negative: " + entry);
+            }
+            if (weight > 0) {
+                weights.put(Operation.fromEndpointName(nameAndWeight[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The load mix must give at least one endpoint a positive weight");
+        }
+        return weights;
+    }
+
+    private static void print(LoadReport report) {
+        String format = "%-14s %10s %8s %12s %10s %10s %10s %10s%n";
+        System.out.printf(format, "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        List<LoadReport.EndpointReport> rows = new ArrayList<>(report.endpoints());
+        rows.add(report.total());
+        for (LoadReport.EndpointReport row : rows) {
+            System.out.printf(format, row.endpoint(), row.requests(), row.errors(),
+                    "%.1f".formatted(row.throughputPerSecond()), "%.3f".formatted(row.p50Millis()),
+                    "%.3f".formatted(row.p99Millis()), "%.3f".formatted(row.p999Millis()),
+                    "%.3f".formatted(row.maxMillis()));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.proj3.currency_exchange.loadtest;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.List;
+import java.util.Random;
+
+enum Operation {
+    EXCHANGE("exchange") {
+        @Override
+        HttpRequest createRequest(URI baseUri, List<String> currencyCodes, Random random) {
+            String from = pick(currencyCodes, random);
+            String to = pick(currencyCodes, random);
+            while (to.equals(from)) {
+                to = pick(currencyCodes, random);
+            }
+            String query = "from=%s&to=%s&amount=%d".formatted(from, to, 1 + random.nextInt(100_000));
+            return HttpRequest.newBuilder(baseUri.resolve("/exchange?" + query)).GET().build();
+        }
+    },
+
+    EXCHANGE_RATES("exchangeRates") {
+        @Override
+        HttpRequest createRequest(URI baseUri, List<String> currencyCodes, Random random) {
+            return HttpRequest.newBuilder(baseUri.resolve("/exchangeRates")).GET().build();
+        }
+    },
+
+    // The same few pairs over and over, like clients watching the majors when a market opens
+    HOT_RATE("hotRate") {
+        @Override
+        HttpRequest createRequest(URI baseUri, List<String> currencyCodes, Random random) {
+            String target = HOT_TARGET_CURRENCIES.get(random.nextInt(HOT_TARGET_CURRENCIES.size()));
+            return HttpRequest.newBuilder(baseUri.resolve("/exchangeRate/" + UPDATE_BASE_CURRENCY + target)).GET().build();
+        }
+    },
+
+    UPDATE_RATE("updateRate") {
+        @Override
+        HttpRequest createRequest(URI baseUri, List<String> currencyCodes, Random random) {
+            String target = pick(currencyCodes, random);
+            while (target.equals(UPDATE_BASE_CURRENCY)) {
+                target = pick(currencyCodes, random);
+            }
+            return rateRequest("PATCH", baseUri.resolve("/exchangeRate/" + UPDATE_BASE_CURRENCY + target), random);
+        }
+    },
+
+    // Any pair: most of them do not exist at first and are created, later requests replace their rates
+    PUT_RATE("putRate") {
+        @Override
+        HttpRequest createRequest(URI baseUri, List<String> currencyCodes, Random random) {
+            String base = pick(currencyCodes, random);
+            String target = pick(currencyCodes, random);
+            while (target.equals(base)) {
+                target = pick(currencyCodes, random);
+            }
+            return rateRequest("PUT", baseUri.resolve("/exchangeRate/" + base + target), random);
+        }
+    };
+
+    // The benchmark database quotes every currency against USD, so these rates always exist
+    private static final String UPDATE_BASE_CURRENCY = "USD";
+    private static final List<String> HOT_TARGET_CURRENCIES = List.of("EUR", "JPY", "GBP");
+
+    private final String endpointName;
+
+    Operation(String endpointName) {
+        this.endpointName = endpointName;
+    }
+
+    String endpointName() {
+        return endpointName;
+    }
+
+    abstract HttpRequest createRequest(URI baseUri, List<String> currencyCodes, Random random);
+
+    static Operation fromEndpointName(String endpointName) {
+        for (Operation operation : values()) {
+            if (operation.endpointName.equals(endpointName)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown endpoint in load mix: " + endpointName);
+    }
+
+    private static HttpRequest rateRequest(String method, URI uri, Random random) {
+        BigDecimal rate = BigDecimal.valueOf(500_000 + random.nextInt(150_000_000), 6);
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, HttpRequest.BodyPublishers.ofString("rate=" + rate.toPlainString()))
+                .build();
+    }
+
+    private static String pick(List<String> currencyCodes, Random random) {
+        return currencyCodes.get(random.nextInt(currencyCodes.size()));
+    }
+}
@@ -0,0 +1,182 @@
+package org.proj3.currency_exchange.cache;
+
+import org.junit.jupiter.api.Test;
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
+import org.proj3.currency_exchange.util.FixedPointUtil;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RateRouterTest {
+    private static final int TRIALS = 20_000;
+    private static final int DECIMAL_PLACES = FixedPointUtil.MICRO_SCALE;
+
+    private static final CurrencyEntity USD = currency(1, "USD");
+    private static final CurrencyEntity EUR = currency(2, "EUR");
+    private static final CurrencyEntity GBP = currency(3, "GBP");
+    private static final CurrencyEntity JPY = currency(4, "JPY");
+    private static final CurrencyEntity CHF = currency(5, "CHF");
+
+    private final Random random = new Random(1102);
+
+    @Test
+    void directRateIsTheStoredRate() {
+        for (int i = 0; i < TRIALS; i++) {
+            BigDecimal rate = randomRate();
+            RateSnapshot snapshot = RateSnapshot.of(List.of(USD, EUR), List.of(rate(1, USD, EUR, rate)));
+
+            CachedRate routed = route(snapshot, "USD", "EUR");
+            assertSame(snapshot.findRate("USD", "EUR").orElseThrow(), routed);
+            assertEquals(rate, routed.rate(), () -> rate.toPlainString());
+        }
+    }
+
+    @Test
+    void reverseRateIsOneOverTheStoredRate() {
+        for (int i = 0; i < TRIALS; i++) {
+            BigDecimal rate = randomRate();
+            RateSnapshot snapshot = RateSnapshot.of(List.of(USD, EUR), List.of(rate(7, USD, EUR, rate)));
+
+            BigDecimal expected = BigDecimal.ONE.divide(rate, DECIMAL_PLACES, RoundingMode.HALF_EVEN);
+            CachedRate routed = route(snapshot, "EUR", "USD");
+            assertRate(expected, routed, "1 / " + rate.toPlainString());
+            assertEquals(7, routed.id());
+        }
+    }
+
+    // Each leg is stored in a random direction, so all four combinations of forward and inverted legs occur
+    @Test
+    void crossRateIsRoundedOnceFromBothLegs() {
+        for (int i = 0; i < TRIALS; i++) {
+            BigDecimal firstRate = randomRate();
+            BigDecimal secondRate = randomRate();
+            boolean firstInverted = random.nextBoolean();
+            boolean secondInverted = random.nextBoolean();
+
+            List<ExchangeRateEntity> rates = List.of(
+                    firstInverted ? rate(1, USD, EUR, firstRate) : rate(1, EUR, USD, firstRate),
+                    secondInverted ? rate(2, GBP, USD, secondRate) : rate(2, USD, GBP, secondRate));
+            RateSnapshot snapshot = RateSnapshot.of(List.of(USD, EUR, GBP), rates);
+
+            BigDecimal expected = crossRate(firstRate, firstInverted, secondRate, secondInverted);
+            CachedRate routed = route(snapshot, "EUR", "GBP");
+            assertRate(expected, routed, "EUR>USD " + firstRate.toPlainString() + (firstInverted ? " inverted" : "")
+                                         + ", USD>GBP " + secondRate.toPlainString() + (secondInverted ? " inverted" : ""));
+            assertEquals(0, routed.id());
+        }
+    }
+
+    @Test
+    void crossRateFallsBackToBigDecimalWhenMicrosOverflow() {
+        BigDecimal largeRate = new BigDecimal("999999.999999");
+        // Both legs in millionths multiply to about 10^24, far beyond a long
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE, FixedPointUtil.multiply(
+                FixedPointUtil.toScaled(largeRate, DECIMAL_PLACES), FixedPointUtil.toScaled(largeRate, DECIMAL_PLACES)));
+
+        RateSnapshot snapshot = RateSnapshot.of(List.of(USD, EUR, JPY),
+                List.of(rate(1, EUR, USD, largeRate), rate(2, USD, JPY, largeRate)));
+
+        BigDecimal expected = largeRate.multiply(largeRate).setScale(DECIMAL_PLACES, RoundingMode.HALF_EVEN);
+        assertRate(expected, route(snapshot, "EUR", "JPY"), "overflow");
+        assertRate(BigDecimal.ONE.divide(largeRate.multiply(largeRate), DECIMAL_PLACES, RoundingMode.HALF_EVEN),
+                route(snapshot, "JPY", "EUR"), "overflow inverted");
+    }
+
+    // A rate with more than six decimal places has no micros, every route through it uses BigDecimal
+    @Test
+    void rateWithoutMicrosFallsBackToBigDecimal() {
+        for (int i = 0; i < TRIALS; i++) {
+            BigDecimal fineRate = randomRate().add(BigDecimal.valueOf(1 + random.nextInt(999), 9));
+            BigDecimal rate = randomRate();
+            RateSnapshot snapshot = RateSnapshot.of(List.of(USD, CHF, JPY),
+                    List.of(rate(1, USD, CHF, fineRate), rate(2, USD, JPY, rate)));
+            assertEquals(FixedPointUtil.NOT_REPRESENTABLE, snapshot.findRate("USD", "CHF").orElseThrow().rateMicros());
+
+            String input = "USD>CHF " + fineRate.toPlainString() + ", USD>JPY " + rate.toPlainString();
+            assertRate(BigDecimal.ONE.divide(fineRate, DECIMAL_PLACES, RoundingMode.HALF_EVEN),
+                    route(snapshot, "CHF", "USD"), input);
+            assertRate(crossRate(fineRate, true, rate, false), route(snapshot, "CHF", "JPY"), input);
+        }
+    }
+
+    // 1 / 2000000 and 1 / 400000 lie exactly halfway between two millionths, as do 0.000001 / 2 and 0.000003 / 2
+    @Test
+    void halfwayRatesRoundToEven() {
+        RateSnapshot snapshot = RateSnapshot.of(List.of(USD, EUR, GBP), List.of(
+                rate(1, USD, EUR, new BigDecimal("2000000")),
+                rate(2, USD, GBP, new BigDecimal("400000"))));
+        assertRate(new BigDecimal("0.000000"), route(snapshot, "EUR", "USD"), "1 / 2000000");
+        assertRate(new BigDecimal("0.000002"), route(snapshot, "GBP", "USD"), "1 / 400000");
+
+        snapshot = RateSnapshot.of(List.of(USD, EUR, GBP), List.of(
+                rate(1, USD, EUR, new BigDecimal("2")),
+                rate(2, USD, GBP, new BigDecimal("0.000001"))));
+        assertRate(new BigDecimal("0.000000"), route(snapshot, "EUR", "GBP"), "0.000001 / 2");
+
+        snapshot = RateSnapshot.of(List.of(USD, EUR, GBP), List.of(
+                rate(1, USD, EUR, new BigDecimal("2")),
+                rate(2, USD, GBP, new BigDecimal("0.000003"))));
+        assertRate(new BigDecimal("0.000002"), route(snapshot, "EUR", "GBP"), "0.000003 / 2");
+    }
+
+    private CachedRate route(RateSnapshot snapshot, String from, String to) {
+        return RateRouter.createInstance(List.of("USD"), 2)
+                .route(snapshot, PackedCodeUtil.pack(from), PackedCodeUtil.pack(to))
+                .orElseThrow();
+    }
+
+    private void assertRate(BigDecimal expected, CachedRate routed, String input) {
+        assertEquals(expected, routed.rate(), input);
+        // The long and the BigDecimal representation of the result agree, whichever path produced it
+        assertEquals(FixedPointUtil.toScaled(routed.rate(), DECIMAL_PLACES), routed.rateMicros(), input);
+    }
+
+    private static BigDecimal crossRate(BigDecimal firstRate, boolean firstInverted,
+                                        BigDecimal secondRate, boolean secondInverted) {
+        BigDecimal numerator = BigDecimal.ONE;
+        BigDecimal denominator = BigDecimal.ONE;
+        if (firstInverted) {
+            denominator = denominator.multiply(firstRate);
+        } else {
+            numerator = numerator.multiply(firstRate);
+        }
+        if (secondInverted) {
+            denominator = denominator.multiply(secondRate);
+        } else {
+            numerator = numerator.multiply(secondRate);
+        }
+        return numerator.divide(denominator, DECIMAL_PLACES, RoundingMode.HALF_EVEN);
+    }
+
+    // What DECIMAL(12, 6) holds: up to six digits on either side of the point, from tiny to huge
+    private BigDecimal randomRate() {
+        int scale = random.nextInt(DECIMAL_PLACES + 1);
+        int digits = 1 + random.nextInt(6 + scale);
+        BigInteger unscaled = new BigInteger(digits * 4, random).mod(BigInteger.TEN.pow(digits));
+        if (unscaled.signum() == 0) {
+            unscaled = BigInteger.ONE;
+        }
+        return new BigDecimal(unscaled, scale);
+    }
+
+
+    private static CurrencyEntity currency(int id, String code) {
+        CurrencyEntity currency = new CurrencyEntity(code, code, code);
+        currency.setId(id);
+        return currency;
+    }
+
+    private static ExchangeRateEntity rate(int id, CurrencyEntity base, CurrencyEntity target, BigDecimal rate) {
+        ExchangeRateEntity exchangeRate = new ExchangeRateEntity(base, target, rate);
+        exchangeRate.setId(id);
+        return exchangeRate;
+    }
+}
@@ -0,0 +1,176 @@
+package org.proj3.currency_exchange.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong version = new AtomicLong();
+    private final SingleFlight<String, Integer> singleFlight =
+            SingleFlight.createInstance("test", true, version::get);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void overlappingCallersShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.load("USDEUR", () -> {
+                await(release);
+                return calls.incrementAndGet();
+            })));
+        }
+        // Everyone but the loader is waiting for its result before the loader may finish
+        awaitCondition(() -> singleFlight.getSharedLoads() == CALLERS - 1);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertEquals(1, result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getLoads());
+    }
+
+    @Test
+    void differentKeysLoadSeparately() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        Future<Integer> first = executor.submit(() -> singleFlight.load("USDEUR", () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+            return 1;
+        }));
+        Future<Integer> second = executor.submit(() -> singleFlight.load("USDGBP", () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+            return 2;
+        }));
+
+        assertEquals(1, first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, singleFlight.getLoads());
+        assertEquals(0, singleFlight.getSharedLoads());
+    }
+
+    // A caller that has seen a write must not get a result read before it
+    @Test
+    void callersAfterAWriteStartTheirOwnLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> before = executor.submit(() -> singleFlight.load("USDEUR", () -> {
+            started.countDown();
+            await(release);
+            return 1;
+        }));
+        await(started);
+
+        version.incrementAndGet();
+        assertEquals(2, singleFlight.load("USDEUR", () -> 2));
+        release.countDown();
+
+        assertEquals(1, before.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, singleFlight.getLoads());
+        assertEquals(0, singleFlight.getSharedLoads());
+    }
+
+    @Test
+    void waitingCallersGetTheLoadersException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database is locked");
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.load("USDEUR", () -> {
+                await(release);
+                throw failure;
+            })));
+        }
+        awaitCondition(() -> singleFlight.getSharedLoads() == CALLERS - 1);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    // Only overlapping loads are shared, a finished load is not a cache
+    @Test
+    void sequentialCallersLoadAgain() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, singleFlight.load("USDEUR", calls::incrementAndGet));
+        assertEquals(2, singleFlight.load("USDEUR", calls::incrementAndGet));
+        assertThrows(IllegalStateException.class, () -> singleFlight.load("USDEUR", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(4, singleFlight.load("USDEUR", () -> calls.incrementAndGet() + 1));
+        assertEquals(4, singleFlight.getLoads());
+    }
+
+    @Test
+    void disabledRunsEveryLoad() throws Exception {
+        SingleFlight<String, Integer> disabled = SingleFlight.createInstance("test", false, version::get);
+        CountDownLatch allRunning = new CountDownLatch(CALLERS);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> disabled.load("USDEUR", () -> {
+                allRunning.countDown();
+                await(allRunning);
+                return 1;
+            })));
+        }
+
+        for (Future<Integer> result : results) {
+            assertEquals(1, result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertEquals(CALLERS, disabled.getLoads());
+        assertEquals(0, disabled.getSharedLoads());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "Timed out waiting for other callers");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the callers to join");
+            Thread.sleep(1);
+        }
+    }
+}
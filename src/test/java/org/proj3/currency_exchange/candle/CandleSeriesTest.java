@@ -0,0 +1,89 @@
+package org.proj3.currency_exchange.candle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CandleSeriesTest {
+    private static final long MINUTE = Resolution.MINUTE.periodMillis();
+
+    private final Random random = new Random(1701);
+
+    @Test
+    void ticksOfOnePeriodFormOneCandle() {
+        CandleSeries series = new CandleSeries(Resolution.MINUTE);
+        long openTime = 1_700_000_040_000L;
+
+        series.add(openTime + 5_000, 100);
+        series.add(openTime + 10_000, 130);
+        series.add(openTime + 20_000, 90);
+        series.add(openTime + MINUTE - 1, 110);
+        series.add(openTime + MINUTE, 120);
+
+        assertEquals(List.of(new Candle(openTime, 100, 130, 90, 110, 4), new Candle(openTime + MINUTE, 120, 120, 120, 120, 1)),
+                series.latest(10));
+        assertEquals(List.of(new Candle(openTime + MINUTE, 120, 120, 120, 120, 1)), series.latest(1));
+    }
+
+    // Before the epoch the open time still rounds down to the start of the period
+    @Test
+    void negativeTimesRoundDown() {
+        CandleSeries series = new CandleSeries(Resolution.MINUTE);
+
+        series.add(-1, 5);
+
+        assertEquals(List.of(new Candle(-MINUTE, 5, 5, 5, 5, 1)), series.latest(1));
+    }
+
+    // Several times the capacity, so the arrays grow, then wrap around as a ring more than once
+    @Test
+    void keepsTheLatestCandlesInOrderAcrossGrowthAndWraparound() {
+        for (Resolution resolution : Resolution.values()) {
+            CandleSeries series = new CandleSeries(resolution);
+            List<Candle> expected = new ArrayList<>();
+            long millis = random.nextLong(1L << 40);
+
+            for (int i = 0; i < resolution.capacity() * 3 + random.nextInt(100); i++) {
+                // Mostly the next period or the same one, sometimes a gap of several periods
+                millis += switch (random.nextInt(4)) {
+                    case 0 -> random.nextLong(resolution.periodMillis() / 4);
+                    case 1 -> resolution.periodMillis() * (2 + random.nextInt(5));
+                    default -> resolution.periodMillis();
+                };
+                long rateMicros = 1 + random.nextInt(10_000_000);
+                series.add(millis, rateMicros);
+                addToReference(expected, resolution.periodMillis(), millis, rateMicros);
+
+                if (i % 97 == 0) {
+                    assertLatest(expected, series, resolution.capacity(), random.nextInt(resolution.capacity() + 10));
+                }
+            }
+            assertLatest(expected, series, resolution.capacity(), resolution.capacity());
+            assertLatest(expected, series, resolution.capacity(), Integer.MAX_VALUE);
+            assertLatest(expected, series, resolution.capacity(), 0);
+        }
+    }
+
+    private void assertLatest(List<Candle> all, CandleSeries series, int capacity, int limit) {
+        List<Candle> kept = all.subList(Math.max(0, all.size() - capacity), all.size());
+        List<Candle> expected = kept.subList(Math.max(0, kept.size() - limit), kept.size());
+        assertEquals(expected, series.latest(limit), () -> "Latest " + limit);
+    }
+
+    // The same candles built the obvious way: one list entry per period, never dropping any
+    private static void addToReference(List<Candle> candles, long periodMillis, long millis, long rateMicros) {
+        long openTime = millis - Math.floorMod(millis, periodMillis);
+        if (!candles.isEmpty() && candles.get(candles.size() - 1).openTime() == openTime) {
+            Candle last = candles.get(candles.size() - 1);
+            candles.set(candles.size() - 1, new Candle(openTime, last.openMicros(),
+                    Math.max(last.highMicros(), rateMicros), Math.min(last.lowMicros(), rateMicros), rateMicros,
+                    last.ticks() + 1));
+        } else {
+            candles.add(new Candle(openTime, rateMicros, rateMicros, rateMicros, rateMicros, 1));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.proj3.currency_exchange.candle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CandleStoreTest {
+    private static final long MINUTE = 60_000;
+    private static final int USD = PackedCodeUtil.pack("USD");
+    private static final int EUR = PackedCodeUtil.pack("EUR");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void closedStoreIsReadBackByTheNextOne() {
+        CandleStore candleStore = CandleStore.createInstance(true, directory);
+        candleStore.record(USD, EUR, new BigDecimal("0.9"), 10 * MINUTE);
+        candleStore.record(USD, EUR, new BigDecimal("0.95"), 10 * MINUTE + 1);
+        candleStore.record(USD, EUR, new BigDecimal("0.91"), 11 * MINUTE);
+        candleStore.close();
+
+        List<Candle> expected = List.of(
+                new Candle(10 * MINUTE, 900_000, 950_000, 900_000, 950_000, 2),
+                new Candle(11 * MINUTE, 910_000, 910_000, 910_000, 910_000, 1));
+        assertEquals(expected, CandleStore.createInstance(true, directory).candles(USD, EUR, Resolution.MINUTE, 10));
+    }
+
+    // A rate committed while the application shuts down still gets its candle, it is just not written to the file
+    @Test
+    void ticksAfterCloseAreKeptInMemory() {
+        CandleStore candleStore = CandleStore.createInstance(true, directory);
+        candleStore.record(USD, EUR, new BigDecimal("0.9"), 10 * MINUTE);
+        candleStore.close();
+        candleStore.record(USD, EUR, new BigDecimal("0.8"), 10 * MINUTE + 1);
+
+        assertEquals(List.of(new Candle(10 * MINUTE, 900_000, 900_000, 800_000, 800_000, 2)),
+                candleStore.candles(USD, EUR, Resolution.MINUTE, 10));
+        assertEquals(List.of(new Candle(10 * MINUTE, 900_000, 900_000, 900_000, 900_000, 1)),
+                CandleStore.createInstance(true, directory).candles(USD, EUR, Resolution.MINUTE, 10));
+    }
+}
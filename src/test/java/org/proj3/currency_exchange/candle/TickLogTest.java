@@ -0,0 +1,177 @@
+package org.proj3.currency_exchange.candle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickLogTest {
+    private static final int HEADER_SIZE = 16;
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private final Random random = new Random(1702);
+
+    @Test
+    void newFileReplaysNothing() throws IOException {
+        Path file = directory.resolve("USDEUR.ticks");
+        TickLog.open(file, (millis, rateMicros) -> {
+            throw new AssertionError("No ticks were written");
+        });
+
+        assertEquals(HEADER_SIZE, readEnd(file));
+        assertEquals(List.of(), replay(file));
+    }
+
+    @Test
+    void replaysAppendedTicksInOrder() throws IOException {
+        Path file = directory.resolve("USDEUR.ticks");
+        List<long[]> ticks = new ArrayList<>();
+        long millis = 1_700_000_000_000L;
+        long rateMicros = 1_000_000;
+
+        TickLog tickLog = TickLog.open(file, (tickMillis, tickRateMicros) -> {
+        });
+        for (int i = 0; i < 1000; i++) {
+            millis += random.nextInt(120_000);
+            // Rates move both ways, so both signs of the zigzag encoding are exercised
+            rateMicros = Math.max(1, rateMicros + random.nextInt(20_001) - 10_000);
+            tickLog.append(millis, rateMicros);
+            ticks.add(new long[]{millis, rateMicros});
+        }
+
+        assertTicks(ticks, replay(file));
+    }
+
+    // A delta is encoded as a zigzag varint: -1 and 1 take one byte, the extremes take ten
+    @Test
+    void encodesSmallDeltasInFewBytes() throws IOException {
+        Path file = directory.resolve("USDEUR.ticks");
+        TickLog tickLog = TickLog.open(file, (millis, rateMicros) -> {
+        });
+
+        tickLog.append(0, 0);
+        assertEquals(HEADER_SIZE + 2, readEnd(file));
+        tickLog.append(63, -1);
+        assertEquals(HEADER_SIZE + 4, readEnd(file));
+        tickLog.append(63 + 64, 0);
+        assertEquals(HEADER_SIZE + 7, readEnd(file));
+        tickLog.append(63 + 64, Long.MIN_VALUE);
+        assertEquals(HEADER_SIZE + 18, readEnd(file));
+        tickLog.append(63 + 64, 0);
+        assertEquals(HEADER_SIZE + 29, readEnd(file));
+
+        assertTicks(List.of(new long[]{0, 0}, new long[]{63, -1}, new long[]{127, 0},
+                new long[]{127, Long.MIN_VALUE}, new long[]{127, 0}), replay(file));
+    }
+
+    @Test
+    void extremeDeltasSurviveTheRoundTrip() throws IOException {
+        Path file = directory.resolve("USDEUR.ticks");
+        List<long[]> ticks = new ArrayList<>();
+        TickLog tickLog = TickLog.open(file, (millis, rateMicros) -> {
+        });
+        long millis = 0;
+        for (int i = 0; i < 1000; i++) {
+            millis += random.nextInt(3) == 0 ? random.nextLong(Long.MAX_VALUE / 2000) : random.nextInt(2);
+            long rateMicros = switch (random.nextInt(4)) {
+                case 0 -> Long.MIN_VALUE + random.nextInt(2);
+                case 1 -> Long.MAX_VALUE - random.nextInt(2);
+                default -> random.nextLong();
+            };
+            tickLog.append(millis, rateMicros);
+            ticks.add(new long[]{millis, rateMicros});
+        }
+
+        assertTicks(ticks, replay(file));
+    }
+
+    // Rate changes of Long.MIN_VALUE take ten bytes each and fill the first 64 KiB after about 4000 ticks,
+    // so the file has to be mapped again
+    @Test
+    void growsTheMappingAndKeepsAppendingAfterReopen() throws IOException {
+        Path file = directory.resolve("USDEUR.ticks");
+        List<long[]> ticks = new ArrayList<>();
+        TickLog tickLog = TickLog.open(file, (millis, rateMicros) -> {
+        });
+        appendAlternating(tickLog, ticks, 5000);
+        assertTrue(Files.size(file) > INITIAL_SIZE, "File was not grown");
+        tickLog.close();
+
+        List<long[]> replayed = new ArrayList<>();
+        TickLog reopened = TickLog.open(file, (millis, rateMicros) -> replayed.add(new long[]{millis, rateMicros}));
+        assertTicks(ticks, replayed);
+
+        // Deltas continue from the last replayed tick
+        appendAlternating(reopened, ticks, 5000);
+        assertTicks(ticks, replay(file));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotATickFile() throws IOException {
+        Path file = directory.resolve("USDEUR.ticks");
+        Files.write(file, new byte[HEADER_SIZE]);
+
+        assertThrows(IOException.class, () -> replay(file));
+    }
+
+    @Test
+    void rejectsARecordCutOffAtTheEnd() throws IOException {
+        Path file = directory.resolve("USDEUR.ticks");
+        TickLog tickLog = TickLog.open(file, (millis, rateMicros) -> {
+        });
+        tickLog.append(1, Long.MAX_VALUE);
+        // Moving the end one byte back leaves the last varint without its final byte
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.seek(8);
+            randomAccessFile.writeLong(readEnd(file) - 1);
+        }
+
+        assertThrows(IOException.class, () -> replay(file));
+    }
+
+    private void appendAlternating(TickLog tickLog, List<long[]> ticks, int count) throws IOException {
+        long millis = ticks.isEmpty() ? 0 : ticks.get(ticks.size() - 1)[0];
+        for (int i = 0; i < count; i++) {
+            millis += Long.MAX_VALUE / 40_000;
+            long rateMicros = i % 2 == 0 ? Long.MIN_VALUE : 0;
+            tickLog.append(millis, rateMicros);
+            ticks.add(new long[]{millis, rateMicros});
+        }
+    }
+
+    private List<long[]> replay(Path file) throws IOException {
+        List<long[]> ticks = new ArrayList<>();
+        TickLog.open(file, (millis, rateMicros) -> ticks.add(new long[]{millis, rateMicros}));
+        return ticks;
+    }
+
+    // The header stores the end of the written records as a big-endian long at offset 8
+    private long readEnd(Path file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "r")) {
+            randomAccessFile.seek(8);
+            return randomAccessFile.readLong();
+        }
+    }
+
+    private void assertTicks(List<long[]> expected, List<long[]> actual) {
+        assertEquals(expected.size(), actual.size(), "Tick count");
+        for (int i = 0; i < expected.size(); i++) {
+            int index = i;
+            assertEquals(expected.get(i)[0], actual.get(i)[0], () -> "Millis of tick " + index);
+            assertEquals(expected.get(i)[1], actual.get(i)[1], () -> "Rate of tick " + index);
+        }
+    }
+}
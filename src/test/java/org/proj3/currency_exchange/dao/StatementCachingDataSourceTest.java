@@ -0,0 +1,122 @@
+package org.proj3.currency_exchange.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCachingDataSourceTest {
+    private static final Query INSERT = new Query("insert", "INSERT INTO pairs (code, rate) VALUES (?, ?)");
+    private static final Query FIND = new Query("find", "SELECT rate FROM pairs WHERE code = ?");
+
+    @TempDir
+    Path directory;
+
+    private final List<String> executions = new ArrayList<>();
+    private SQLiteDataSource sqliteDataSource;
+    private StatementCachingDataSource dataSource;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        sqliteDataSource = new SQLiteDataSource();
+        sqliteDataSource.setUrl("jdbc:sqlite:" + directory.resolve("statements.db"));
+        dataSource = StatementCachingDataSource.wrap(sqliteDataSource, new QueryListener() {
+            @Override
+            public void onExecuted(Query query, Object[] binds, long executionNanos) {
+                executions.add(query.id() + Arrays.toString(binds));
+            }
+        });
+        TestDatabase.execute(dataSource, "CREATE TABLE pairs (code TEXT PRIMARY KEY, rate TEXT)");
+    }
+
+    @Test
+    void reusesTheStatementOfAConnectionAndReportsItsBinds() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            StatementCache statementCache = connection.unwrap(StatementCache.class);
+
+            PreparedStatement insert = statementCache.prepare(INSERT);
+            insert.setString(1, "USDEUR");
+            insert.setString(2, "0.9");
+            insert.executeUpdate();
+
+            PreparedStatement find = statementCache.prepare(FIND);
+            find.setString(1, "USDEUR");
+            try (ResultSet resultSet = find.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertEquals("0.9", resultSet.getString(1));
+            }
+
+            PreparedStatement insertAgain = statementCache.prepare(INSERT);
+            assertSame(insert, insertAgain);
+            insertAgain.setString(1, "USDGBP");
+            insertAgain.setNull(2, Types.VARCHAR);
+            insertAgain.executeUpdate();
+        }
+
+        assertEquals(List.of("insert[USDEUR, 0.9]", "find[USDEUR]", "insert[USDGBP, null]"), executions);
+        assertEquals(1, dataSource.getHits());
+        assertEquals(2, dataSource.getMisses());
+    }
+
+    @Test
+    void failedExecutionEvictsTheStatement() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            StatementCache statementCache = connection.unwrap(StatementCache.class);
+
+            PreparedStatement insert = statementCache.prepare(INSERT);
+            insert.setString(1, "USDEUR");
+            insert.setString(2, "0.9");
+            insert.executeUpdate();
+            assertThrows(SQLException.class, insert::executeUpdate);
+
+            assertTrue(insert.isClosed());
+            assertNotSame(insert, statementCache.prepare(INSERT));
+        }
+        // The failed execution is timed like any other
+        assertEquals(List.of("insert[USDEUR, 0.9]", "insert[USDEUR, 0.9]"), executions);
+    }
+
+    @Test
+    void closingTheConnectionClosesItsStatements() throws SQLException {
+        PreparedStatement find;
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(connection.isWrapperFor(StatementCache.class));
+            assertFalse(connection.isWrapperFor(SQLiteDataSource.class));
+            find = connection.unwrap(StatementCache.class).prepare(FIND);
+        }
+        assertTrue(find.isClosed());
+    }
+
+    // Each wrapped data source counts its own connections, so the read and write pools are reported apart
+    @Test
+    void countsHitsPerDataSource() throws SQLException {
+        StatementCachingDataSource other = StatementCachingDataSource.wrap(sqliteDataSource, QueryListener.NONE);
+        try (Connection connection = other.getConnection()) {
+            StatementCache statementCache = connection.unwrap(StatementCache.class);
+            statementCache.prepare(FIND);
+            statementCache.prepare(FIND);
+        }
+
+        assertEquals(1, other.getHits());
+        assertEquals(1, other.getMisses());
+        assertEquals(0, dataSource.getHits());
+        assertEquals(0, dataSource.getMisses());
+    }
+}
@@ -0,0 +1,67 @@
+package org.proj3.currency_exchange.dao;
+
+import org.proj3.currency_exchange.config.DatabaseMigrations;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// A database file with the schema the application ships with, for tests that run the real queries
+public final class TestDatabase {
+    private static final String CREATE_CURRENCIES = """
+            CREATE TABLE currencies
+            (
+                id        INTEGER primary key autoincrement,
+                code      VARCHAR(3) not null unique,
+                full_name VARCHAR(100),
+                sign      VARCHAR(5)
+            )
+            """;
+
+    private static final String CREATE_EXCHANGE_RATES = """
+            CREATE TABLE exchangeRates
+            (
+                id                 INTEGER primary key autoincrement,
+                base_currency_id   INTEGER        not null
+                    references currencies (ID)
+                        on delete cascade,
+                target_currency_id INTEGER        not null
+                    references currencies (ID)
+                        on delete cascade,
+                rate               DECIMAL(12, 6) not null,
+                unique (base_currency_id, target_currency_id)
+            )
+            """;
+
+    private TestDatabase() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    // The schema before any migration, as the bundled database file was created
+    public static DataSource createUnmigrated(Path directory) throws SQLException {
+        SQLiteDataSource sqliteDataSource = new SQLiteDataSource();
+        sqliteDataSource.setUrl("jdbc:sqlite:" + directory.resolve("currency.db"));
+
+        DataSource dataSource = StatementCachingDataSource.wrap(sqliteDataSource, QueryListener.NONE);
+        execute(dataSource, CREATE_CURRENCIES, CREATE_EXCHANGE_RATES);
+        return dataSource;
+    }
+
+    public static DataSource create(Path directory) throws SQLException {
+        DataSource dataSource = createUnmigrated(directory);
+        DatabaseMigrations.migrate(dataSource);
+        return dataSource;
+    }
+
+    public static void execute(DataSource dataSource, String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.proj3.currency_exchange.dao.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.proj3.currency_exchange.config.DatabaseMigrations;
+import org.proj3.currency_exchange.dao.QueryListener;
+import org.proj3.currency_exchange.dao.TestDatabase;
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
+import org.proj3.currency_exchange.exception.EntityExistsException;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeRateDaoTest {
+    private static final List<String> CODES = List.of("USD", "EUR", "GBP", "JPY", "CHF");
+
+    private final Random random = new Random(2401);
+
+    @TempDir
+    Path directory;
+
+    private ExchangeRateDao exchangeRateDao;
+    private final Map<String, CurrencyEntity> currencies = new HashMap<>();
+
+    @BeforeEach
+    void createDatabase() throws Exception {
+        DataSource dataSource = TestDatabase.create(directory);
+        exchangeRateDao = ExchangeRateDao.createInstance(dataSource, dataSource, QueryListener.NONE);
+        loadCurrencies(dataSource);
+    }
+
+    // Rates stored before change versions existed are numbered by id, so a client starting from 0 gets them all
+    @Test
+    void migrationNumbersExistingRatesById(@TempDir Path unmigratedDirectory) throws Exception {
+        DataSource dataSource = TestDatabase.createUnmigrated(unmigratedDirectory);
+        TestDatabase.execute(dataSource,
+                "INSERT INTO currencies (code, full_name, sign) VALUES ('USD', 'US Dollar', '$'), ('EUR', 'Euro', '€')",
+                "INSERT INTO exchangeRates (base_currency_id, target_currency_id, rate) VALUES (1, 2, 0.92)",
+                "INSERT INTO exchangeRates (base_currency_id, target_currency_id, rate) VALUES (2, 1, 1.09)",
+                "INSERT INTO exchangeRates (base_currency_id, target_currency_id, rate) VALUES (1, 1, 1)",
+                "DELETE FROM exchangeRates WHERE id = 2");
+        DatabaseMigrations.migrate(dataSource);
+        ExchangeRateDao migrated = ExchangeRateDao.createInstance(dataSource, dataSource, QueryListener.NONE);
+
+        List<ExchangeRateEntity> exchangeRates = new ArrayList<>();
+        assertEquals(3, migrated.streamChangedSince(0, exchangeRates::add));
+        assertEquals(List.of(1, 3), exchangeRates.stream().map(ExchangeRateEntity::getId).toList());
+        for (ExchangeRateEntity exchangeRate : exchangeRates) {
+            assertEquals(exchangeRate.getId(), exchangeRate.getChangeVersion());
+        }
+
+        // The next write continues after the highest id
+        assertEquals(4, migrated.saveOrUpdate("EUR", "USD", new BigDecimal("1.1")).orElseThrow().getChangeVersion());
+    }
+
+    @Test
+    void everyWriteTakesTheNextVersion() {
+        assertEquals(1, exchangeRateDao.save(exchangeRate("USD", "EUR", "0.92")).getChangeVersion());
+        assertEquals(2, exchangeRateDao.save(exchangeRate("USD", "GBP", "0.79")).getChangeVersion());
+        assertEquals(3, exchangeRateDao.update("USD", "EUR", new BigDecimal("0.93")).orElseThrow().getChangeVersion());
+        assertEquals(4, exchangeRateDao.saveOrUpdate("EUR", "GBP", new BigDecimal("0.86")).orElseThrow()
+                .getChangeVersion());
+        // saveOrUpdate writes the rate even when it is the same one
+        assertEquals(5, exchangeRateDao.saveOrUpdate("EUR", "GBP", new BigDecimal("0.86")).orElseThrow()
+                .getChangeVersion());
+
+        // A failed write takes no version
+        assertThrows(EntityExistsException.class, () -> exchangeRateDao.save(exchangeRate("USD", "EUR", "0.9")));
+        assertEquals(Optional.empty(), exchangeRateDao.update("JPY", "CHF", BigDecimal.ONE));
+        assertEquals(Optional.empty(), exchangeRateDao.saveOrUpdate("USD", "XXX", BigDecimal.ONE));
+
+        // An import skips unchanged rates, the others are numbered in the order given
+        int[] updateCounts = exchangeRateDao.saveOrUpdateAll(List.of(
+                exchangeRate("USD", "EUR", "0.93"),
+                exchangeRate("USD", "GBP", "0.8"),
+                exchangeRate("EUR", "GBP", "0.86"),
+                exchangeRate("GBP", "USD", "1.27")));
+        assertArrayEquals(new int[]{0, 1, 0, 1}, updateCounts);
+
+        assertEquals(Map.of("USDEUR", 3L, "USDGBP", 6L, "EURGBP", 5L, "GBPUSD", 7L), versions(exchangeRateDao.findAll()));
+    }
+
+    // Whatever sequence of writes produced them, the rows after a version are exactly those written later,
+    // oldest change first, and the returned version is the latest one
+    @Test
+    void streamsTheRowsChangedSinceAVersion() throws Exception {
+        assertEquals(0, exchangeRateDao.streamChangedSince(0, row -> {
+            throw new AssertionError("No rates are stored");
+        }));
+
+        Map<String, BigDecimal> rates = new HashMap<>();
+        Map<String, Long> versions = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            randomWrite(rates, versions);
+            assertEquals(versions, versions(exchangeRateDao.findAll()), "Versions");
+
+            long latest = versions.values().stream().mapToLong(Long::longValue).max().orElse(0);
+            long since = random.nextLong(latest + 3);
+            List<ExchangeRateEntity> changed = new ArrayList<>();
+            long returned = exchangeRateDao.streamChangedSince(since, changed::add);
+
+            List<Long> expected = versions.values().stream()
+                    .filter(version -> version > since)
+                    .sorted()
+                    .toList();
+            assertEquals(expected, changed.stream().map(ExchangeRateEntity::getChangeVersion).toList(),
+                    () -> "Changed since " + since);
+            assertEquals(latest, returned, () -> "Changed since " + since);
+            for (ExchangeRateEntity exchangeRate : changed) {
+                assertEquals(0, rates.get(pair(exchangeRate)).compareTo(exchangeRate.getRate()),
+                        pair(exchangeRate));
+            }
+        }
+    }
+
+    // One of the write paths on a random pair, applied to the reference maps the way the database should apply it
+    private void randomWrite(Map<String, BigDecimal> rates, Map<String, Long> versions) {
+        switch (random.nextInt(4)) {
+            case 0 -> {
+                String pair = randomPair();
+                ExchangeRateEntity exchangeRate = exchangeRate(pair.substring(0, 3), pair.substring(3), randomRate());
+                if (rates.containsKey(pair)) {
+                    assertThrows(EntityExistsException.class, () -> exchangeRateDao.save(exchangeRate));
+                } else {
+                    write(rates, versions, pair, exchangeRate.getRate());
+                    assertEquals(versions.get(pair), exchangeRateDao.save(exchangeRate).getChangeVersion());
+                }
+            }
+            case 1 -> {
+                String pair = randomPair();
+                BigDecimal rate = new BigDecimal(randomRate());
+                Optional<ExchangeRateEntity> updated = exchangeRateDao.update(pair.substring(0, 3), pair.substring(3), rate);
+                assertEquals(rates.containsKey(pair), updated.isPresent(), pair);
+                if (updated.isPresent()) {
+                    write(rates, versions, pair, rate);
+                    assertEquals(versions.get(pair), updated.get().getChangeVersion());
+                }
+            }
+            case 2 -> {
+                String pair = randomPair();
+                BigDecimal rate = new BigDecimal(randomRate());
+                ExchangeRateEntity saved = exchangeRateDao.saveOrUpdate(pair.substring(0, 3), pair.substring(3), rate)
+                        .orElseThrow();
+                write(rates, versions, pair, rate);
+                assertEquals(versions.get(pair), saved.getChangeVersion());
+            }
+            default -> {
+                Map<String, ExchangeRateEntity> batch = new LinkedHashMap<>();
+                for (int i = random.nextInt(6); i > 0; i--) {
+                    String pair = randomPair();
+                    batch.put(pair, exchangeRate(pair.substring(0, 3), pair.substring(3), randomRate()));
+                }
+                int[] expected = new int[batch.size()];
+                int index = 0;
+                for (Map.Entry<String, ExchangeRateEntity> entry : batch.entrySet()) {
+                    BigDecimal current = rates.get(entry.getKey());
+                    BigDecimal rate = entry.getValue().getRate();
+                    if (current == null || current.compareTo(rate) != 0) {
+                        write(rates, versions, entry.getKey(), rate);
+                        expected[index] = 1;
+                    }
+                    index++;
+                }
+                assertArrayEquals(expected, exchangeRateDao.saveOrUpdateAll(new ArrayList<>(batch.values())),
+                        batch.keySet().toString());
+            }
+        }
+    }
+
+    private static void write(Map<String, BigDecimal> rates, Map<String, Long> versions, String pair, BigDecimal rate) {
+        long next = versions.values().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        rates.put(pair, rate);
+        versions.put(pair, next);
+    }
+
+    private String randomPair() {
+        return CODES.get(random.nextInt(CODES.size())) + CODES.get(random.nextInt(CODES.size()));
+    }
+
+    // Few distinct rates, so that imports often repeat the stored one
+    private String randomRate() {
+        return "0." + (1 + random.nextInt(3));
+    }
+
+    private ExchangeRateEntity exchangeRate(String baseCode, String targetCode, String rate) {
+        return new ExchangeRateEntity(currencies.get(baseCode), currencies.get(targetCode), new BigDecimal(rate));
+    }
+
+    private void loadCurrencies(DataSource dataSource) {
+        CurrencyDao currencyDao = CurrencyDao.createInstance(dataSource, dataSource, QueryListener.NONE);
+        currencyDao.saveAll(CODES.stream().map(code -> new CurrencyEntity(code, code + " name", code)).toList());
+        for (CurrencyEntity currency : currencyDao.findAll()) {
+            currencies.put(currency.getCode(), currency);
+        }
+        assertTrue(currencies.keySet().containsAll(CODES));
+    }
+
+    private static Map<String, Long> versions(List<ExchangeRateEntity> exchangeRates) {
+        Map<String, Long> versions = new HashMap<>();
+        for (ExchangeRateEntity exchangeRate : exchangeRates) {
+            versions.put(pair(exchangeRate), exchangeRate.getChangeVersion());
+        }
+        return versions;
+    }
+
+    private static String pair(ExchangeRateEntity exchangeRate) {
+        return exchangeRate.getBaseCurrency().getCode() + exchangeRate.getTargetCurrency().getCode();
+    }
+}
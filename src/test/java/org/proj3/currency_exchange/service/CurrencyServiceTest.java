@@ -0,0 +1,136 @@
+package org.proj3.currency_exchange.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.proj3.currency_exchange.dao.QueryListener;
+import org.proj3.currency_exchange.dao.TestDatabase;
+import org.proj3.currency_exchange.dao.impl.CurrencyDao;
+import org.proj3.currency_exchange.dto.CurrencyResponseDto;
+import org.proj3.currency_exchange.dto.PageDto;
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+import org.proj3.currency_exchange.exception.IllegalPararmeterException;
+import org.proj3.currency_exchange.mapper.CurrencyMapper;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CurrencyServiceTest {
+    // Several codes share each first letter and some share two, so prefixes select ranges of different sizes
+    private static final List<String> CODES = List.of("AED", "AUD", "BAM", "BGN", "BRL", "CAD", "CHF", "CNY", "CZK",
+            "DKK", "EUR", "GBP", "HKD", "HUF", "INR", "JPY", "KRW", "MXN", "NOK", "NZD", "PLN", "SEK", "SGD", "THB",
+            "TRY", "UAH", "USD", "UYU", "ZAR");
+
+    private final Random random = new Random(2501);
+
+    @TempDir
+    Path directory;
+
+    private CurrencyService currencyService;
+
+    @BeforeEach
+    void createDatabase() throws Exception {
+        DataSource dataSource = TestDatabase.create(directory);
+        CurrencyDao currencyDao = CurrencyDao.createInstance(dataSource, dataSource, QueryListener.NONE);
+        // Stored out of order, pages follow the codes and not the ids
+        List<String> shuffled = new ArrayList<>(CODES);
+        Collections.shuffle(shuffled, random);
+        currencyDao.saveAll(shuffled.stream().map(code -> new CurrencyEntity(code, code + " name", code)).toList());
+
+        // Paging reads only the currency table, the caches are not involved
+        currencyService = CurrencyService.createInstance(currencyDao, null, null, CurrencyMapper.getInstance());
+    }
+
+    @Test
+    void pagesEndOnTheLastCode() {
+        PageDto<CurrencyResponseDto> first = currencyService.findPage(null, null, 2);
+        assertEquals(List.of("AED", "AUD"), codes(first));
+        assertEquals("AUD", first.nextCursor());
+
+        PageDto<CurrencyResponseDto> second = currencyService.findPage(null, first.nextCursor(), 2);
+        assertEquals(List.of("BAM", "BGN"), codes(second));
+
+        PageDto<CurrencyResponseDto> last = currencyService.findPage("u", null, 3);
+        assertEquals(List.of("UAH", "USD", "UYU"), codes(last));
+        assertNull(last.nextCursor());
+    }
+
+    // A cursor only has to be a code, not a stored one: the page starts after where it would sort
+    @Test
+    void acceptsCursorsThatAreNotStored() {
+        assertEquals(List.of("HKD", "HUF"), codes(currencyService.findPage(null, "GEL", 2)));
+        assertEquals(List.of("USD"), codes(currencyService.findPage("US", " uah ", 5)));
+        assertEquals(List.of(), codes(currencyService.findPage(null, "ZWL", 5)));
+    }
+
+    @Test
+    void rejectsInvalidCursorsAndPrefixes() {
+        for (String cursor : List.of("", " ", "E1", "EU", "ZZZZ", "US D", "0")) {
+            assertThrows(IllegalPararmeterException.class, () -> currencyService.findPage(null, cursor, 10), cursor);
+        }
+        for (String prefix : List.of("", " ", "USDX", "U1", "€", "U-")) {
+            assertThrows(IllegalPararmeterException.class, () -> currencyService.findPage(prefix, null, 10), prefix);
+        }
+    }
+
+    // Following nextCursor from the first page visits every matching currency once, in code order, whatever
+    // the page size and prefix; the cursors are sometimes sent back the way a client might reformat them
+    @Test
+    void followingTheCursorVisitsEveryCurrencyOnce() {
+        for (int i = 0; i < 500; i++) {
+            String prefix = randomPrefix();
+            int limit = 1 + random.nextInt(8);
+            String input = "prefix " + prefix + ", limit " + limit;
+
+            List<String> visited = new ArrayList<>();
+            String cursor = null;
+            do {
+                PageDto<CurrencyResponseDto> page = currencyService.findPage(prefix, cursor, limit);
+                visited.addAll(codes(page));
+                assertTrue(page.items().size() <= limit, input);
+                if (page.nextCursor() != null) {
+                    assertEquals(limit, page.items().size(), input);
+                }
+                cursor = page.nextCursor() == null || random.nextBoolean()
+                        ? page.nextCursor()
+                        : " " + page.nextCursor().toLowerCase(Locale.ROOT);
+            } while (cursor != null);
+
+            String upperPrefix = prefix == null ? "" : prefix.trim().toUpperCase(Locale.ROOT);
+            assertEquals(CODES.stream().filter(code -> code.startsWith(upperPrefix)).toList(), visited, input);
+        }
+    }
+
+    // Mostly the start of a stored code, sometimes letters no code starts with
+    private String randomPrefix() {
+        return switch (random.nextInt(5)) {
+            case 0 -> null;
+            case 1 -> {
+                StringBuilder prefix = new StringBuilder();
+                for (int i = random.nextInt(3); i >= 0; i--) {
+                    prefix.append((char) ('A' + random.nextInt(26)));
+                }
+                yield prefix.toString();
+            }
+            default -> {
+                String code = CODES.get(random.nextInt(CODES.size()));
+                String prefix = code.substring(0, 1 + random.nextInt(code.length()));
+                yield random.nextBoolean() ? prefix : prefix.toLowerCase(Locale.ROOT);
+            }
+        };
+    }
+
+    private static List<String> codes(PageDto<CurrencyResponseDto> page) {
+        return page.items().stream().map(CurrencyResponseDto::getCode).toList();
+    }
+}
@@ -0,0 +1,232 @@
+package org.proj3.currency_exchange.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.proj3.currency_exchange.cache.RateCache;
+import org.proj3.currency_exchange.cache.RateRouter;
+import org.proj3.currency_exchange.cache.ResponseCache;
+import org.proj3.currency_exchange.cache.SingleFlight;
+import org.proj3.currency_exchange.candle.Candle;
+import org.proj3.currency_exchange.candle.CandleStore;
+import org.proj3.currency_exchange.candle.Resolution;
+import org.proj3.currency_exchange.dao.QueryListener;
+import org.proj3.currency_exchange.dao.TestDatabase;
+import org.proj3.currency_exchange.dao.impl.CurrencyDao;
+import org.proj3.currency_exchange.dao.impl.ExchangeRateDao;
+import org.proj3.currency_exchange.dto.ExchangeRateResponseDto;
+import org.proj3.currency_exchange.dto.PageDto;
+import org.proj3.currency_exchange.entity.CurrencyEntity;
+import org.proj3.currency_exchange.entity.ExchangeRateEntity;
+import org.proj3.currency_exchange.exception.IllegalCurrencyCodeException;
+import org.proj3.currency_exchange.exception.IllegalPararmeterException;
+import org.proj3.currency_exchange.mapper.ExchangeRateMapper;
+import org.proj3.currency_exchange.stream.FeedSubscriber;
+import org.proj3.currency_exchange.stream.RateFeed;
+import org.proj3.currency_exchange.util.FixedPointUtil;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeRateServiceTest {
+    private static final List<String> CODES = List.of("USD", "EUR", "GBP", "JPY", "CHF", "CAD");
+
+    private static final int WRITERS = 8;
+    private static final int WRITES_PER_WRITER = 25;
+    private static final Pattern CHANGE_VERSION = Pattern.compile("\"changeVersion\":(\\d+)");
+
+    private final Random random = new Random(2502);
+
+    @TempDir
+    Path directory;
+
+    private CurrencyDao currencyDao;
+    private ExchangeRateDao exchangeRateDao;
+    private ExchangeRateService exchangeRateService;
+
+    @BeforeEach
+    void createDatabase() throws Exception {
+        DataSource dataSource = TestDatabase.create(directory);
+        currencyDao = CurrencyDao.createInstance(dataSource, dataSource, QueryListener.NONE);
+        currencyDao.saveAll(CODES.stream().map(code -> new CurrencyEntity(code, code + " name", code)).toList());
+        exchangeRateDao = ExchangeRateDao.createInstance(dataSource, dataSource, QueryListener.NONE);
+
+        // Every pair in random order, then a few deleted, so the ids have gaps
+        List<ExchangeRateEntity> exchangeRates = new ArrayList<>();
+        for (CurrencyEntity base : currencyDao.findAll()) {
+            for (CurrencyEntity target : currencyDao.findAll()) {
+                if (base.getId() != target.getId()) {
+                    exchangeRates.add(new ExchangeRateEntity(base, target, new BigDecimal("1.5")));
+                }
+            }
+        }
+        Collections.shuffle(exchangeRates, random);
+        exchangeRateDao.saveOrUpdateAll(exchangeRates);
+        TestDatabase.execute(dataSource, "DELETE FROM exchangeRates WHERE id % 7 = 3");
+
+        // Paging reads only the rates table, none of the caches or the feed are involved
+        exchangeRateService = ExchangeRateService.createInstance(exchangeRateDao, currencyDao, null, null, null, null,
+                ExchangeRateMapper.getInstance(), null);
+    }
+
+    @Test
+    void pagesEndOnTheLastId() {
+        List<ExchangeRateEntity> all = sortedById(exchangeRateDao.findAll());
+
+        PageDto<ExchangeRateResponseDto> first = exchangeRateService.findPage(null, null, null, 3);
+        assertEquals(ids(all.subList(0, 3)), ids(first));
+        assertEquals(Integer.toString(all.get(2).getId()), first.nextCursor());
+
+        PageDto<ExchangeRateResponseDto> pair = exchangeRateService.findPage(" usd", "EUR", null, 1);
+        assertEquals(1, pair.items().size());
+        assertEquals("USD", pair.items().get(0).getBaseCurrency().getCode());
+        assertEquals("EUR", pair.items().get(0).getTargetCurrency().getCode());
+        assertNull(pair.nextCursor());
+    }
+
+    @Test
+    void rejectsInvalidCursorsAndCodes() {
+        for (String cursor : List.of("", "-1", "x", "1.5", "99999999999", "USD")) {
+            assertThrows(IllegalPararmeterException.class,
+                    () -> exchangeRateService.findPage(null, null, cursor, 10), cursor);
+        }
+        assertThrows(IllegalCurrencyCodeException.class, () -> exchangeRateService.findPage("US", null, null, 10));
+        assertThrows(IllegalCurrencyCodeException.class, () -> exchangeRateService.findPage(null, "ZZZ", null, 10));
+    }
+
+    // Following nextCursor from the first page visits every matching rate once, in id order, with either side
+    // of the pair fixed or open and any page size
+    @Test
+    void followingTheCursorVisitsEveryRateOnce() {
+        List<ExchangeRateEntity> all = sortedById(exchangeRateDao.findAll());
+
+        for (int i = 0; i < 300; i++) {
+            String base = random.nextInt(3) == 0 ? null : CODES.get(random.nextInt(CODES.size()));
+            String target = random.nextInt(3) == 0 ? null : CODES.get(random.nextInt(CODES.size()));
+            int limit = 1 + random.nextInt(10);
+            String input = base + "/" + target + ", limit " + limit;
+
+            List<Integer> visited = new ArrayList<>();
+            String cursor = null;
+            do {
+                PageDto<ExchangeRateResponseDto> page = exchangeRateService.findPage(base, target, cursor, limit);
+                visited.addAll(ids(page));
+                assertTrue(page.items().size() <= limit, input);
+                if (page.nextCursor() != null) {
+                    assertEquals(limit, page.items().size(), input);
+                }
+                cursor = page.nextCursor();
+            } while (cursor != null);
+
+            List<Integer> expected = ids(all.stream()
+                    .filter(exchangeRate -> base == null || exchangeRate.getBaseCurrency().getCode().equals(base))
+                    .filter(exchangeRate -> target == null || exchangeRate.getTargetCurrency().getCode().equals(target))
+                    .toList());
+            assertEquals(expected, visited, input);
+        }
+    }
+
+    // Writers racing on one pair leave the snapshot and the latest candle at the rate that was committed last,
+    // and the feed carries their changes in commit order
+    @Test
+    void concurrentWritesAreAppliedInCommitOrder() throws Exception {
+        RateCache rateCache = RateCache.createInstance(currencyDao, exchangeRateDao,
+                RateRouter.createInstance(List.of("USD"), 3), true,
+                SingleFlight.createInstance("routeRates", false, () -> 0));
+        int writes = WRITERS * WRITES_PER_WRITER;
+        RateFeed rateFeed = RateFeed.createInstance(writes, writes + 1, 3600);
+        RecordingSubscriber subscriber = new RecordingSubscriber(writes + 1);
+        rateFeed.subscribe(subscriber, null);
+        CandleStore candleStore = CandleStore.createInstance(true, directory.resolve("ticks"));
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            ExchangeRateService service = ExchangeRateService.createInstance(exchangeRateDao, currencyDao, rateCache,
+                    ResponseCache.createInstance(false), candleStore, rateFeed,
+                    ExchangeRateMapper.getInstance(), null);
+            rateCache.snapshot();
+
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                long firstRate = (writer + 1) * 1000L;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                        service.update("USDEUR", BigDecimal.valueOf(firstRate + i, 3));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+
+            BigDecimal committed = exchangeRateDao.find("USD", "EUR").orElseThrow().getRate();
+            int usd = PackedCodeUtil.pack("USD");
+            int eur = PackedCodeUtil.pack("EUR");
+            BigDecimal cached = rateCache.snapshot().rate(usd, eur).rate();
+            assertEquals(0, committed.compareTo(cached), committed + " committed, " + cached + " cached");
+            Candle latest = candleStore.candles(usd, eur, Resolution.DAY, 1).get(0);
+            assertEquals(FixedPointUtil.toScaled(committed, FixedPointUtil.MICRO_SCALE), latest.closeMicros());
+
+            List<Long> changeVersions = subscriber.changeVersions();
+            assertEquals(writes, changeVersions.size());
+            for (int i = 1; i < changeVersions.size(); i++) {
+                assertTrue(changeVersions.get(i - 1) < changeVersions.get(i), changeVersions.toString());
+            }
+        } finally {
+            executor.shutdownNow();
+            rateFeed.close();
+            candleStore.close();
+        }
+    }
+
+    private static final class RecordingSubscriber extends FeedSubscriber {
+        RecordingSubscriber(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        protected void onAvailable() {
+        }
+
+        // The versions of the rate events buffered so far, in the order they were published
+        List<Long> changeVersions() {
+            List<Long> changeVersions = new ArrayList<>();
+            for (byte[] frame = poll(); frame != null; frame = poll()) {
+                Matcher matcher = CHANGE_VERSION.matcher(new String(frame, StandardCharsets.UTF_8));
+                if (matcher.find()) {
+                    changeVersions.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+            return changeVersions;
+        }
+    }
+
+    private static List<ExchangeRateEntity> sortedById(List<ExchangeRateEntity> exchangeRates) {
+        return exchangeRates.stream().sorted(Comparator.comparingInt(ExchangeRateEntity::getId)).toList();
+    }
+
+    private static List<Integer> ids(List<ExchangeRateEntity> exchangeRates) {
+        return exchangeRates.stream().map(ExchangeRateEntity::getId).toList();
+    }
+
+    private static List<Integer> ids(PageDto<ExchangeRateResponseDto> page) {
+        return page.items().stream().map(ExchangeRateResponseDto::getId).toList();
+    }
+}
@@ -0,0 +1,120 @@
+package org.proj3.currency_exchange.service;
+
+import org.junit.jupiter.api.Test;
+import org.proj3.currency_exchange.cache.CachedCurrency;
+import org.proj3.currency_exchange.cache.CachedRate;
+import org.proj3.currency_exchange.cache.RateRouter;
+import org.proj3.currency_exchange.dto.ExchangeRequestDto;
+import org.proj3.currency_exchange.dto.ExchangeResponseDto;
+import org.proj3.currency_exchange.mapper.CurrencyMapper;
+import org.proj3.currency_exchange.util.FixedPointUtil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExchangeServiceTest {
+    private static final int TRIALS = 100_000;
+    private static final BigDecimal BILLION = BigDecimal.valueOf(1_000_000_000);
+
+    private static final CachedCurrency USD = new CachedCurrency(1, "USD", "US Dollar", "$");
+    private static final CachedCurrency EUR = new CachedCurrency(2, "EUR", "Euro", "€");
+
+    private final ExchangeService exchangeService = ExchangeService.createInstance(null,
+            RateRouter.createInstance(List.of("USD"), 2), CurrencyMapper.getInstance(), Runnable::run);
+
+    private final Random random = new Random(1103);
+
+    @Test
+    void convertedAmountMatchesBigDecimal() {
+        for (int i = 0; i < TRIALS; i++) {
+            assertConversion(randomRate(), randomAmount());
+        }
+    }
+
+    // A rate of n.5 times an odd number of cents lands exactly on half a cent, amounts ending in 5 past the
+    // cents lie halfway between two amounts in cents
+    @Test
+    void halfwayAmountsRoundToEven() {
+        for (int i = 0; i < TRIALS; i++) {
+            BigDecimal rate = BigDecimal.valueOf(random.nextInt(1000) * 10L + 5, 1);
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(1_000_000) * 2L + 1, 2);
+            assertConversion(rate, amount);
+
+            BigDecimal halfCentAmount = BigDecimal.valueOf(random.nextInt(1_000_000) * 10L + 15, 3);
+            assertConversion(randomRate(), halfCentAmount);
+        }
+        assertConversion(new BigDecimal("0.5"), new BigDecimal("0.01"));
+        assertConversion(new BigDecimal("1.5"), new BigDecimal("0.01"));
+        assertConversion(new BigDecimal("1.5"), new BigDecimal("0.03"));
+        assertConversion(new BigDecimal("1"), new BigDecimal("0.125"));
+        assertConversion(new BigDecimal("1"), new BigDecimal("0.135"));
+    }
+
+    @Test
+    void largeConversionsFallBackToBigDecimal() {
+        BigDecimal rate = new BigDecimal("999999.999999");
+        BigDecimal amount = new BigDecimal("999999999.99");
+        // Rate in millionths times amount in cents is about 10^23, far beyond a long
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE, FixedPointUtil.multiply(
+                FixedPointUtil.toScaled(rate, FixedPointUtil.MICRO_SCALE), FixedPointUtil.toScaled(amount, 2)));
+
+        assertConversion(rate, amount);
+        assertConversion(rate, new BigDecimal("0.01"));
+        assertConversion(new BigDecimal("0.000001"), amount);
+    }
+
+    // A rate with more than six decimal places, e.g. a cross rate computed in BigDecimal, has no micros
+    @Test
+    void rateWithoutMicrosFallsBackToBigDecimal() {
+        for (int i = 0; i < TRIALS; i++) {
+            BigDecimal rate = randomRate().add(BigDecimal.valueOf(1 + random.nextInt(999), 9));
+            assertEquals(FixedPointUtil.NOT_REPRESENTABLE, new CachedRate(1, USD, EUR, rate).rateMicros());
+            assertConversion(rate, randomAmount());
+        }
+    }
+
+    private void assertConversion(BigDecimal rate, BigDecimal amount) {
+        CachedRate cachedRate = new CachedRate(1, USD, EUR, rate);
+        ExchangeResponseDto response = exchangeService.exchange(new ExchangeRequestDto("USD", "EUR", amount),
+                (from, to) -> Optional.of(cachedRate));
+
+        BigDecimal roundedAmount = amount.setScale(2, RoundingMode.HALF_EVEN);
+        BigDecimal expected = new BigDecimal(rate.multiply(roundedAmount)
+                .setScale(2, RoundingMode.HALF_EVEN)
+                .stripTrailingZeros()
+                .toPlainString());
+        String input = rate.toPlainString() + " * " + amount.toPlainString();
+        assertEquals(expected, response.convertedAmount(), input);
+        assertEquals(roundedAmount, response.amount(), input);
+    }
+
+    // What DECIMAL(12, 6) holds: up to six digits on either side of the point
+    private BigDecimal randomRate() {
+        int scale = random.nextInt(FixedPointUtil.MICRO_SCALE + 1);
+        BigInteger unscaled = randomUnscaled(6 + scale);
+        return new BigDecimal(unscaled.signum() == 0 ? BigInteger.ONE : unscaled, scale);
+    }
+
+    // Anything the amount validation accepts: under a billion, at most six decimal places, at least a cent
+    private BigDecimal randomAmount() {
+        while (true) {
+            int scale = random.nextInt(7);
+            BigDecimal amount = new BigDecimal(randomUnscaled(9 + scale), scale);
+            BigDecimal roundedAmount = amount.setScale(2, RoundingMode.HALF_EVEN);
+            if (roundedAmount.signum() > 0 && roundedAmount.compareTo(BILLION) < 0) {
+                return amount;
+            }
+        }
+    }
+
+    private BigInteger randomUnscaled(int maxDigits) {
+        int digits = 1 + random.nextInt(maxDigits);
+        return new BigInteger(digits * 4, random).mod(BigInteger.TEN.pow(digits));
+    }
+}
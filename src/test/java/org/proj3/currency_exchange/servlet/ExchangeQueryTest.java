@@ -0,0 +1,173 @@
+package org.proj3.currency_exchange.servlet;
+
+import org.junit.jupiter.api.Test;
+import org.proj3.currency_exchange.exception.IllegalCurrencyCodeException;
+import org.proj3.currency_exchange.util.CurrencyUtil;
+import org.proj3.currency_exchange.util.ExchangeUtil;
+import org.proj3.currency_exchange.util.PackedCodeUtil;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeQueryTest {
+    private static final String[] NAMES = {"from", "to", "amount", "asOf", "fro%6D", "amoun%74", "To", "x", ""};
+    private static final String[] CODES = {"USD", "usd", "%20eur", "+EUR", "/gbp", "u%73d", " JPY", "US", "USDX", "ZZZ",
+            "", "%2Fchf"};
+    private static final String[] AMOUNT_PARTS = {"0", "1", "5", "9", ".", ",", "%2C", "%2E", "+", "-", "e", "x"};
+
+    private final Random random = new Random(2001);
+
+    @Test
+    void readsPlainParameters() {
+        ExchangeQuery query = ExchangeQuery.parse("from=USD&to=EUR&amount=1250.75");
+
+        assertTrue(query.hasRequiredParameters());
+        assertEquals(PackedCodeUtil.pack("USD"), query.packedFromCode());
+        assertEquals(PackedCodeUtil.pack("EUR"), query.packedToCode());
+        assertEquals(new BigDecimal("1250.75"), query.amount());
+        assertFalse(query.hasAsOf());
+        assertNull(query.asOf());
+    }
+
+    @Test
+    void decodesEncodedParameters() {
+        ExchangeQuery query = ExchangeQuery.parse("fro%6D=usd&to=%20eur&amount=1250%2C75&asOf=2024-01-01T00%3A00%3A00Z");
+
+        assertTrue(query.hasRequiredParameters());
+        assertEquals(PackedCodeUtil.pack("USD"), query.packedFromCode());
+        assertEquals(PackedCodeUtil.pack("EUR"), query.packedToCode());
+        assertEquals(new BigDecimal("1250.75"), query.amount());
+        assertEquals("2024-01-01T00:00:00Z", query.asOf());
+    }
+
+    @Test
+    void firstOccurrenceWins() {
+        ExchangeQuery query = ExchangeQuery.parse("amount=1&from=USD&amount=2&from=EUR&to=GBP&to=JPY");
+
+        assertEquals(PackedCodeUtil.pack("USD"), query.packedFromCode());
+        assertEquals(PackedCodeUtil.pack("GBP"), query.packedToCode());
+        assertEquals(BigDecimal.ONE, query.amount());
+    }
+
+    @Test
+    void reportsMissingAndEmptyParameters() {
+        assertFalse(ExchangeQuery.parse(null).hasRequiredParameters());
+        assertFalse(ExchangeQuery.parse("").hasRequiredParameters());
+        assertFalse(ExchangeQuery.parse("from=USD&to=EUR").hasRequiredParameters());
+
+        ExchangeQuery query = ExchangeQuery.parse("from&to=&amount=1");
+        assertTrue(query.hasRequiredParameters());
+        assertTrue(query.isFromEmpty());
+        assertTrue(query.isToEmpty());
+        assertFalse(query.isAmountEmpty());
+    }
+
+    // More digits than a long holds go through BigDecimal's own parser and keep every digit
+    @Test
+    void parsesLongAmounts() {
+        ExchangeQuery query = ExchangeQuery.parse("from=USD&to=EUR&amount=12345678901234567890.123");
+
+        assertEquals(new BigDecimal("12345678901234567890.123"), query.amount());
+    }
+
+    @Test
+    void rejectsInvalidValues() {
+        ExchangeQuery query = ExchangeQuery.parse("from=US&to=ZZZ&amount=1.2.3");
+
+        assertThrows(IllegalCurrencyCodeException.class, query::packedFromCode);
+        assertThrows(IllegalCurrencyCodeException.class, query::packedToCode);
+        assertThrows(IllegalArgumentException.class, query::amount);
+    }
+
+    // Every query gives the same answers as the servlet's former path: the container's parameter map, where the
+    // first value of a name wins and names and values are URL-decoded, followed by the String-based parsers
+    @Test
+    void agreesWithDecodedParameters() {
+        for (int i = 0; i < 100_000; i++) {
+            String queryString = randomQuery();
+            Map<String, String> parameters = decode(queryString);
+            ExchangeQuery query = ExchangeQuery.parse(queryString);
+
+            boolean complete = parameters.containsKey("from") && parameters.containsKey("to")
+                               && parameters.containsKey("amount");
+            assertEquals(complete, query.hasRequiredParameters(), queryString);
+            assertEquals(parameters.get("asOf"), query.asOf(), queryString);
+            if (!complete) {
+                continue;
+            }
+
+            assertEquals(parameters.get("from").isEmpty(), query.isFromEmpty(), queryString);
+            assertEquals(parameters.get("to").isEmpty(), query.isToEmpty(), queryString);
+            assertEquals(parameters.get("amount").isEmpty(), query.isAmountEmpty(), queryString);
+            assertEquals(outcome(() -> CurrencyUtil.toPackedCode(parameters.get("from"))),
+                    outcome(query::packedFromCode), queryString);
+            assertEquals(outcome(() -> CurrencyUtil.toPackedCode(parameters.get("to"))),
+                    outcome(query::packedToCode), queryString);
+            assertEquals(outcome(() -> ExchangeUtil.convertToNumber(parameters.get("amount"))),
+                    outcome(query::amount), queryString);
+        }
+    }
+
+    private String randomQuery() {
+        List<String> pairs = new ArrayList<>();
+        int count = random.nextInt(7);
+        for (int i = 0; i < count; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            String value = URLDecoder.decode(name, StandardCharsets.UTF_8).equals("amount")
+                    ? randomAmount()
+                    : CODES[random.nextInt(CODES.length)];
+            pairs.add(random.nextInt(10) == 0 ? name : name + "=" + value);
+        }
+        return String.join("&", pairs);
+    }
+
+    private String randomAmount() {
+        if (random.nextInt(10) == 0) {
+            // Longer than a long, or a plain amount with many decimals
+            return random.nextLong(Long.MAX_VALUE) + "" + random.nextInt(1000) + "." + random.nextInt(100);
+        }
+        StringBuilder amount = new StringBuilder();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            // Mostly digits, so that most amounts are valid
+            amount.append(random.nextBoolean()
+                    ? String.valueOf(random.nextInt(10))
+                    : AMOUNT_PARTS[random.nextInt(AMOUNT_PARTS.length)]);
+        }
+        return amount.toString();
+    }
+
+    private static Map<String, String> decode(String queryString) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : queryString.split("&", -1)) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    // The value, or the type and message of the exception, so failures are compared as well
+    private static String outcome(Supplier<Object> parser) {
+        try {
+            return "value " + parser.get();
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.proj3.currency_exchange.stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.proj3.currency_exchange.dto.ExchangeRateResponseDto;
+import org.proj3.currency_exchange.util.JsonUtil;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateFeedTest {
+    private static final int HISTORY_SIZE = 8;
+    private static final int BUFFER_SIZE = 4;
+    // Long enough that no heartbeat is sent while a test runs
+    private static final long HEARTBEAT_SECONDS = 3600;
+
+    private static final String RETRY_FRAME = "retry: 3000\n\n";
+
+    private final RateFeed rateFeed = RateFeed.createInstance(HISTORY_SIZE, BUFFER_SIZE, HEARTBEAT_SECONDS);
+
+    @AfterEach
+    void close() {
+        rateFeed.close();
+    }
+
+    @Test
+    void subscriberGetsTheRetryFrameAndThenEveryEvent() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber(BUFFER_SIZE);
+        rateFeed.subscribe(subscriber, null);
+        assertEquals(List.of(RETRY_FRAME), subscriber.drain());
+
+        ExchangeRateResponseDto exchangeRate = exchangeRate(new BigDecimal("0.92"));
+        rateFeed.publish(exchangeRate);
+        rateFeed.publishResync(RateFeed.RESYNC_IMPORT);
+        subscriber.awaitAvailable();
+
+        List<String> frames = subscriber.drain();
+        assertEquals(2, frames.size());
+        assertEquals("rate", field(frames.get(0), "event"));
+        assertEquals(JsonUtil.toJson(exchangeRate), field(frames.get(0), "data"));
+        assertEquals("resync", field(frames.get(1), "event"));
+        assertEquals("{\"reason\":\"import\"}", field(frames.get(1), "data"));
+        assertNotEquals(field(frames.get(0), "id"), field(frames.get(1), "id"));
+    }
+
+    // The writer only enqueues, subscribers are told on the feed's own thread
+    @Test
+    void subscribersAreNotifiedOffThePublishingThread() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber(BUFFER_SIZE);
+        rateFeed.subscribe(subscriber, null);
+        assertEquals(Thread.currentThread(), subscriber.awaitAvailable());
+
+        rateFeed.publishResync(RateFeed.RESYNC_IMPORT);
+
+        Thread notifyingThread = subscriber.awaitAvailable();
+        assertNotEquals(Thread.currentThread(), notifyingThread);
+        assertEquals("rate-feed", notifyingThread.getName());
+    }
+
+    @Test
+    void reconnectingSubscriberGetsWhatItMissed() throws Exception {
+        TestSubscriber first = new TestSubscriber(HISTORY_SIZE);
+        rateFeed.subscribe(first, null);
+        for (int i = 0; i < 6; i++) {
+            rateFeed.publish(exchangeRate(BigDecimal.valueOf(i)));
+        }
+        List<String> frames = first.awaitFrames(7);
+        rateFeed.unsubscribe(first);
+
+        TestSubscriber reconnected = new TestSubscriber(HISTORY_SIZE);
+        rateFeed.subscribe(reconnected, field(frames.get(3), "id"));
+
+        List<String> expected = new ArrayList<>();
+        expected.add(RETRY_FRAME);
+        expected.addAll(frames.subList(4, 7));
+        assertEquals(expected, reconnected.drain());
+
+        // Up to date: nothing to replay
+        TestSubscriber current = new TestSubscriber(HISTORY_SIZE);
+        rateFeed.subscribe(current, field(frames.get(6), "id"));
+        assertEquals(List.of(RETRY_FRAME), current.drain());
+    }
+
+    // An id from another run, a malformed one, one from the future and one older than the history all mean
+    // the subscriber cannot be brought up to date one event at a time
+    @Test
+    void unknownEventIdAsksForResync() throws Exception {
+        TestSubscriber first = new TestSubscriber(HISTORY_SIZE * 2);
+        rateFeed.subscribe(first, null);
+        for (int i = 0; i < HISTORY_SIZE + 2; i++) {
+            rateFeed.publishResync(RateFeed.RESYNC_IMPORT);
+        }
+        List<String> frames = first.awaitFrames(HISTORY_SIZE + 3);
+        String firstId = field(frames.get(1), "id");
+        String lastId = field(frames.get(frames.size() - 1), "id");
+        String prefix = lastId.substring(0, lastId.indexOf('-') + 1);
+
+        for (String eventId : List.of("0-1", "garbage", prefix + "x", prefix + "1000", firstId)) {
+            TestSubscriber subscriber = new TestSubscriber(HISTORY_SIZE);
+            rateFeed.subscribe(subscriber, eventId);
+
+            List<String> replayed = subscriber.drain();
+            assertEquals(2, replayed.size(), eventId);
+            assertEquals("{\"reason\":\"unknownEventId\"}", field(replayed.get(1), "data"), eventId);
+            assertEquals(lastId, field(replayed.get(1), "id"), eventId);
+        }
+    }
+
+    @Test
+    void slowSubscriberLosesItsBacklogForOneResync() throws Exception {
+        TestSubscriber slow = new TestSubscriber(BUFFER_SIZE);
+        TestSubscriber fast = new TestSubscriber(HISTORY_SIZE * 2);
+        rateFeed.subscribe(slow, null);
+        rateFeed.subscribe(fast, null);
+
+        for (int i = 0; i < BUFFER_SIZE + 1; i++) {
+            rateFeed.publish(exchangeRate(BigDecimal.valueOf(i)));
+        }
+        List<String> fastFrames = fast.awaitFrames(BUFFER_SIZE + 2);
+
+        // The retry frame and three events filled the buffer, the fourth event replaced it with a resync
+        // carrying its id; the last one fits in behind it
+        List<String> slowFrames = slow.drain();
+        assertEquals(2, slowFrames.size());
+        assertEquals("{\"reason\":\"overflow\"}", field(slowFrames.get(0), "data"));
+        assertEquals(field(fastFrames.get(4), "id"), field(slowFrames.get(0), "id"));
+        assertEquals(fastFrames.get(5), slowFrames.get(1));
+        assertEquals(1, rateFeed.getOverflows());
+
+        // Once drained it receives events again
+        rateFeed.publishResync(RateFeed.RESYNC_IMPORT);
+        assertEquals(1, slow.drain().size());
+    }
+
+    @Test
+    void replayLargerThanTheBufferEndsInResync() throws Exception {
+        TestSubscriber first = new TestSubscriber(HISTORY_SIZE * 2);
+        rateFeed.subscribe(first, null);
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            rateFeed.publishResync(RateFeed.RESYNC_IMPORT);
+        }
+        List<String> frames = first.awaitFrames(HISTORY_SIZE + 1);
+
+        TestSubscriber reconnected = new TestSubscriber(BUFFER_SIZE);
+        rateFeed.subscribe(reconnected, field(frames.get(1), "id"));
+
+        List<String> replayed = reconnected.drain();
+        assertEquals(1, replayed.size());
+        assertEquals("{\"reason\":\"overflow\"}", field(replayed.get(0), "data"));
+        assertEquals(field(frames.get(HISTORY_SIZE), "id"), field(replayed.get(0), "id"));
+        assertEquals(1, rateFeed.getOverflows());
+    }
+
+    @Test
+    void closedFeedDropsSubscribersAndAcceptsEvents() {
+        TestSubscriber subscriber = new TestSubscriber(BUFFER_SIZE);
+        rateFeed.subscribe(subscriber, null);
+        assertEquals(1, rateFeed.getSubscriberCount());
+
+        rateFeed.close();
+        rateFeed.publishResync(RateFeed.RESYNC_IMPORT);
+
+        assertEquals(0, rateFeed.getSubscriberCount());
+    }
+
+    private static ExchangeRateResponseDto exchangeRate(BigDecimal rate) {
+        ExchangeRateResponseDto exchangeRate = new ExchangeRateResponseDto();
+        exchangeRate.setId(1);
+        exchangeRate.setRate(rate);
+        return exchangeRate;
+    }
+
+    private static String field(String frame, String name) {
+        for (String line : frame.split("\n")) {
+            if (line.startsWith(name + ": ")) {
+                return line.substring(name.length() + 2);
+            }
+        }
+        throw new AssertionError("No " + name + " in " + frame);
+    }
+
+    private static final class TestSubscriber extends FeedSubscriber {
+        private final BlockingQueue<Thread> notifications = new LinkedBlockingQueue<>();
+        private final List<String> received = new ArrayList<>();
+
+        TestSubscriber(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        protected void onAvailable() {
+            notifications.add(Thread.currentThread());
+        }
+
+        Thread awaitAvailable() throws InterruptedException {
+            Thread thread = notifications.poll(10, TimeUnit.SECONDS);
+            assertNotNull(thread, "Subscriber was not notified");
+            return thread;
+        }
+
+        List<String> drain() {
+            List<String> frames = new ArrayList<>();
+            for (byte[] frame = poll(); frame != null; frame = poll()) {
+                frames.add(new String(frame, StandardCharsets.UTF_8));
+            }
+            received.addAll(frames);
+            return frames;
+        }
+
+        // Everything received so far, once at least count frames arrived
+        List<String> awaitFrames(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            drain();
+            while (received.size() < count) {
+                assertTrue(System.nanoTime() < deadline, "Timed out waiting for " + count + " frames");
+                notifications.poll(10, TimeUnit.MILLISECONDS);
+                drain();
+            }
+            return List.copyOf(received);
+        }
+    }
+}
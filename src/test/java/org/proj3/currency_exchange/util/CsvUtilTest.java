@@ -0,0 +1,101 @@
+package org.proj3.currency_exchange.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvUtilTest {
+    private static final String ALPHABET = "ab ,\"'\t;€";
+
+    private final Random random = new Random(1801);
+
+    @Test
+    void splitsPlainValuesOnCommas() {
+        assertEquals(List.of("USD", "EUR", "0.92"), CsvUtil.parseLine("USD,EUR,0.92"));
+        assertEquals(List.of(" USD ", "EUR"), CsvUtil.parseLine(" USD ,EUR"));
+        assertEquals(List.of("it's", "a\tb"), CsvUtil.parseLine("it's,a\tb"));
+    }
+
+    @Test
+    void keepsEmptyValues() {
+        assertEquals(List.of(""), CsvUtil.parseLine(""));
+        assertEquals(List.of("", ""), CsvUtil.parseLine(","));
+        assertEquals(List.of("USD", "", "0.92", ""), CsvUtil.parseLine("USD,,0.92,"));
+        assertEquals(List.of("", "EUR"), CsvUtil.parseLine("\"\",EUR"));
+    }
+
+    @Test
+    void unquotesQuotedValues() {
+        assertEquals(List.of("Euro, Member Countries", "€"), CsvUtil.parseLine("\"Euro, Member Countries\",€"));
+        assertEquals(List.of("say \"hi\"", "x"), CsvUtil.parseLine("\"say \"\"hi\"\"\",x"));
+        assertEquals(List.of("\""), CsvUtil.parseLine("\"\"\"\""));
+        assertEquals(List.of(",", ""), CsvUtil.parseLine("\",\","));
+    }
+
+    // A quote that does not start the value is an ordinary character
+    @Test
+    void keepsQuotesInsideUnquotedValues() {
+        assertEquals(List.of("a\"b", "c\"\""), CsvUtil.parseLine("a\"b,c\"\""));
+        assertEquals(List.of(" \"a\""), CsvUtil.parseLine(" \"a\""));
+    }
+
+    @Test
+    void rejectsUnterminatedQuotes() {
+        assertThrows(IllegalArgumentException.class, () -> CsvUtil.parseLine("\""));
+        assertThrows(IllegalArgumentException.class, () -> CsvUtil.parseLine("USD,\"Euro"));
+        assertThrows(IllegalArgumentException.class, () -> CsvUtil.parseLine("\"a\"\""));
+    }
+
+    @Test
+    void rejectsTextAfterAClosingQuote() {
+        assertThrows(IllegalArgumentException.class, () -> CsvUtil.parseLine("\"Euro\" ,EUR"));
+        assertThrows(IllegalArgumentException.class, () -> CsvUtil.parseLine("\"a\"b"));
+    }
+
+    // Whatever an RFC 4180 writer produces for a row of values parses back to exactly those values
+    @Test
+    void parsesWhatAWriterProduces() {
+        for (int i = 0; i < 100_000; i++) {
+            List<String> values = new ArrayList<>();
+            int count = 1 + random.nextInt(6);
+            for (int j = 0; j < count; j++) {
+                values.add(randomValue());
+            }
+            String line = toLine(values);
+
+            assertEquals(values, CsvUtil.parseLine(line), line);
+        }
+    }
+
+    private String randomValue() {
+        StringBuilder value = new StringBuilder();
+        int length = random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            value.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return value.toString();
+    }
+
+    // Quotes only the values that need it, plus some that do not, as writers are free to
+    private String toLine(List<String> values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i);
+            if (i > 0) {
+                line.append(',');
+            }
+            boolean needsQuotes = value.contains(",") || value.startsWith("\"");
+            if (needsQuotes || random.nextInt(4) == 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.toString();
+    }
+}
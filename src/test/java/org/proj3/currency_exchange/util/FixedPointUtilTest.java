@@ -0,0 +1,111 @@
+package org.proj3.currency_exchange.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FixedPointUtilTest {
+    private static final int TRIALS = 100_000;
+    private static final BigInteger MAX_SCALED = BigInteger.TEN.pow(18);
+    private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private final Random random = new Random(1101);
+
+    @Test
+    void toScaledIsExactOrNotRepresentable() {
+        for (int i = 0; i < TRIALS; i++) {
+            BigDecimal value = randomDecimal(20, 9);
+            int scale = random.nextInt(9);
+
+            long expected = value.scale() > scale || value.setScale(scale).unscaledValue().compareTo(MAX_SCALED) >= 0
+                    ? FixedPointUtil.NOT_REPRESENTABLE
+                    : value.setScale(scale).unscaledValue().longValueExact();
+            assertEquals(expected, FixedPointUtil.toScaled(value, scale), () -> value + " at scale " + scale);
+        }
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE, FixedPointUtil.toScaled(new BigDecimal("-0.000001"), 6));
+        assertEquals(999_999_999_999_999_999L, FixedPointUtil.toScaled(new BigDecimal("999999999999.999999"), 6));
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE, FixedPointUtil.toScaled(new BigDecimal("1000000000000"), 6));
+    }
+
+    @Test
+    void multiplyMatchesBigIntegerOrOverflows() {
+        for (int i = 0; i < TRIALS; i++) {
+            long left = randomLong();
+            long right = randomLong();
+
+            BigInteger product = BigInteger.valueOf(left).multiply(BigInteger.valueOf(right));
+            long expected = product.compareTo(MAX_LONG) > 0 ? FixedPointUtil.NOT_REPRESENTABLE : product.longValue();
+            assertEquals(expected, FixedPointUtil.multiply(left, right), () -> left + " * " + right);
+        }
+        assertEquals(Long.MAX_VALUE, FixedPointUtil.multiply(Long.MAX_VALUE, 1));
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE, FixedPointUtil.multiply(1L << 32, 1L << 31));
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE, FixedPointUtil.multiply(FixedPointUtil.NOT_REPRESENTABLE, 0));
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE, FixedPointUtil.multiply(1, FixedPointUtil.NOT_REPRESENTABLE));
+    }
+
+    @Test
+    void divideHalfEvenMatchesBigDecimal() {
+        for (int i = 0; i < TRIALS; i++) {
+            long divisor = Math.max(1, randomLong());
+            long dividend = switch (random.nextInt(4)) {
+                // Exactly halfway between two quotients, odd and even ones alike
+                case 0 -> divisor % 2 == 0 ? halfway(divisor) : randomLong();
+                case 1 -> divisor - 1 - random.nextInt((int) Math.min(divisor, 3));
+                default -> randomLong();
+            };
+
+            assertDivision(dividend, divisor);
+        }
+        assertDivision(5, 2);
+        assertDivision(7, 2);
+        assertDivision(Long.MAX_VALUE, Long.MAX_VALUE - 1);
+        assertDivision(Long.MAX_VALUE - 1, Long.MAX_VALUE);
+        assertDivision(1L << 62, Long.MAX_VALUE);
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE, FixedPointUtil.divideHalfEven(1, 0));
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE,
+                FixedPointUtil.divideHalfEven(FixedPointUtil.NOT_REPRESENTABLE, 1));
+        assertEquals(FixedPointUtil.NOT_REPRESENTABLE,
+                FixedPointUtil.divideHalfEven(1, FixedPointUtil.NOT_REPRESENTABLE));
+    }
+
+    @Test
+    void toPlainBigDecimalMatchesStrippedPlainString() {
+        for (int i = 0; i < TRIALS; i++) {
+            long unscaled = random.nextInt(3) == 0 ? random.nextInt(1000) * 1000L : randomLong();
+            int scale = random.nextInt(9);
+
+            BigDecimal expected = new BigDecimal(BigDecimal.valueOf(unscaled, scale).stripTrailingZeros().toPlainString());
+            assertEquals(expected, FixedPointUtil.toPlainBigDecimal(unscaled, scale),
+                    () -> unscaled + " at scale " + scale);
+        }
+    }
+
+    private void assertDivision(long dividend, long divisor) {
+        long expected = new BigDecimal(dividend)
+                .divide(new BigDecimal(divisor), 0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+        assertEquals(expected, FixedPointUtil.divideHalfEven(dividend, divisor), () -> dividend + " / " + divisor);
+    }
+
+    private long halfway(long divisor) {
+        long quotient = random.nextLong(Long.MAX_VALUE / divisor);
+        return quotient * divisor + divisor / 2;
+    }
+
+    // Non-negative, with the number of significant bits spread evenly, so small, large and overflowing values all occur
+    private long randomLong() {
+        int bits = random.nextInt(64);
+        return bits == 0 ? 0 : random.nextLong() >>> (64 - bits);
+    }
+
+    private BigDecimal randomDecimal(int maxPrecision, int maxScale) {
+        int digits = random.nextInt(maxPrecision) + 1;
+        BigInteger unscaled = new BigInteger(digits * 4, random).mod(BigInteger.TEN.pow(digits));
+        return new BigDecimal(unscaled, random.nextInt(maxScale + 1));
+    }
+}